@@ -18,15 +18,24 @@ import io.sealights.agents.infra.pomIntegration.enums.LogDestination;
 import io.sealights.agents.infra.pomIntegration.enums.LogLevel;
 import io.sealights.agents.infra.pomIntegration.integration.MavenIntegration;
 import io.sealights.agents.infra.pomIntegration.integration.MavenIntegrationInfo;
-import io.sealights.agents.infra.pomIntegration.integration.PomIntegrationLogger;
 import io.sealights.onpremise.agents.infra.logging.ILogger;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.CommandExecutionScheduler;
 import io.sealights.plugins.sealightsjenkins.entities.FileBackupInfo;
 import io.sealights.plugins.sealightsjenkins.entities.TokenData;
 import io.sealights.plugins.sealightsjenkins.entities.ValidationError;
 import io.sealights.plugins.sealightsjenkins.exceptions.SeaLightsIllegalStateException;
+import io.sealights.plugins.sealightsjenkins.integration.IntegratePomsOnNodeCallable;
 import io.sealights.plugins.sealightsjenkins.integration.JenkinsPomFile;
 import io.sealights.plugins.sealightsjenkins.integration.JenkinsSeaLightsPluginInfo;
+import io.sealights.plugins.sealightsjenkins.integration.NodePomIntegrationResult;
+import io.sealights.plugins.sealightsjenkins.integration.PomIntegrationLoggerScope;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.AgentCacheEvictor;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.MavenPluginUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.NodeAgentCache;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.RecommendedVersionCache;
+import io.sealights.plugins.sealightsjenkins.model.TimingsAction;
+import io.sealights.plugins.sealightsjenkins.services.CircuitBreaker;
+import io.sealights.plugins.sealightsjenkins.services.HostCircuitBreakers;
 import io.sealights.plugins.sealightsjenkins.utils.*;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
@@ -45,6 +54,8 @@ import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 /**
@@ -446,27 +457,50 @@ public class BeginAnalysis extends Builder {
         this.additionalArguments = additionalArguments;
     }
 
-    private void copyAgentsToSlaveIfNeeded(Logger logger, CleanupManager cleanupManager, Properties additionalProps) throws IOException, InterruptedException {
-        if (additionalProps.get("buildscannerjar") != null) {
-            CustomFile customFile = new CustomFile(logger, cleanupManager, additionalProps.get("buildscannerjar").toString());
-            customFile.copyToSlave();
+    private void copyAgentsToSlaveIfNeeded(Logger logger, Properties additionalProps, String buildId) throws IOException, InterruptedException {
+        copyAgentToSlaveIfNeeded(logger, additionalProps, "buildscannerjar", buildId);
+        copyAgentToSlaveIfNeeded(logger, additionalProps, "testlistenerjar", buildId);
+    }
+
+    private void copyAgentToSlaveIfNeeded(Logger logger, Properties additionalProps, String agentProperty, String buildId)
+            throws IOException, InterruptedException {
+        if (additionalProps.get(agentProperty) == null) {
+            return;
+        }
+        // The agent is taken from the node's cache, so the build uses it from there
+        try (Timings.Timer timer = Timings.start(Timings.FILE_COPY)) {
+            String agentOnNode = NodeAgentCache.getInstance().copyToNode(
+                    logger, additionalProps.get(agentProperty).toString(), buildId);
+            additionalProps.setProperty(agentProperty, agentOnNode);
         }
+    }
 
-        if (additionalProps.get("testlistenerjar") != null) {
-            CustomFile customFile = new CustomFile(logger, cleanupManager, additionalProps.get("testlistenerjar").toString());
-            customFile.copyToSlave();
+    /**
+     * Starts resolving the maven plugin version, unless it is set in the additional arguments.
+     *
+     * @return the pending version, or 'null' if there is no need to resolve it.
+     */
+    private Future<String> startGetSlMvnPluginVersion(SeaLightsPluginInfo slInfo, ILogger logger, Properties additionalProps, EnvVars envVars) {
+        if (isValidVersion(additionalProps.getProperty("mvnpluginversion"))) {
+            return null;
         }
+        MavenPluginUpgradeManager upgradeManager = new MavenPluginUpgradeManager(slInfo, logger);
+        upgradeManager.setAgentsMirror(resolveAgentsMirror(additionalProps, envVars));
+        return upgradeManager.queryServerForMavenPluginVersionAsync();
     }
 
-    private String tryGetSlMvnPluginVersion(SeaLightsPluginInfo slInfo, ILogger logger, Properties additionalProps) {
+    private String tryGetSlMvnPluginVersion(Future<String> pendingVersion, ILogger logger, Properties additionalProps)
+            throws InterruptedException {
 
         String recommendedVersion = additionalProps.getProperty("mvnpluginversion");
 
         try {
-            if (!isValidVersion(recommendedVersion)) {
-                MavenPluginUpgradeManager upgradeManager = new MavenPluginUpgradeManager(slInfo, logger);
-                recommendedVersion = upgradeManager.queryServerForMavenPluginVersion();
+            if (pendingVersion != null) {
+                recommendedVersion = getResult(pendingVersion);
             }
+        } catch (InterruptedException e) {
+            pendingVersion.cancel(true);
+            throw e;
         } catch (FileNotFoundException e) {
             logger.error("Error while trying to resolve Sealights maven plugin version. " +
                     "Probably the server did not found latest maven plugin version." +
@@ -480,11 +514,21 @@ public class BeginAnalysis extends Builder {
         return recommendedVersion;
     }
 
+    private static <T> T getResult(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+    }
+
     public boolean perform(
             AbstractBuild<?, ?> build, CleanupManager cleanupManager, Logger logger,
             String pomPath, EnvVars envVars)
             throws IOException, InterruptedException, SeaLightsIllegalStateException {
 
+        TimingsAction previousTimings = Timings.bind(build);
         try {
             setDefaultValues(logger);
 
@@ -497,7 +541,7 @@ public class BeginAnalysis extends Builder {
                 return true;
             }
 
-            copyAgentsToSlaveIfNeeded(logger, cleanupManager, additionalProps);
+            copyAgentsToSlaveIfNeeded(logger, additionalProps, build.getExternalizableId());
 
             String workingDir = ws.getRemote();
 
@@ -513,18 +557,14 @@ public class BeginAnalysis extends Builder {
                 return true;
             }
 
+            // The server is queried while the build file publisher is configured
+            Future<String> pendingMvnPluginVersion = startGetSlMvnPluginVersion(slInfo, logger, additionalProps, envVars);
+
             printFields(slInfo, logger);
 
             configureBuildFilePublisher(build, slInfo.getBuildFilesFolders());
 
-            String mvnPluginVersionToUse = tryGetSlMvnPluginVersion(slInfo, logger, additionalProps);
-            if (!isValidVersion(mvnPluginVersionToUse)) {
-                //Don't integrate with maven if we can't decide our maven plugin version.
-                //Return true so we do it quietly.
-                return true;
-            }
-
-            doMavenIntegration(logger, slInfo, mvnPluginVersionToUse);
+            doMavenIntegration(logger, slInfo, pendingMvnPluginVersion, additionalProps);
 
         } catch (Exception e) {
             // for cases when trying 'Latest-Build' when not on 'Tests Only' mode.
@@ -532,6 +572,8 @@ public class BeginAnalysis extends Builder {
                 throw e;
             }
             logger.error("Error occurred while performing Sealights Analysis build step.", e);
+        } finally {
+            Timings.restore(previousTimings);
         }
 
         return true;
@@ -571,20 +613,78 @@ public class BeginAnalysis extends Builder {
         return pomPath;
     }
 
-    private void doMavenIntegration(ILogger logger, SeaLightsPluginInfo slInfo, String mvnPluginVersionToUse) throws IOException, InterruptedException {
-        // Set build logger as actual logger in pom integration process
-        PomIntegrationLogger.setPluginLogger(logger);
+    private void doMavenIntegration(Logger logger, SeaLightsPluginInfo slInfo, Future<String> pendingMvnPluginVersion,
+                                    Properties additionalProps) throws IOException, InterruptedException {
+        String mvnPluginVersionToUse = tryGetSlMvnPluginVersion(pendingMvnPluginVersion, logger, additionalProps);
+        if (!isValidVersion(mvnPluginVersionToUse)) {
+            //Don't integrate with maven if we can't decide our maven plugin version.
+            //Do it quietly.
+            return;
+        }
+
         List<String> folders = Arrays.asList(slInfo.getBuildFilesFolders().split("\\s*,\\s*"));
-        List<PomFile> pomFiles = getPomFiles(folders, slInfo.getBuildFilesPatterns(), logger, pomPath);
+        if (tryIntegrateOnNode(logger, slInfo, folders, mvnPluginVersionToUse)) {
+            return;
+        }
+
+        // Set build logger as actual logger in pom integration process
+        try (PomIntegrationLoggerScope loggerScope = PomIntegrationLoggerScope.enter(logger)) {
+            List<PomFile> pomFiles;
+            try (Timings.Timer timer = Timings.start(Timings.POM_DISCOVERY)) {
+                pomFiles = getPomFiles(folders, slInfo.getBuildFilesPatterns(), logger, pomPath);
+            }
+
+            MavenIntegrationInfo info = new MavenIntegrationInfo(
+                    pomFiles,
+                    slInfo,
+                    mvnPluginVersionToUse
+            );
+            MavenIntegration mavenIntegration = new MavenIntegration(info);
+            try (Timings.Timer timer = Timings.start(Timings.POM_REWRITE)) {
+                mavenIntegration.integrate();
+            }
+        }
+
+    }
+
+    /**
+     * Integrates all the poms on the node in a single remoting call.
+     *
+     * @return 'false' if the integration couldn't run on the node, so it should be done pom by pom from the master.
+     */
+    private boolean tryIntegrateOnNode(Logger logger, SeaLightsPluginInfo slInfo, List<String> folders, String mvnPluginVersion)
+            throws IOException, InterruptedException {
+        Computer computer = Computer.currentComputer();
+        VirtualChannel channel = (computer == null) ? null : computer.getChannel();
+        if (channel == null) {
+            logger.warning("There is no channel to the node, integrating the poms from the master.");
+            return false;
+        }
+        return tryIntegrateOnNode(logger, slInfo, folders, mvnPluginVersion, channel);
+    }
 
-        MavenIntegrationInfo info = new MavenIntegrationInfo(
-                pomFiles,
-                slInfo,
-                mvnPluginVersionToUse
-        );
-        MavenIntegration mavenIntegration = new MavenIntegration(info);
-        mavenIntegration.integrate();
+    boolean tryIntegrateOnNode(Logger logger, SeaLightsPluginInfo slInfo, List<String> folders, String mvnPluginVersion,
+                               VirtualChannel channel) throws IOException, InterruptedException {
+        NodePomIntegrationResult result;
+        try {
+            result = channel.call(new IntegratePomsOnNodeCallable(
+                    folders, slInfo.getBuildFilesPatterns(), pomPath, slInfo, mvnPluginVersion, logger.getPrefix()));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to integrate the poms on the node, integrating them from the master. Error: " + e.getMessage());
+            return false;
+        }
 
+        logger.printFormatted(result.getLog());
+        TimingsAction timings = Timings.current();
+        if (timings != null) {
+            timings.record(Timings.POM_DISCOVERY, result.getDiscoveryMillis());
+            timings.record(Timings.POM_REWRITE, result.getIntegrationMillis());
+        }
+        if (result.getError() != null) {
+            throw new IOException(result.getError());
+        }
+        logger.info("Integrated " + result.getPomFiles().size() + " pom files on the node.");
+        return true;
     }
 
     private String joinPaths(String path1, String path2) {
@@ -773,6 +873,17 @@ public class BeginAnalysis extends Builder {
         return System.getProperty("java.io.tmpdir");
     }
 
+    /**
+     * Returns the agents mirror of the step ('agentsmirror'), or the global one. 'null' or empty when there is none.
+     */
+    public String resolveAgentsMirror(Properties additionalProps, EnvVars envVars) {
+        String agentsMirror = (String) additionalProps.get("agentsmirror");
+        if (!StringUtils.isNullOrEmpty(agentsMirror)) {
+            return JenkinsUtils.resolveEnvVarsInString(envVars, agentsMirror);
+        }
+        return getDescriptor().getAgentsMirror();
+    }
+
     private boolean tryUseToken(Logger logger, SeaLightsPluginInfo slInfo, String tokenPropertyValue) {
         try {
             String token = tokenPropertyValue;
@@ -784,7 +895,11 @@ public class BeginAnalysis extends Builder {
                 }
             }
 
-            boolean isValidToken = validateAndTryUseToken(logger, token, slInfo);
+            boolean isValidToken;
+            // Parsing and validating the token is measured once, as a single phase
+            try (Timings.Timer timer = Timings.start(Timings.TOKEN_VALIDATION)) {
+                isValidToken = validateAndTryUseToken(logger, token, slInfo);
+            }
             if (!isValidToken) {
                 logger.error("The provided token is invalid. Sealights will try to run without it.");
                 return false;
@@ -938,6 +1053,12 @@ public class BeginAnalysis extends Builder {
         private String filesStorage;
         private boolean createBuildSessionId;
         private String toolsPathOnMaster;
+        private int maxConcurrentCliCommands;
+        private String cliCommandsLimits;
+        private Integer recommendedVersionCacheTtlSecs;
+        private int agentsCacheMaxVersions;
+        private int agentsCacheMaxSizeMb;
+        private String agentsMirror;
         private final String DEFAULT_TOOLS_PATH = "/var/lib/jenkins/tools";
 
         // TODO: this is for testing. need to find more elegant way to mock.
@@ -959,9 +1080,24 @@ public class BeginAnalysis extends Builder {
         public synchronized void load() {
             if (latestConfigurationExist()) {
                 super.load();
-                return;
+            } else {
+                tryLoadOldConfiguration();
             }
-            tryLoadOldConfiguration();
+            applyCliCommandsLimits();
+            applyRecommendedVersionCacheTtl();
+            applyAgentsCacheLimits();
+        }
+
+        private void applyCliCommandsLimits() {
+            CommandExecutionScheduler.getInstance().configure(maxConcurrentCliCommands, cliCommandsLimits);
+        }
+
+        private void applyRecommendedVersionCacheTtl() {
+            RecommendedVersionCache.getInstance().setTtlSecs(getRecommendedVersionCacheTtlSecs());
+        }
+
+        private void applyAgentsCacheLimits() {
+            AgentCacheEvictor.getInstance().configure(agentsCacheMaxVersions, agentsCacheMaxSizeMb * 1024L * 1024L);
         }
 
         private synchronized boolean latestConfigurationExist() {
@@ -991,6 +1127,15 @@ public class BeginAnalysis extends Builder {
             proxy = json.getString("proxy");
             filesStorage = json.getString("filesStorage");
             toolsPathOnMaster = json.getString("toolsPathOnMaster");
+            maxConcurrentCliCommands = json.optInt("maxConcurrentCliCommands", 0);
+            cliCommandsLimits = json.optString("cliCommandsLimits");
+            applyCliCommandsLimits();
+            recommendedVersionCacheTtlSecs = json.optInt("recommendedVersionCacheTtlSecs", RecommendedVersionCache.DEFAULT_TTL_SECS);
+            applyRecommendedVersionCacheTtl();
+            agentsCacheMaxVersions = json.optInt("agentsCacheMaxVersions", 0);
+            agentsCacheMaxSizeMb = json.optInt("agentsCacheMaxSizeMb", 0);
+            applyAgentsCacheLimits();
+            agentsMirror = json.optString("agentsMirror");
             save();
             return super.configure(req, json);
         }
@@ -1086,6 +1231,64 @@ public class BeginAnalysis extends Builder {
             this.toolsPathOnMaster = toolsPathOnMaster;
         }
 
+        public int getMaxConcurrentCliCommands() {
+            return maxConcurrentCliCommands;
+        }
+
+        public void setMaxConcurrentCliCommands(int maxConcurrentCliCommands) {
+            this.maxConcurrentCliCommands = maxConcurrentCliCommands;
+        }
+
+        public String getCliCommandsLimits() {
+            return cliCommandsLimits;
+        }
+
+        public void setCliCommandsLimits(String cliCommandsLimits) {
+            this.cliCommandsLimits = cliCommandsLimits;
+        }
+
+        public int getRecommendedVersionCacheTtlSecs() {
+            // Configurations that were saved before this field existed use the default
+            if (recommendedVersionCacheTtlSecs == null)
+                return RecommendedVersionCache.DEFAULT_TTL_SECS;
+            return recommendedVersionCacheTtlSecs;
+        }
+
+        public void setRecommendedVersionCacheTtlSecs(int recommendedVersionCacheTtlSecs) {
+            this.recommendedVersionCacheTtlSecs = recommendedVersionCacheTtlSecs;
+        }
+
+        public int getAgentsCacheMaxVersions() {
+            return agentsCacheMaxVersions;
+        }
+
+        public void setAgentsCacheMaxVersions(int agentsCacheMaxVersions) {
+            this.agentsCacheMaxVersions = agentsCacheMaxVersions;
+        }
+
+        public int getAgentsCacheMaxSizeMb() {
+            return agentsCacheMaxSizeMb;
+        }
+
+        public void setAgentsCacheMaxSizeMb(int agentsCacheMaxSizeMb) {
+            this.agentsCacheMaxSizeMb = agentsCacheMaxSizeMb;
+        }
+
+        public String getAgentsMirror() {
+            return agentsMirror;
+        }
+
+        public void setAgentsMirror(String agentsMirror) {
+            this.agentsMirror = agentsMirror;
+        }
+
+        /**
+         * The state of the hosts the plugin talks to, shown on the global configuration page.
+         */
+        public List<CircuitBreaker> getCircuitBreakers() {
+            return HostCircuitBreakers.getInstance().getAll();
+        }
+
         public boolean isBuildSessionIdProvided(String buildSessionId, String additionalArguments) {
             Properties additionalProps = PropertiesUtils.toProperties(additionalArguments);
             boolean hasBuildSessionId = !StringUtils.isNullOrEmpty(buildSessionId);
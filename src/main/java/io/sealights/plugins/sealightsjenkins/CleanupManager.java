@@ -2,6 +2,7 @@ package io.sealights.plugins.sealightsjenkins;
 
 import io.sealights.plugins.sealightsjenkins.utils.FileUtils;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 
 import java.io.IOException;
 import java.nio.file.FileSystemException;
@@ -25,11 +26,13 @@ public class CleanupManager {
     }
 
     public void clean() throws IOException, InterruptedException {
-        for (String file : files) {
-            try {
-                FileUtils.tryDeleteFile(logger, file);
-            } catch (FileSystemException e) {
-                logger.warning("Failed to delete file: " + file + ". Reason: " + e.getMessage());
+        try (Timings.Timer timer = Timings.start(Timings.CLEANUP)) {
+            for (String file : files) {
+                try {
+                    FileUtils.tryDeleteFile(logger, file);
+                } catch (FileSystemException e) {
+                    logger.warning("Failed to delete file: " + file + ". Reason: " + e.getMessage());
+                }
             }
         }
     }
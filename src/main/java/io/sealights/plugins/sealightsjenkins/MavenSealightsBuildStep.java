@@ -17,7 +17,9 @@ import hudson.util.NullStream;
 import hudson.util.StreamTaskListener;
 import hudson.util.VariableResolver;
 import io.sealights.plugins.sealightsjenkins.enums.BuildStepModes;
+import io.sealights.plugins.sealightsjenkins.model.TimingsAction;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 import jenkins.model.Jenkins;
 import jenkins.mvn.GlobalMavenConfig;
 import jenkins.mvn.GlobalSettingsProvider;
@@ -285,6 +287,15 @@ public class MavenSealightsBuildStep extends Builder {
 
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
+        TimingsAction previousTimings = Timings.bind(build);
+        try {
+            return performStep(build, launcher, listener);
+        } finally {
+            Timings.restore(previousTimings);
+        }
+    }
+
+    private boolean performStep(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
 
         Logger logger = new Logger(listener.getLogger());
         BuildStepModes currentMode = this.buildStepMode.getCurrentMode();
@@ -11,9 +11,12 @@ import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
 import io.sealights.plugins.sealightsjenkins.BeginAnalysis;
 import io.sealights.plugins.sealightsjenkins.CleanupManager;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AgentResolutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.ExternalReportCommandArguments;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.SealightsBuildStatus;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon.AgentDaemonRegistry;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.utils.BuildNameResolver;
 import io.sealights.plugins.sealightsjenkins.entities.TokenData;
 import io.sealights.plugins.sealightsjenkins.entities.ValidationError;
@@ -67,7 +70,8 @@ public class BuildStatusNotifier extends Notifier {
     }
 
     @Override
-    public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) {
+    public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+            throws InterruptedException {
         Logger logger = new Logger(listener.getLogger(), "SeaLights Build Status Notifier");
         try {
             // This step must be first
@@ -109,6 +113,8 @@ public class BuildStatusNotifier extends Notifier {
                 onSuccess(envVars, additionalProps, reportFilePath, workingDir, logger);
             }
 
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to send build status report. Error: ", e);
         }
@@ -260,7 +266,11 @@ public class BuildStatusNotifier extends Notifier {
         baseArgs.setTokenFile(resolveEnvVar(envVars, (String) additionalProps.get("tokenfile")));
 
         // need to create tokenData for the upgrade feature (need to know to which server it should request for agents)
-        TokenData tokenData = createTokenData(baseArgs.getToken(), baseArgs.getTokenFile(), logger);
+        TokenData tokenData;
+        // Parsing and validating the token is measured once, as a single phase
+        try (Timings.Timer timer = Timings.start(Timings.TOKEN_VALIDATION)) {
+            tokenData = createTokenData(baseArgs.getToken(), baseArgs.getTokenFile(), logger);
+        }
         baseArgs.setTokenData(tokenData);
 
         String globalProxy = beginAnalysis.getDescriptor().getProxy();
@@ -278,6 +288,16 @@ public class BuildStatusNotifier extends Notifier {
 
         baseArgs.setAgentPath(resolveEnvVar(envVars, (String) additionalProps.get("agentpath")));
         baseArgs.setJavaPath(resolveEnvVar(envVars, (String) additionalProps.get("javapath")));
+        baseArgs.setExecutionMode(
+                CommandExecutionMode.fromName(resolveEnvVar(envVars, (String) additionalProps.get("executionmode"))));
+        baseArgs.setDaemonIdleTimeoutSecs(PropertiesUtils.getPositiveInt(
+                additionalProps, "daemonidletimeout", AgentDaemonRegistry.DEFAULT_IDLE_TIMEOUT_SECS));
+        baseArgs.setCommandTimeoutSecs(PropertiesUtils.getPositiveInt(additionalProps, "commandtimeout", 0));
+        baseArgs.setFastStart(Boolean.parseBoolean(resolveEnvVar(envVars, (String) additionalProps.get("faststart"))));
+        baseArgs.setAgentResolution(
+                AgentResolutionMode.fromName(resolveEnvVar(envVars, (String) additionalProps.get("agentresolution"))));
+        baseArgs.setAgentsMirror(this.beginAnalysis.resolveAgentsMirror(additionalProps, envVars));
+        baseArgs.setHttpTimeoutSecs(PropertiesUtils.getPositiveInt(additionalProps, "sl.httpClient.timeout", 0));
 
         baseArgs.setBuild(build);
         baseArgs.setEnvVars(envVars);
@@ -1,13 +1,21 @@
 package io.sealights.plugins.sealightsjenkins.buildsteps.cli;
 
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AbstractCommandArgument;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AgentResolutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandModes;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.CommandExecutorsFactory;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.ICommandExecutor;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node.ResolveAgentOnNodeCallable;
 import io.sealights.plugins.sealightsjenkins.entities.TokenData;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.AbstractUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.AgentLease;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.BuildScannerUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.PrefetchTargets;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.TestListenerUpgradeManager;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.UpgradeProxy;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
@@ -15,6 +23,8 @@ import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
 
 /**
  * This class is responsible to invoke the right command executor.
@@ -25,6 +35,8 @@ public class CLIHandler {
     private String filesStorage;
     private BaseCommandArguments baseArgs;
     private AbstractCommandArgument commandArgument;
+    // The lease of the agent that was resolved on the node, released when the command ends
+    private FilePath nodeAgentLease;
 
     public CLIHandler(Logger logger) {
         this.logger = logger;
@@ -37,33 +49,93 @@ public class CLIHandler {
         this.logger = logger;
     }
 
-    public boolean handle() {
+    public boolean handle() throws InterruptedException {
         logger.info("Base Arguments Provided for the cli execution: " + baseArgs.toString());
 
         String agentPath = tryGetAgentPath(logger, baseArgs);
         baseArgs.setAgentPath(agentPath);
+        baseArgs.setAgentOnNode(nodeAgentLease != null);
 
-        CommandExecutorsFactory commandExecutorsFactory = new CommandExecutorsFactory();
-        ICommandExecutor executor = commandExecutorsFactory.createExecutor(logger, baseArgs, commandArgument);
+        // The lease keeps the agent from being evicted from the cache while the command waits for its turn and runs.
+        // An agent that was resolved on the node was leased there.
+        try (AgentLease lease = AgentLease.acquire(baseArgs.isAgentOnNode() ? null : agentPath)) {
+            CommandExecutorsFactory commandExecutorsFactory = new CommandExecutorsFactory();
+            ICommandExecutor executor = commandExecutorsFactory.createExecutor(logger, baseArgs, commandArgument);
 
-        return executor.execute();
+            return executor.execute();
+        } finally {
+            releaseNodeAgentLease();
+        }
+    }
+
+    private void releaseNodeAgentLease() throws InterruptedException {
+        if (nodeAgentLease == null) {
+            return;
+        }
+        try {
+            nodeAgentLease.delete();
+        } catch (IOException e) {
+            logger.warning("Failed to release the lease '" + nodeAgentLease.getRemote() + "' of the agent on the node. Error: "
+                    + e.getMessage());
+        }
+        nodeAgentLease = null;
     }
 
-    private String tryGetAgentPath(Logger logger, BaseCommandArguments baseArgs) {
+    private String tryGetAgentPath(Logger logger, BaseCommandArguments baseArgs) throws InterruptedException {
         if (!StringUtils.isNullOrEmpty(baseArgs.getAgentPath()) && new File(baseArgs.getAgentPath()).isFile()) {
             return baseArgs.getAgentPath();
         }
+        if (AgentResolutionMode.NODE.equals(baseArgs.getAgentResolution())) {
+            String agentOnNode = tryGetAgentPathOnNode(logger, baseArgs);
+            if (agentOnNode != null) {
+                return agentOnNode;
+            }
+        }
         AbstractUpgradeManager upgradeManager = createUpgradeManager(logger, baseArgs);
         return upgradeManager.ensureLatestAgentPresentLocally();
     }
 
+    /**
+     * Resolves and downloads the agent on the node that owns the workspace, into the node's cache folder.
+     * Returns 'null' if it can't be done there, in which case it is resolved on the master.
+     */
+    String tryGetAgentPathOnNode(Logger logger, BaseCommandArguments baseArgs) throws InterruptedException {
+        if (!CommandExecutionMode.NODE.equals(baseArgs.getExecutionMode())) {
+            logger.warning("'agentresolution=node' requires 'executionmode=node', the agent will be resolved on the master.");
+            return null;
+        }
+
+        AbstractBuild<?, ?> build = baseArgs.getBuild();
+        FilePath workspace = (build == null) ? null : build.getWorkspace();
+        Node node = (build == null) ? null : build.getBuiltOn();
+        FilePath nodeRoot = (node == null) ? null : node.getRootPath();
+        if (workspace == null || !workspace.isRemote() || nodeRoot == null || baseArgs.getLauncher() == null) {
+            logger.info("The build doesn't run on a remote node, the agent will be resolved on the master.");
+            return null;
+        }
+
+        UpgradeConfiguration upgradeConfiguration = createUpgradeConfiguration(baseArgs, nodeRoot.getRemote());
+        String leaseId = UUID.randomUUID().toString();
+        try {
+            String agentOnNode = workspace.act(new ResolveAgentOnNodeCallable(upgradeConfiguration, useBuildScanner(),
+                    baseArgs.getLauncher().getListener(), logger.getPrefix(), leaseId));
+            FilePath agent = new FilePath(workspace.getChannel(), agentOnNode);
+            nodeAgentLease = agent.sibling(AgentLease.getLeaseFileName(agent.getName(), leaseId));
+            return agentOnNode;
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to resolve the agent on the node, it will be resolved on the master. Error: " + e.getMessage());
+            return null;
+        }
+    }
+
     private AbstractUpgradeManager createUpgradeManager(Logger logger, BaseCommandArguments baseArgs) {
-        UpgradeConfiguration upgradeConfiguration = createUpgradeConfiguration(baseArgs);
+        UpgradeConfiguration upgradeConfiguration = createUpgradeConfiguration(baseArgs, filesStorage);
+        PrefetchTargets.getInstance().record("sealights-java", upgradeConfiguration);
         UpgradeProxy upgradeProxy = new UpgradeProxy(upgradeConfiguration, logger);
         return getRelevantUpgradeManager(upgradeProxy, upgradeConfiguration);
     }
 
-    private UpgradeConfiguration createUpgradeConfiguration(BaseCommandArguments baseArgs) {
+    private UpgradeConfiguration createUpgradeConfiguration(BaseCommandArguments baseArgs, String filesStorage) {
 
         String token = null;
         String customerId = baseArgs.getCustomerId();
@@ -76,7 +148,7 @@ public class CLIHandler {
             server = tokenData.getServer();
         }
 
-        return new UpgradeConfiguration(
+        UpgradeConfiguration upgradeConfiguration = new UpgradeConfiguration(
                 token,
                 customerId,
                 baseArgs.getBuildSessionId(),
@@ -87,6 +159,9 @@ public class CLIHandler {
                 baseArgs.getProxy(),
                 filesStorage
         );
+        upgradeConfiguration.setAgentsMirror(baseArgs.getAgentsMirror());
+        upgradeConfiguration.setHttpTimeoutSecs(baseArgs.getHttpTimeoutSecs());
+        return upgradeConfiguration;
     }
 
     public String getFilesStorage() {
@@ -112,13 +187,14 @@ public class CLIHandler {
     private AbstractUpgradeManager getRelevantUpgradeManager(
             UpgradeProxy upgradeProxy, UpgradeConfiguration upgradeConfiguration) {
 
-        boolean useScannerUpgradeManager =
-         CommandModes.Config.equals(commandArgument.getMode()) || CommandModes.PrConfig.equals(commandArgument.getMode());
-
-        if (useScannerUpgradeManager) {
+        if (useBuildScanner()) {
             return new BuildScannerUpgradeManager(upgradeProxy, upgradeConfiguration, logger);
         }
         return new TestListenerUpgradeManager(upgradeProxy, upgradeConfiguration, logger);
     }
+
+    private boolean useBuildScanner() {
+        return CommandModes.Config.equals(commandArgument.getMode()) || CommandModes.PrConfig.equals(commandArgument.getMode());
+    }
 }
 
@@ -11,8 +11,11 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import io.sealights.plugins.sealightsjenkins.BeginAnalysis;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AbstractCommandArgument;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AgentResolutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandBuildNamingStrategy;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon.AgentDaemonRegistry;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandModes;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.utils.BuildNameResolver;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.utils.ModeToArgumentsConverter;
@@ -134,14 +137,11 @@ public class CLIRunner extends Builder {
             // This step must be first
             setDefaultValues();
 
-            if (additionalProps != null && additionalProps.get("sl.httpClient.timeout") != null && additionalProps.get("sl.httpClient.timeout") != ""){
-                System.setProperty("sl.httpClient.timeout", additionalProps.get("sl.httpClient.timeout").toString())   ;
-            }
-
             EnvVars envVars = build.getEnvironment(listener);
             BaseCommandArguments baseArgs = createBaseCommandArguments(logger, build, additionalProps, envVars);
 
             baseArgs.setBuild(build);
+            baseArgs.setLauncher(launcher);
             baseArgs.setEnvVars(envVars);
             baseArgs.setLogger(logger);
 
@@ -155,6 +155,8 @@ public class CLIRunner extends Builder {
             cliHandler.setFilesStorage(filesStorage);
 
             return cliHandler.handle();
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error occurred while performing 'Sealights CLI'. Error: ", e);
         }
@@ -214,6 +216,16 @@ public class CLIRunner extends Builder {
 
         baseArgs.setAgentPath(resolveEnvVar(envVars, (String) additionalProps.get("agentpath")));
         baseArgs.setJavaPath(resolveEnvVar(envVars, (String) additionalProps.get("javapath")));
+        baseArgs.setExecutionMode(
+                CommandExecutionMode.fromName(resolveEnvVar(envVars, (String) additionalProps.get("executionmode"))));
+        baseArgs.setDaemonIdleTimeoutSecs(PropertiesUtils.getPositiveInt(
+                additionalProps, "daemonidletimeout", AgentDaemonRegistry.DEFAULT_IDLE_TIMEOUT_SECS));
+        baseArgs.setCommandTimeoutSecs(PropertiesUtils.getPositiveInt(additionalProps, "commandtimeout", 0));
+        baseArgs.setFastStart(Boolean.parseBoolean(resolveEnvVar(envVars, (String) additionalProps.get("faststart"))));
+        baseArgs.setAgentResolution(
+                AgentResolutionMode.fromName(resolveEnvVar(envVars, (String) additionalProps.get("agentresolution"))));
+        baseArgs.setAgentsMirror(this.beginAnalysis.resolveAgentsMirror(additionalProps, envVars));
+        baseArgs.setHttpTimeoutSecs(PropertiesUtils.getPositiveInt(additionalProps, "sl.httpClient.timeout", 0));
 
         return baseArgs;
     }
@@ -286,7 +298,11 @@ public class CLIRunner extends Builder {
                 }
             }
 
-            boolean isValidToken = validateAndTryUseToken(logger, token, baseArgs);
+            boolean isValidToken;
+            // Parsing and validating the token is measured once, as a single phase
+            try (Timings.Timer timer = Timings.start(Timings.TOKEN_VALIDATION)) {
+                isValidToken = validateAndTryUseToken(logger, token, baseArgs);
+            }
             if (!isValidToken) {
                 logger.error("The provided token is invalid. Sealights will try to run without it.");
                 return false;
@@ -196,6 +196,54 @@ public class CommandMode implements Describable<CommandMode>, ExtensionPoint, Se
 
     }
 
+    public static class CompositeView extends CommandMode {
+
+        private String testStage;
+        private String reportFiles;
+        private String reportsFolders;
+
+        @DataBoundConstructor
+        public CompositeView(String testStage, String reportFiles, String reportsFolders,
+                             String buildSessionId, String additionalArguments) {
+            super(CommandModes.Composite, buildSessionId, additionalArguments);
+            this.testStage = testStage;
+            this.reportFiles = reportFiles;
+            this.reportsFolders = reportsFolders;
+        }
+
+        public String getTestStage() {
+            return testStage;
+        }
+
+        public void setTestStage(String testStage) {
+            this.testStage = testStage;
+        }
+
+        public String getReportFiles() {
+            return reportFiles;
+        }
+
+        public void setReportFiles(String reportFiles) {
+            this.reportFiles = reportFiles;
+        }
+
+        public String getReportsFolders() {
+            return reportsFolders;
+        }
+
+        public void setReportsFolders(String reportsFolders) {
+            this.reportsFolders = reportsFolders;
+        }
+
+        @Extension
+        public static class CompositeDescriptor extends CommandModeDescriptor {
+            public CompositeDescriptor() {
+                super(CompositeView.class, CommandModes.Composite.getDisplayName());
+            }
+        }
+
+    }
+
     public static class ExternalReportView extends CommandMode {
 
         private String report;
@@ -10,14 +10,19 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.util.DescribableList;
 import io.sealights.plugins.sealightsjenkins.BuildNamingStrategy;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.async.PendingStepsPublisher;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.async.PendingStepsRegistry;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.configurationtechnologies.JavaOptions;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.configurationtechnologies.TechnologyOptions;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.configurationtechnologies.TechnologyOptionsDescriptor;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandBuildNamingStrategy;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandModes;
 import io.sealights.plugins.sealightsjenkins.exceptions.SeaLightsIllegalStateException;
+import io.sealights.plugins.sealightsjenkins.model.TimingsAction;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.PropertiesUtils;
 import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
@@ -26,19 +31,27 @@ import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 public class SealightsCLIBuildStep extends Builder {
 
     public boolean enabled;
     public boolean failBuildIfStepFail;
+    public boolean runInBackground;
     public CommandMode commandMode;
     public CLIRunner cliRunner;
 
-    @DataBoundConstructor
     public SealightsCLIBuildStep(boolean enabled, boolean failBuildIfStepFail,
                                  CommandMode commandMode, CLIRunner cliRunner) {
+        this(enabled, failBuildIfStepFail, false, commandMode, cliRunner);
+    }
+
+    @DataBoundConstructor
+    public SealightsCLIBuildStep(boolean enabled, boolean failBuildIfStepFail, boolean runInBackground,
+                                 CommandMode commandMode, CLIRunner cliRunner) {
         this.enabled = enabled;
         this.failBuildIfStepFail = failBuildIfStepFail;
+        this.runInBackground = runInBackground;
         this.commandMode = commandMode;
         this.cliRunner = cliRunner;
     }
@@ -132,25 +145,50 @@ public class SealightsCLIBuildStep extends Builder {
         this.failBuildIfStepFail = failBuildIfStepFail;
     }
 
+    public boolean isRunInBackground() {
+        return runInBackground;
+    }
+
+    public void setRunInBackground(boolean runInBackground) {
+        this.runInBackground = runInBackground;
+    }
+
     @Override
     public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws IOException, InterruptedException {
         boolean isStepSuccessful = false;
         Logger logger = new Logger(listener.getLogger(), "SeaLights CLI - " + commandMode.getCurrentMode().getName());
 
+        TimingsAction previousTimings = Timings.bind(build);
         try {
             if (!enabled) {
                 logger.info("Sealights CLI step is disabled.");
                 return true;
             }
 
+            if (runInBackground && canRunInBackground()) {
+                submitToBackground(build, launcher, listener, logger);
+                return true;
+            }
+
+            String buildId = build.getExternalizableId();
+            if (PendingStepsRegistry.getInstance().hasPendingSteps(buildId)) {
+                // Keeps the order of the steps, i.e 'end' must not run before a previous 'uploadReports' ended
+                logger.info("Waiting for the SeaLights steps that run in the background.");
+                PendingStepsRegistry.getInstance().awaitPendingSteps(buildId);
+            }
+
             CLIHandler cliHandler = new CLIHandler(logger);
             cliRunner = createCLIRunner(commandMode);
 
             isStepSuccessful = cliRunner.perform(build, launcher, listener, commandMode, cliHandler, logger);
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error occurred while performing 'Sealights CLI Build Step' Skipping sealights integration. " +
              "Error: ", e);
             enabled = false;
+        } finally {
+            Timings.restore(previousTimings);
         }
 
         if (failBuildIfStepFail) {
@@ -160,6 +198,44 @@ public class SealightsCLIBuildStep extends Builder {
         return true;
     }
 
+    private boolean canRunInBackground() {
+        // These commands create the build session id that the following steps of the build rely on
+        CommandModes mode = commandMode.getCurrentMode();
+        return !CommandModes.Config.equals(mode) && !CommandModes.PrConfig.equals(mode);
+    }
+
+    private void submitToBackground(final AbstractBuild<?, ?> build, final Launcher launcher,
+                                    final BuildListener listener, final Logger logger) {
+        final CLIRunner backgroundCliRunner = createCLIRunner(commandMode);
+        cliRunner = backgroundCliRunner;
+        final TimingsAction timingsAction = Timings.current();
+        Callable<Boolean> step = new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                TimingsAction previousTimings = Timings.bind(timingsAction);
+                try {
+                    return backgroundCliRunner.perform(build, launcher, listener, commandMode, new CLIHandler(logger), logger);
+                } finally {
+                    Timings.restore(previousTimings);
+                }
+            }
+        };
+        PendingStepsRegistry.getInstance().submit(
+                build.getExternalizableId(), commandMode.getCurrentMode().getName(), failBuildIfStepFail, step);
+        tryAddPendingStepsPublisher(build, logger);
+        logger.info("The step runs in the background. Its result is checked by the 'SeaLights - Wait for Background Steps' post-build action.");
+    }
+
+    private void tryAddPendingStepsPublisher(AbstractBuild<?, ?> build, Logger logger) {
+        DescribableList publishersList = build.getProject().getPublishersList();
+        if (publishersList.get(PendingStepsPublisher.class) != null) {
+            return;
+        }
+
+        publishersList.add(new PendingStepsPublisher());
+        logger.info("Added the 'SeaLights - Wait for Background Steps' post-build action to the job.");
+    }
+
     @Override
     public DescriptorImpl getDescriptor() {
         return (DescriptorImpl) super.getDescriptor();
@@ -0,0 +1,84 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.async;
+
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.BuildStepMonitor;
+import hudson.tasks.Publisher;
+import hudson.tasks.Recorder;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import java.util.List;
+
+/**
+ * The join point of the SeaLights CLI steps that run in the background.
+ * Waits for all of them and fails the build if a step that has 'failBuildIfStepFail' failed.
+ * This is a recorder (and not a notifier that runs after the build was finalized), since it may change
+ * the build result, and notifiers such as the {@link io.sealights.plugins.sealightsjenkins.buildsteps.cli.BuildStatusNotifier}
+ * should see the final result.
+ */
+public class PendingStepsPublisher extends Recorder {
+
+    @DataBoundConstructor
+    public PendingStepsPublisher() {
+    }
+
+    @Override
+    public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+            throws InterruptedException {
+        Logger logger = new Logger(listener.getLogger(), "SeaLights Background Steps");
+        String buildId = build.getExternalizableId();
+        if (!PendingStepsRegistry.getInstance().hasPendingSteps(buildId)) {
+            return true;
+        }
+
+        logger.info("Waiting for the SeaLights steps that run in the background.");
+        List<PendingStepsRegistry.PendingStep> steps = PendingStepsRegistry.getInstance().collect(buildId);
+
+        boolean shouldFailBuild = false;
+        for (PendingStepsRegistry.PendingStep step : steps) {
+            if (step.isSuccess()) {
+                logger.info("Step '" + step.getName() + "' succeeded.");
+                continue;
+            }
+
+            Throwable error = step.getError();
+            if (error != null) {
+                logger.error("Step '" + step.getName() + "' failed. Error: ", error);
+            } else {
+                logger.error("Step '" + step.getName() + "' failed.");
+            }
+            shouldFailBuild |= step.isFailBuildIfStepFail();
+        }
+
+        if (shouldFailBuild) {
+            build.setResult(Result.FAILURE);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public BuildStepMonitor getRequiredMonitorService() {
+        return BuildStepMonitor.NONE;
+    }
+
+    @Extension
+    public static class DescriptorImpl extends BuildStepDescriptor<Publisher> {
+
+        @Override
+        public String getDisplayName() {
+            return "SeaLights - Wait for Background Steps";
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+    }
+}
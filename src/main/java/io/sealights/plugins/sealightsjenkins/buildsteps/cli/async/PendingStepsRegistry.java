@@ -0,0 +1,194 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.async;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps the SeaLights steps that run in the background, per build.
+ * The steps of a build run one after the other, in the order they were submitted, so a step never runs
+ * before the steps that preceded it in the build (i.e, 'end' never runs before 'uploadReports').
+ * The results are collected by the {@link PendingStepsPublisher}.
+ */
+public class PendingStepsRegistry {
+
+    private static final PendingStepsRegistry INSTANCE = new PendingStepsRegistry();
+
+    private final Map<String, BuildPendingSteps> pendingStepsByBuild = new HashMap<>();
+
+    public static PendingStepsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void submit(String buildId, String stepName, boolean failBuildIfStepFail, Callable<Boolean> step) {
+        BuildPendingSteps buildPendingSteps = pendingStepsByBuild.get(buildId);
+        if (buildPendingSteps == null) {
+            buildPendingSteps = new BuildPendingSteps(buildId);
+            pendingStepsByBuild.put(buildId, buildPendingSteps);
+        }
+        buildPendingSteps.submit(stepName, failBuildIfStepFail, step);
+    }
+
+    public synchronized boolean hasPendingSteps(String buildId) {
+        return pendingStepsByBuild.containsKey(buildId);
+    }
+
+    /**
+     * Waits until all the steps that were submitted for the build ended. Their results are kept for {@link #collect}.
+     */
+    public void awaitPendingSteps(String buildId) throws InterruptedException {
+        BuildPendingSteps buildPendingSteps;
+        synchronized (this) {
+            buildPendingSteps = pendingStepsByBuild.get(buildId);
+        }
+        if (buildPendingSteps != null) {
+            buildPendingSteps.await();
+        }
+    }
+
+    /**
+     * Waits for all the steps of the build and returns them. The build is no longer tracked afterwards.
+     */
+    public List<PendingStep> collect(String buildId) throws InterruptedException {
+        BuildPendingSteps buildPendingSteps;
+        synchronized (this) {
+            buildPendingSteps = pendingStepsByBuild.get(buildId);
+        }
+        if (buildPendingSteps == null) {
+            return new ArrayList<>();
+        }
+
+        try {
+            buildPendingSteps.await();
+        } catch (InterruptedException e) {
+            cancel(buildId);
+            throw e;
+        }
+        synchronized (this) {
+            pendingStepsByBuild.remove(buildId);
+        }
+        buildPendingSteps.shutdown();
+        return buildPendingSteps.getSteps();
+    }
+
+    /**
+     * Stops the steps of the build that didn't end yet (i.e, when the build ended without collecting them).
+     */
+    public void cancel(String buildId) {
+        BuildPendingSteps buildPendingSteps;
+        synchronized (this) {
+            buildPendingSteps = pendingStepsByBuild.remove(buildId);
+        }
+        if (buildPendingSteps != null) {
+            buildPendingSteps.cancel();
+        }
+    }
+
+    /**
+     * A step that runs in the background and its result.
+     */
+    public static class PendingStep {
+        private final String name;
+        private final boolean failBuildIfStepFail;
+        private final Future<Boolean> future;
+
+        PendingStep(String name, boolean failBuildIfStepFail, Future<Boolean> future) {
+            this.name = name;
+            this.failBuildIfStepFail = failBuildIfStepFail;
+            this.future = future;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isFailBuildIfStepFail() {
+            return failBuildIfStepFail;
+        }
+
+        /**
+         * Should be called only after the step ended. A step that threw an exception is considered failed.
+         */
+        public boolean isSuccess() {
+            if (!future.isDone() || future.isCancelled()) {
+                return false;
+            }
+            try {
+                return Boolean.TRUE.equals(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                return false;
+            }
+        }
+
+        public Throwable getError() {
+            if (!future.isDone() || future.isCancelled()) {
+                return null;
+            }
+            try {
+                future.get();
+                return null;
+            } catch (ExecutionException e) {
+                return e.getCause();
+            } catch (InterruptedException e) {
+                return e;
+            }
+        }
+    }
+
+    private static class BuildPendingSteps {
+        private final ExecutorService executor;
+        private final List<PendingStep> steps = new ArrayList<>();
+
+        BuildPendingSteps(final String buildId) {
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "SeaLights background steps - " + buildId);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        synchronized void submit(String stepName, boolean failBuildIfStepFail, Callable<Boolean> step) {
+            steps.add(new PendingStep(stepName, failBuildIfStepFail, executor.submit(step)));
+        }
+
+        void await() throws InterruptedException {
+            // The executor runs the steps in order, so once this marker runs, all the previous steps ended
+            Future<?> marker;
+            synchronized (this) {
+                marker = executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+            }
+            try {
+                marker.get();
+            } catch (ExecutionException e) {
+                // The marker does nothing, it can't fail
+            }
+        }
+
+        synchronized List<PendingStep> getSteps() {
+            return new ArrayList<>(steps);
+        }
+
+        void shutdown() {
+            executor.shutdown();
+        }
+
+        void cancel() {
+            // Interrupting the running step stops its command (see CommandWatchdog)
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.async;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+/**
+ * Stops the background steps of a build that completed without collecting them
+ * (i.e, the {@link PendingStepsPublisher} was removed from the job), so they don't outlive the build.
+ */
+@Extension
+public class PendingStepsRunListener extends RunListener<Run> {
+
+    @Override
+    public void onCompleted(Run run, TaskListener listener) {
+        String buildId = run.getExternalizableId();
+        if (!PendingStepsRegistry.getInstance().hasPendingSteps(buildId)) {
+            return;
+        }
+
+        Logger logger = new Logger(listener.getLogger(), "SeaLights Background Steps");
+        logger.warning("The build completed before its SeaLights background steps were collected, stopping them.");
+        PendingStepsRegistry.getInstance().cancel(buildId);
+    }
+}
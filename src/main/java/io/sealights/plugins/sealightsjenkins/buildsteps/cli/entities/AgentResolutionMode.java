@@ -0,0 +1,36 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities;
+
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+
+/**
+ * Where the agent jar is resolved and downloaded (selected by the 'agentresolution' additional argument).
+ */
+public enum AgentResolutionMode {
+    MASTER("master"),
+    NODE("node");
+
+    private final String name;
+
+    AgentResolutionMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the mode matching the given name (case insensitive). Empty or unknown names fall back to MASTER.
+     */
+    public static AgentResolutionMode fromName(String name) {
+        if (StringUtils.isNullOrEmpty(name)) {
+            return MASTER;
+        }
+        for (AgentResolutionMode mode : values()) {
+            if (mode.getName().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        return MASTER;
+    }
+}
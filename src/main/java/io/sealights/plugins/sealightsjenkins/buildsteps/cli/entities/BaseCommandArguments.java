@@ -1,7 +1,9 @@
 package io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities;
 
 import hudson.EnvVars;
+import hudson.Launcher;
 import hudson.model.AbstractBuild;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon.AgentDaemonRegistry;
 import io.sealights.plugins.sealightsjenkins.entities.TokenData;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
@@ -24,12 +26,22 @@ public class BaseCommandArguments {
     private String proxy;
     private String labId;
     private String agentPath;
+    // Set when the agent was resolved on the node, in which case 'agentPath' is a path on the node
+    private boolean agentOnNode;
     private String javaPath;
+    private CommandExecutionMode executionMode = CommandExecutionMode.PROCESS;
+    private int daemonIdleTimeoutSecs = AgentDaemonRegistry.DEFAULT_IDLE_TIMEOUT_SECS;
+    private int commandTimeoutSecs;
+    private boolean fastStart;
+    private AgentResolutionMode agentResolution = AgentResolutionMode.MASTER;
+    private String agentsMirror;
+    private int httpTimeoutSecs;
 
     private String buildSessionId;
     private String buildSessionIdFile;
 
     private AbstractBuild<?, ?> build;
+    private Launcher launcher;
     private EnvVars envVars;
     private Logger logger;
 
@@ -105,6 +117,14 @@ public class BaseCommandArguments {
         this.agentPath = agentPath;
     }
 
+    public boolean isAgentOnNode() {
+        return agentOnNode;
+    }
+
+    public void setAgentOnNode(boolean agentOnNode) {
+        this.agentOnNode = agentOnNode;
+    }
+
     public String getJavaPath() {
         return javaPath;
     }
@@ -113,6 +133,62 @@ public class BaseCommandArguments {
         this.javaPath = javaPath;
     }
 
+    public CommandExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public void setExecutionMode(CommandExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public int getDaemonIdleTimeoutSecs() {
+        return daemonIdleTimeoutSecs;
+    }
+
+    public void setDaemonIdleTimeoutSecs(int daemonIdleTimeoutSecs) {
+        this.daemonIdleTimeoutSecs = daemonIdleTimeoutSecs;
+    }
+
+    public int getCommandTimeoutSecs() {
+        return commandTimeoutSecs;
+    }
+
+    public void setCommandTimeoutSecs(int commandTimeoutSecs) {
+        this.commandTimeoutSecs = commandTimeoutSecs;
+    }
+
+    public boolean isFastStart() {
+        return fastStart;
+    }
+
+    public void setFastStart(boolean fastStart) {
+        this.fastStart = fastStart;
+    }
+
+    public AgentResolutionMode getAgentResolution() {
+        return agentResolution;
+    }
+
+    public void setAgentResolution(AgentResolutionMode agentResolution) {
+        this.agentResolution = agentResolution;
+    }
+
+    public String getAgentsMirror() {
+        return agentsMirror;
+    }
+
+    public void setAgentsMirror(String agentsMirror) {
+        this.agentsMirror = agentsMirror;
+    }
+
+    public int getHttpTimeoutSecs() {
+        return httpTimeoutSecs;
+    }
+
+    public void setHttpTimeoutSecs(int httpTimeoutSecs) {
+        this.httpTimeoutSecs = httpTimeoutSecs;
+    }
+
     public String getToken() {
         return token;
     }
@@ -153,6 +229,14 @@ public class BaseCommandArguments {
         this.build = build;
     }
 
+    public Launcher getLauncher() {
+        return launcher;
+    }
+
+    public void setLauncher(Launcher launcher) {
+        this.launcher = launcher;
+    }
+
     public EnvVars getEnvVars() {
         return envVars;
     }
@@ -183,7 +267,15 @@ public class BaseCommandArguments {
                 ", proxy='" + proxy + '\'' +
                 ", labId='" + labId + '\'' +
                 ", agentPath='" + agentPath + '\'' +
+                ", agentOnNode=" + agentOnNode +
                 ", javaPath='" + javaPath + '\'' +
+                ", executionMode=" + executionMode +
+                ", daemonIdleTimeoutSecs=" + daemonIdleTimeoutSecs +
+                ", commandTimeoutSecs=" + commandTimeoutSecs +
+                ", fastStart=" + fastStart +
+                ", agentResolution=" + agentResolution +
+                ", agentsMirror='" + agentsMirror + '\'' +
+                ", httpTimeoutSecs=" + httpTimeoutSecs +
                 ", buildSessionId='" + buildSessionId + '\'' +
                 ", buildSessionIdFile='" + buildSessionIdFile + '\'' +
                 '}';
@@ -0,0 +1,56 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities;
+
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+
+/**
+ * The ways a SeaLights agent command can be executed (selected by the 'executionmode' additional argument).
+ */
+public enum CommandExecutionMode {
+    PROCESS("process") {
+        @Override public String getDisplayName() {
+            return "Run each command in a new java process (default)";
+        }
+    },
+    IN_PROCESS("inprocess") {
+        @Override public String getDisplayName() {
+            return "Run the command inside the Jenkins master JVM, using a cached class loader";
+        }
+    },
+    DAEMON("daemon") {
+        @Override public String getDisplayName() {
+            return "Run the command in a long-lived agent JVM that is reused between commands";
+        }
+    },
+    NODE("node") {
+        @Override public String getDisplayName() {
+            return "Run the command through the build's launcher, on the node that owns the workspace";
+        }
+    };
+
+    private final String name;
+
+    CommandExecutionMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public abstract String getDisplayName();
+
+    /**
+     * Returns the mode matching the given name (case insensitive). Empty or unknown names fall back to PROCESS.
+     */
+    public static CommandExecutionMode fromName(String name) {
+        if (StringUtils.isNullOrEmpty(name)) {
+            return PROCESS;
+        }
+        for (CommandExecutionMode mode : values()) {
+            if (mode.getName().equalsIgnoreCase(name.trim())) {
+                return mode;
+            }
+        }
+        return PROCESS;
+    }
+}
@@ -33,6 +33,11 @@ public enum CommandModes {
         @Override public String getDisplayName() {
             return "PrConfig - Create build session data for PR integration";
         }
+    },
+    Composite("composite") {
+        @Override public String getDisplayName() {
+            return "Steps 1-3 - Start, Upload Report and End Test Execution";
+        }
     };
 
     private final String name;
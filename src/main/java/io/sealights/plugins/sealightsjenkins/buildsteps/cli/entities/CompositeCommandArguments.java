@@ -0,0 +1,25 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities;
+
+import java.util.List;
+
+/**
+ * Arguments for running several commands (i.e, 'start', 'uploadReports' and 'end') as one batch.
+ * The commands are executed in the order of the list.
+ */
+public class CompositeCommandArguments extends AbstractCommandArgument {
+
+    private List<AbstractCommandArgument> commands;
+
+    public CompositeCommandArguments(List<AbstractCommandArgument> commands) {
+        this.commands = commands;
+    }
+
+    public List<AbstractCommandArgument> getCommands() {
+        return commands;
+    }
+
+    @Override
+    public CommandModes getMode() {
+        return CommandModes.Composite;
+    }
+}
@@ -1,13 +1,25 @@
 package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
 
 
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+import hudson.util.ProcessTree;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon.AgentDaemonRegistry;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess.InProcessAgentRunner;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node.NodeCommandRunner;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.NodeAgentCache;
+import io.sealights.plugins.sealightsjenkins.utils.BoundedOutputBuffer;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.PathUtils;
-import io.sealights.plugins.sealightsjenkins.utils.StreamUtils;
+import io.sealights.plugins.sealightsjenkins.utils.StreamPumper;
 import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 
-import java.io.InputStream;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -20,6 +32,12 @@ public abstract class AbstractCommandExecutor implements ICommandExecutor {
     protected Logger logger;
     protected BaseCommandArguments baseArgs;
     private Runtime runtime;
+    private InProcessAgentRunner inProcessAgentRunner = new InProcessAgentRunner();
+    private AgentDaemonRegistry agentDaemonRegistry = AgentDaemonRegistry.getInstance();
+    private NodeAgentCache nodeAgentCache = NodeAgentCache.getInstance();
+    private NodeCommandRunner nodeCommandRunner = new NodeCommandRunner();
+    private CommandExecutionScheduler commandExecutionScheduler = CommandExecutionScheduler.getInstance();
+    private FastStartProfile fastStartProfile;
 
     public AbstractCommandExecutor(Logger logger, BaseCommandArguments baseArgs) {
         this.logger = logger;
@@ -27,54 +45,210 @@ public abstract class AbstractCommandExecutor implements ICommandExecutor {
         this.runtime = Runtime.getRuntime();
     }
 
-    public boolean execute() {
+    public boolean execute() throws InterruptedException {
+        CommandExecutionScheduler.Permit permit = null;
         try {
-            String[] execCommand = createExecutionCommand();
-
-            // Run a java app in a separate system process
-            logger.info("About to execute command: " + Arrays.toString(prettifyToken(execCommand)));
-
-            Process process = runtime.exec(execCommand);
-            process.waitFor();
-
-            printStreams(process);
+            if (!isRunningOnNode()) {
+                // Commands that run on the master are throttled, so many concurrent builds don't exhaust its memory
+                try (Timings.Timer timer = Timings.start(Timings.COMMAND_QUEUE)) {
+                    permit = commandExecutionScheduler.acquire(getCommandName(), logger);
+                }
+            }
 
-            if (process.exitValue() == 0) {
-                return true;
+            // The agent is leased by the caller from the moment it is resolved (see CLIHandler)
+            try (Timings.Timer timer = Timings.start(Timings.COMMAND_EXECUTION)) {
+                return executeCommand();
             }
 
+        } catch (InterruptedException e) {
+            // The build was aborted, it should not continue as if the command just failed
+            logger.warning("Command '" + getCommandName() + "' was aborted.");
+            throw e;
         } catch (Exception e) {
             logger.error("Unable to perform '" + getCommandName() + "' command. Error: ", e);
+        } finally {
+            if (permit != null) {
+                permit.release();
+            }
         }
 
         return false;
     }
 
-    private void printStreams(Process process) {
-        // Receive the process output
-        InputStream inputStream = process.getInputStream();
-        InputStream errorStream = process.getErrorStream();
-        String outputInfo = StreamUtils.toString(inputStream);
-        String outputErrors = StreamUtils.toString(errorStream);
-        logger.info("Process ended with exit code: " + process.exitValue());
-        if (!StringUtils.isNullOrEmpty(outputInfo)) {
-            logger.info("Process output:");
-            logger.info(outputInfo);
+    private boolean executeCommand() throws Exception {
+        CommandExecutionMode executionMode = baseArgs.getExecutionMode();
+        if (executionMode != null && !CommandExecutionMode.PROCESS.equals(executionMode)) {
+            try {
+                return executeWithoutNewProcess(executionMode);
+            } catch (IllegalStateException e) {
+                logger.warning("Unable to run '" + getCommandName() + "' in '" + executionMode.getName()
+                        + "' mode, falling back to a new java process. Error: " + e.getMessage());
+            }
+        }
+
+        String[] execCommand = createExecutionCommand();
+
+        // Run a java app in a separate system process
+        logger.info("About to execute command: " + Arrays.toString(prettifyToken(execCommand)));
+
+        Process process = runtime.exec(execCommand);
+        boolean isSuccess = waitForProcess(process);
+        if (fastStartProfile != null) {
+            fastStartProfile.onProcessEnded(isSuccess);
+        }
+        return isSuccess;
+    }
+
+    private boolean executeWithoutNewProcess(CommandExecutionMode executionMode) throws Exception {
+        String[] agentArgs = createAgentArguments();
+        logger.info("About to execute command in '" + executionMode.getName() + "' mode: "
+                + Arrays.toString(prettifyToken(agentArgs)));
+
+        int exitCode;
+        if (CommandExecutionMode.NODE.equals(executionMode)) {
+            exitCode = executeOnNode(agentArgs);
+        } else if (CommandExecutionMode.DAEMON.equals(executionMode)) {
+            exitCode = agentDaemonRegistry.execute(resolvedJavaPath(), baseArgs.getAgentPath(), agentArgs,
+                    baseArgs.getDaemonIdleTimeoutSecs(), baseArgs.getCommandTimeoutSecs(), logger);
+        } else {
+            if (baseArgs.getCommandTimeoutSecs() > 0) {
+                throw new IllegalStateException("a command that runs in the Jenkins JVM can't be stopped on timeout");
+            }
+            exitCode = inProcessAgentRunner.run(baseArgs.getAgentPath(), agentArgs, logger);
         }
-        if (!StringUtils.isNullOrEmpty(outputErrors)) {
-            logger.info("Process errors output:");
-            logger.error(outputErrors);
+
+        logger.info("Command ended with exit code: " + exitCode);
+        return exitCode == 0;
+    }
+
+    private int executeOnNode(String[] agentArgs) throws IOException, InterruptedException {
+        if (!isRunningOnNode()) {
+            throw new IllegalStateException("The build's launcher or workspace is not available");
+        }
+
+        FilePath workspace = baseArgs.getBuild().getWorkspace();
+        String agentPathOnNode = resolveAgentOnNode(workspace);
+        return nodeCommandRunner.run(baseArgs.getLauncher(), workspace, baseArgs.getEnvVars(), baseArgs.getJavaPath(),
+                agentPathOnNode, agentArgs, baseArgs.getCommandTimeoutSecs(), logger);
+    }
+
+    /**
+     * Returns the path of the agent on the node that owns the workspace. An agent on the master is taken from the
+     * node's {@link NodeAgentCache}.
+     */
+    private String resolveAgentOnNode(FilePath workspace) throws IOException, InterruptedException {
+        String agentPath = baseArgs.getAgentPath();
+        File agentOnMaster = new File(agentPath);
+        if (!workspace.isRemote()) {
+            // The workspace is on the master, the jar can be used as is
+            return agentPath;
+        }
+        if (baseArgs.isAgentOnNode()) {
+            // Resolved into the node's cache, a jar with the same path on the master is not the same agent
+            return agentPath;
+        }
+        if (!agentOnMaster.isFile() && new FilePath(workspace.getChannel(), agentPath).exists()) {
+            // An 'agentpath' that points to a jar on the node
+            return agentPath;
+        }
+
+        AbstractBuild<?, ?> build = baseArgs.getBuild();
+        Node node = build.getBuiltOn();
+        FilePath nodeRoot = (node == null) ? null : node.getRootPath();
+        if (nodeRoot == null) {
+            // The node is not known (or offline), keep the cache next to the workspace
+            nodeRoot = workspace.getParent();
+        }
+        String nodeName = (node == null) ? workspace.getRemote() : node.getDisplayName();
+        return nodeAgentCache.copyToNode(logger, agentOnMaster, nodeRoot, nodeName, build.getExternalizableId());
+    }
+
+    /**
+     * Whether the command is launched on the node that owns the workspace (rather than on the master).
+     * In that case, files in the workspace can be used by the agent as is.
+     */
+    protected boolean isRunningOnNode() {
+        return CommandExecutionMode.NODE.equals(baseArgs.getExecutionMode())
+                && baseArgs.getLauncher() != null
+                && baseArgs.getBuild() != null
+                && baseArgs.getBuild().getWorkspace() != null;
+    }
+
+    private boolean waitForProcess(final Process process) throws InterruptedException, CommandTimeoutException {
+        // Both streams are drained while the process runs, otherwise a large output fills the pipe and blocks it
+        StreamPumper outputPumper = new StreamPumper(process.getInputStream(), logger, false, new BoundedOutputBuffer());
+        StreamPumper errorsPumper = new StreamPumper(process.getErrorStream(), logger, true, new BoundedOutputBuffer());
+        CommandWatchdog watchdog = CommandWatchdog.start(baseArgs.getCommandTimeoutSecs(), new CommandWatchdog.KillAction() {
+            @Override
+            public void kill() {
+                killProcessTree(process);
+            }
+        });
+        try {
+            outputPumper.start();
+            errorsPumper.start();
+
+            int exitCode;
+            try {
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+                killProcessTree(process);
+                throw e;
+            }
+            outputPumper.join();
+            errorsPumper.join();
+
+            if (watchdog.isTimedOut()) {
+                CommandWatchdog.logLastOutput(logger, outputPumper.getBuffer(), errorsPumper.getBuffer());
+                throw new CommandTimeoutException(getCommandName(), baseArgs.getCommandTimeoutSecs());
+            }
+
+            logger.info("Process ended with exit code: " + exitCode);
+            return exitCode == 0;
+        } finally {
+            watchdog.cancel();
         }
     }
 
+    /**
+     * Kills the agent process and any process it started, so nothing is left running on the master.
+     */
+    private void killProcessTree(Process process) {
+        try {
+            ProcessTree.OSProcess osProcess = ProcessTree.get().get(process);
+            if (osProcess != null) {
+                osProcess.killRecursively();
+                return;
+            }
+        } catch (Exception e) {
+            logger.warning("Unable to kill the processes started by the agent. Error: " + e.getMessage());
+        }
+        process.destroy();
+    }
 
     public String[] createExecutionCommand() {
         List<String> commands = new ArrayList<>();
 
         String javaPath = resolvedJavaPath();
         commands.add(javaPath);
+        if (baseArgs.isFastStart()) {
+            fastStartProfile = new FastStartProfile(javaPath, baseArgs.getAgentPath());
+            commands.addAll(fastStartProfile.getJvmOptions());
+        }
         commands.add("-jar");
         commands.add(baseArgs.getAgentPath());
+        commands.addAll(Arrays.asList(createAgentArguments()));
+
+        String[] commandsArray = new String[commands.size()];
+        commandsArray = commands.toArray(commandsArray);
+        return commandsArray;
+    }
+
+    /**
+     * The arguments passed to the agent itself (the command name and its arguments), without the java launcher part.
+     */
+    public String[] createAgentArguments() {
+        List<String> commands = new ArrayList<>();
         commands.add(getCommandName());
 
         addBaseArgumentsLine(commands);
@@ -128,6 +302,26 @@ public abstract class AbstractCommandExecutor implements ICommandExecutor {
     public void setRuntime(Runtime runtime) {
         this.runtime = runtime;
     }
+
+    public void setInProcessAgentRunner(InProcessAgentRunner inProcessAgentRunner) {
+        this.inProcessAgentRunner = inProcessAgentRunner;
+    }
+
+    public void setAgentDaemonRegistry(AgentDaemonRegistry agentDaemonRegistry) {
+        this.agentDaemonRegistry = agentDaemonRegistry;
+    }
+
+    public void setNodeAgentCache(NodeAgentCache nodeAgentCache) {
+        this.nodeAgentCache = nodeAgentCache;
+    }
+
+    public void setNodeCommandRunner(NodeCommandRunner nodeCommandRunner) {
+        this.nodeCommandRunner = nodeCommandRunner;
+    }
+
+    public void setCommandExecutionScheduler(CommandExecutionScheduler commandExecutionScheduler) {
+        this.commandExecutionScheduler = commandExecutionScheduler;
+    }
     public String[] prettifyToken(String[] commands){
         String[] commandsClone = commands.clone();
           for (int i =0;i<=commandsClone.length;i++){
@@ -0,0 +1,192 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Bounds the number of agent commands that run on the master at the same time.
+ * There is a limit for all the commands together, and optionally a limit per command (i.e, 'uploadReports').
+ * Waiting commands are served in FIFO order, so a job that was queued first is not starved by later jobs.
+ * A limit of 0 (or less) means 'unlimited'.
+ * <p>
+ * Every running command holds a permit, even when unlimited, so changing the limits while commands run resizes
+ * the semaphores in place and the new limits account for the commands that are already running.
+ */
+public class CommandExecutionScheduler {
+
+    private static final java.util.logging.Logger LOGGER =
+            java.util.logging.Logger.getLogger(CommandExecutionScheduler.class.getName());
+
+    private static final CommandExecutionScheduler INSTANCE = new CommandExecutionScheduler();
+    // 'Unlimited' is a number of permits no master ever reaches, so a limit can later be lowered from it
+    private static final int UNLIMITED_PERMITS = Integer.MAX_VALUE / 2;
+
+    private final Limit globalLimit = new Limit();
+    private final Map<String, Limit> commandLimits = new HashMap<>();
+
+    public static CommandExecutionScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param maxConcurrentCommands maximum number of commands that run together, 0 for unlimited.
+     * @param commandsLimits        comma separated limits per command, i.e 'uploadReports=4,start=10'.
+     */
+    public synchronized void configure(int maxConcurrentCommands, String commandsLimits) {
+        // The semaphores are never replaced: running commands release their permits to the same semaphores,
+        // so replacing them would allow the old and the new limit to run together
+        globalLimit.resize(maxConcurrentCommands);
+
+        Map<String, Integer> limits = parseLimits(commandsLimits);
+        for (Map.Entry<String, Limit> commandLimit : commandLimits.entrySet()) {
+            if (!limits.containsKey(commandLimit.getKey())) {
+                commandLimit.getValue().resize(0);
+            }
+        }
+        for (Map.Entry<String, Integer> limit : limits.entrySet()) {
+            limitOf(limit.getKey()).resize(limit.getValue());
+        }
+    }
+
+    /**
+     * Blocks until the command is allowed to run. The returned permit must be released when the command ends.
+     */
+    public Permit acquire(String commandName, Logger logger) throws InterruptedException {
+        Semaphore commandSemaphore;
+        Semaphore global;
+        synchronized (this) {
+            commandSemaphore = limitOf(normalize(commandName)).semaphore;
+            global = globalLimit.semaphore;
+        }
+
+        long startTime = System.currentTimeMillis();
+        boolean waited = false;
+        Permit permit = new Permit();
+        try {
+            // The command limit is taken first, so a command that waits for it doesn't hold a global slot
+            waited |= acquire(commandSemaphore, commandName, logger);
+            permit.commandSemaphore = commandSemaphore;
+            waited |= acquire(global, commandName, logger);
+            permit.globalSemaphore = global;
+        } catch (InterruptedException e) {
+            permit.release();
+            throw e;
+        }
+
+        if (waited) {
+            logger.info("Command '" + commandName + "' waited " + (System.currentTimeMillis() - startTime)
+                    + " ms in the queue.");
+        }
+        return permit;
+    }
+
+    private boolean acquire(Semaphore semaphore, String commandName, Logger logger) throws InterruptedException {
+        // 'tryAcquire' with a timeout honors the fairness setting, unlike the one without a timeout
+        if (semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        logger.info("The maximum number of concurrent SeaLights commands was reached. Command '" + commandName
+                + "' is queued (" + semaphore.getQueueLength() + " commands are already waiting).");
+        semaphore.acquire();
+        return true;
+    }
+
+    private Limit limitOf(String normalizedCommandName) {
+        Limit limit = commandLimits.get(normalizedCommandName);
+        if (limit == null) {
+            limit = new Limit();
+            commandLimits.put(normalizedCommandName, limit);
+        }
+        return limit;
+    }
+
+    static Map<String, Integer> parseLimits(String commandsLimits) {
+        Map<String, Integer> limits = new HashMap<>();
+        if (StringUtils.isNullOrEmpty(commandsLimits)) {
+            return limits;
+        }
+
+        for (String entry : commandsLimits.split("[,;\\n]")) {
+            String[] keyValue = entry.split("=");
+            if (keyValue.length != 2 || StringUtils.isNullOrEmpty(keyValue[0].trim())) {
+                if (!StringUtils.isNullOrEmpty(entry.trim())) {
+                    LOGGER.log(Level.WARNING, "Ignoring invalid commands limit: '" + entry.trim() + "'");
+                }
+                continue;
+            }
+            try {
+                limits.put(normalize(keyValue[0]), Integer.parseInt(keyValue[1].trim()));
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Ignoring invalid commands limit: '" + entry.trim() + "'");
+            }
+        }
+        return limits;
+    }
+
+    private static String normalize(String commandName) {
+        if (commandName == null) {
+            return null;
+        }
+        // Config commands are named '-config' and '-prConfig' on the command line
+        String name = commandName.trim().toLowerCase();
+        return name.startsWith("-") ? name.substring(1) : name;
+    }
+
+    /**
+     * A fair semaphore whose number of permits can be changed while some of them are taken.
+     */
+    private static class Limit {
+        private final ResizableSemaphore semaphore = new ResizableSemaphore(UNLIMITED_PERMITS);
+        private int permits = UNLIMITED_PERMITS;
+
+        /**
+         * Growing releases the extra permits, shrinking withdraws them. Permits that are taken are withdrawn
+         * as they are released, so commands that are already running count against the new limit.
+         */
+        void resize(int limit) {
+            int newPermits = limit > 0 ? limit : UNLIMITED_PERMITS;
+            int delta = newPermits - permits;
+            if (delta > 0) {
+                semaphore.release(delta);
+            } else if (delta < 0) {
+                semaphore.reduce(-delta);
+            }
+            permits = newPermits;
+        }
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+
+    /**
+     * The slots held by a running command.
+     */
+    public static class Permit {
+        private Semaphore commandSemaphore;
+        private Semaphore globalSemaphore;
+
+        public synchronized void release() {
+            if (globalSemaphore != null) {
+                globalSemaphore.release();
+                globalSemaphore = null;
+            }
+            if (commandSemaphore != null) {
+                commandSemaphore.release();
+                commandSemaphore = null;
+            }
+        }
+    }
+}
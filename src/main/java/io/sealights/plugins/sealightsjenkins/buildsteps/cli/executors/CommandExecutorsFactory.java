@@ -28,6 +28,8 @@ public class CommandExecutorsFactory {
                 executor = new ConfigCommandExecutor(logger, baseArgs, (ConfigCommandArguments) commandArgument);
             } else if (CommandModes.PrConfig.equals(commandArgument.getMode())) {
                 executor = new PrConfigCommandExecutor(logger, baseArgs, (PrConfigCommandArguments) commandArgument);
+            } else if (CommandModes.Composite.equals(commandArgument.getMode())) {
+                executor = new CompositeCommandExecutor(logger, baseArgs, (CompositeCommandArguments) commandArgument, this);
             } else {
                 logger.error("Current mode is invalid! Cannot create executor.");
                 executor = new NullCommandExecutor();
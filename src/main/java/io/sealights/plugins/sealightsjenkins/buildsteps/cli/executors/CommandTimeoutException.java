@@ -0,0 +1,13 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a command was stopped since it didn't end within its timeout ('commandtimeout').
+ */
+public class CommandTimeoutException extends IOException {
+
+    public CommandTimeoutException(String commandName, int timeoutSecs) {
+        super("Command '" + commandName + "' didn't end within " + timeoutSecs + " seconds and was stopped.");
+    }
+}
@@ -0,0 +1,124 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import io.sealights.plugins.sealightsjenkins.utils.BoundedOutputBuffer;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches a running command and stops it when it exceeds its timeout, or when the build that runs it is aborted.
+ * Aborting a build interrupts its thread, but a thread that is blocked on a stream read never sees it,
+ * so the watchdog polls the thread's interrupt flag and stops the command on its behalf.
+ */
+public class CommandWatchdog {
+
+    private static final java.util.logging.Logger LOGGER =
+            java.util.logging.Logger.getLogger(CommandWatchdog.class.getName());
+
+    private static final long POLL_INTERVAL_MILLIS = 500;
+    private static final ScheduledExecutorService SCHEDULER = createScheduler();
+
+    /**
+     * Stops the command. Called at most once, from the watchdog thread.
+     */
+    public interface KillAction {
+        void kill() throws Exception;
+    }
+
+    private final Thread owner;
+    private final long deadline;
+    private final KillAction killAction;
+    private volatile boolean timedOut;
+    private volatile boolean aborted;
+    private volatile boolean killed;
+    private ScheduledFuture<?> pollingTask;
+
+    private CommandWatchdog(Thread owner, long deadline, KillAction killAction) {
+        this.owner = owner;
+        this.deadline = deadline;
+        this.killAction = killAction;
+    }
+
+    /**
+     * Starts watching the command that runs on the current thread.
+     *
+     * @param timeoutSecs the command's timeout, 0 (or less) for no timeout.
+     */
+    public static CommandWatchdog start(int timeoutSecs, KillAction killAction) {
+        long deadline = timeoutSecs > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSecs) : 0;
+        final CommandWatchdog watchdog = new CommandWatchdog(Thread.currentThread(), deadline, killAction);
+        watchdog.pollingTask = SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                watchdog.poll();
+            }
+        }, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        return watchdog;
+    }
+
+    /**
+     * Stops watching. Must be called once the command ended.
+     */
+    public void cancel() {
+        pollingTask.cancel(false);
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Writes the last lines of the command's output to the log, to help finding where it got stuck.
+     */
+    public static void logLastOutput(Logger logger, BoundedOutputBuffer outputBuffer, BoundedOutputBuffer errorsBuffer) {
+        logger.error("Last output lines of the command:");
+        for (String line : outputBuffer.getLastLines()) {
+            logger.error("  " + line);
+        }
+        logger.error("Last error lines of the command:");
+        for (String line : errorsBuffer.getLastLines()) {
+            logger.error("  " + line);
+        }
+    }
+
+    void poll() {
+        if (killed) {
+            return;
+        }
+        if (owner.isInterrupted()) {
+            aborted = true;
+        } else if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+            timedOut = true;
+        } else {
+            return;
+        }
+
+        killed = true;
+        pollingTask.cancel(false);
+        try {
+            killAction.kill();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to stop a SeaLights command", e);
+        }
+    }
+
+    private static ScheduledExecutorService createScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SeaLights command watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AbstractCommandArgument;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CompositeCommandArguments;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.util.List;
+
+/**
+ * Executor for a batch of commands. The base arguments and the agent are resolved once (by the caller)
+ * and shared by all the sub-commands. Each sub-command gets its own log section and status,
+ * and the batch succeeds only if all of them succeeded. Like separate steps that fail the build, the batch stops
+ * at the first sub-command that fails (reports are not uploaded and the session isn't ended after a failed start).
+ */
+public class CompositeCommandExecutor implements ICommandExecutor {
+
+    private Logger logger;
+    private BaseCommandArguments baseArgs;
+    private CompositeCommandArguments compositeCommandArguments;
+    private CommandExecutorsFactory commandExecutorsFactory;
+
+    public CompositeCommandExecutor(Logger logger, BaseCommandArguments baseArgs,
+                                    CompositeCommandArguments compositeCommandArguments,
+                                    CommandExecutorsFactory commandExecutorsFactory) {
+        this.logger = logger;
+        this.baseArgs = baseArgs;
+        this.compositeCommandArguments = compositeCommandArguments;
+        this.commandExecutorsFactory = commandExecutorsFactory;
+    }
+
+    @Override
+    public boolean execute() throws InterruptedException {
+        List<AbstractCommandArgument> commands = compositeCommandArguments.getCommands();
+
+        for (int i = 0; i < commands.size(); i++) {
+            AbstractCommandArgument command = commands.get(i);
+            String section = "[" + (i + 1) + "/" + commands.size() + "] '" + command.getMode().getName() + "'";
+            logger.info("---------- Sub-command " + section + " started ----------");
+
+            ICommandExecutor executor = commandExecutorsFactory.createExecutor(logger, baseArgs, command);
+            boolean isSuccess = executor.execute();
+
+            logger.info("---------- Sub-command " + section + " " + (isSuccess ? "succeeded" : "failed") + " ----------");
+            if (!isSuccess) {
+                logSkippedCommands(commands.subList(i + 1, commands.size()));
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void logSkippedCommands(List<AbstractCommandArgument> skippedCommands) {
+        for (AbstractCommandArgument command : skippedCommands) {
+            logger.warning("Sub-command '" + command.getMode().getName() + "' was skipped since a previous sub-command failed.");
+        }
+    }
+}
@@ -28,6 +28,7 @@ public class ConfigCommandExecutor extends AbstractCommandExecutor {
     protected String buildSessionIdFileOnMaster = null;
     private String buildSessionIdFileOnSlave = null;
     private boolean isSlaveMachine = false;
+    private boolean runsOnNode = false;
 
     private ConfigCommandArguments configCommandArguments;
     private JenkinsUtils jenkinsUtils = new JenkinsUtils();
@@ -41,21 +42,27 @@ public class ConfigCommandExecutor extends AbstractCommandExecutor {
     }
 
     @Override
-    public boolean execute() {
+    public boolean execute() throws InterruptedException {
 
         try {
             FilePath workspace = baseArgs.getBuild().getWorkspace();
-            this.isSlaveMachine = workspace.isRemote();
-            // Resolving on master, even when workspace is remote, since this jar is running on master
-            // After the execution, we will copy the file to the slave
-            resolveBuildSessionIdFileOnMaster(workspace);
+            this.runsOnNode = isRunningOnNode();
+            this.isSlaveMachine = workspace.isRemote() && !runsOnNode;
+            if (runsOnNode) {
+                // The agent runs on the node that owns the workspace, so it creates the file there directly
+                this.buildSessionIdFileOnSlave = PathUtils.join(workspace.getRemote(), BUILD_SESSION_ID_FILE_NAME);
+            } else {
+                // Resolving on master, even when workspace is remote, since this jar is running on master
+                // After the execution, we will copy the file to the slave
+                resolveBuildSessionIdFileOnMaster(workspace);
+            }
 
             boolean isSuccess = super.execute();
 
             if (isSuccess) {
                 onSuccess(baseArgs.getBuild(), workspace, logger);
                 String buildSessionIdFinalPath = this.buildSessionIdFileOnMaster;
-                if (this.isSlaveMachine) {
+                if (this.isSlaveMachine || this.runsOnNode) {
                     buildSessionIdFinalPath = this.buildSessionIdFileOnSlave;
                 }
                 logger.info("File with SeaLights Build Session Id was successfully created at '" + buildSessionIdFinalPath + "'");
@@ -63,6 +70,8 @@ public class ConfigCommandExecutor extends AbstractCommandExecutor {
             } else {
                 logger.error("Failed to create SeaLights Build Session Id");
             }
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to create SeaLights Build Session Id due to an error. Error:", e);
         }
@@ -101,6 +110,13 @@ public class ConfigCommandExecutor extends AbstractCommandExecutor {
     private void onSuccess(
             AbstractBuild<?, ?> build, FilePath workspace, Logger logger) throws IOException, InterruptedException {
 
+        if (runsOnNode) {
+            FilePath buildSessionIdFile = new FilePath(workspace.getChannel(), this.buildSessionIdFileOnSlave);
+            String buildSessionId = buildSessionIdFile.readToString().trim();
+            injectBuildSessionIdEnvVars(build, buildSessionId, this.buildSessionIdFileOnSlave, logger);
+            return;
+        }
+
         // get the buildSessionId from the created file
         ArgumentFileResolver argumentFileResolver = new ArgumentFileResolver();
         String buildSessionId = argumentFileResolver.resolve(logger, null/*force get from file*/, buildSessionIdFileOnMaster);
@@ -150,7 +166,8 @@ public class ConfigCommandExecutor extends AbstractCommandExecutor {
         }else {
             addPackagesIncluded(commandsList);
         }
-        addArgumentKeyVal("buildsessionidfile", this.buildSessionIdFileOnMaster, commandsList);
+        String buildSessionIdFile = runsOnNode ? this.buildSessionIdFileOnSlave : this.buildSessionIdFileOnMaster;
+        addArgumentKeyVal("buildsessionidfile", buildSessionIdFile, commandsList);
         commandsList.add("-enableNoneZeroErrorCode");
     }
 
@@ -0,0 +1,126 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * JVM options that shorten the startup of a spawned agent JVM.
+ * On the first run of an agent version, the JVM dumps a class data sharing (CDS) archive of the classes
+ * it loaded when it exits. The archive is kept next to the agent jar, and the following runs map it
+ * instead of loading and verifying the same classes again.
+ * Dynamic CDS archives require java 13 or later, older JVMs ignore these options and only get the JIT flags.
+ */
+public class FastStartProfile {
+
+    private static final java.util.logging.Logger LOGGER =
+            java.util.logging.Logger.getLogger(FastStartProfile.class.getName());
+
+    public static final String ARCHIVE_EXTENSION = ".jsa";
+
+    // Java paths that ran a generation but didn't produce an archive (i.e, older than java 13)
+    private static final Set<String> JAVAS_WITHOUT_DYNAMIC_ARCHIVE =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final String javaPath;
+    private final File archiveFile;
+    private File generatedArchiveFile;
+
+    public FastStartProfile(String javaPath, String agentPath) {
+        this.javaPath = javaPath;
+        File agentJar = new File(agentPath);
+        this.archiveFile = new File(agentJar.getParentFile(), getArchiveName(agentJar, javaPath));
+    }
+
+    public List<String> getJvmOptions() {
+        List<String> options = new ArrayList<>();
+        // The CDS options don't exist in older JVMs
+        options.add("-XX:+IgnoreUnrecognizedVMOptions");
+        // The agent runs for seconds, it doesn't benefit from the optimizing compiler or a parallel GC
+        options.add("-XX:TieredStopAtLevel=1");
+        options.add("-XX:+UseSerialGC");
+
+        if (archiveFile.isFile()) {
+            options.add("-XX:SharedArchiveFile=" + archiveFile.getAbsolutePath());
+            options.add("-Xshare:auto");
+        } else if (canGenerateArchive()) {
+            // Concurrent first runs each dump to their own file, the first one to end is kept
+            generatedArchiveFile = new File(archiveFile.getParentFile(),
+                    archiveFile.getName() + "." + UUID.randomUUID() + ".tmp");
+            options.add("-XX:ArchiveClassesAtExit=" + generatedArchiveFile.getAbsolutePath());
+        }
+        return options;
+    }
+
+    /**
+     * Must be called once the JVM ended, to publish the archive it generated (if any).
+     */
+    public void onProcessEnded(boolean isSuccess) {
+        if (generatedArchiveFile == null) {
+            return;
+        }
+
+        File generated = generatedArchiveFile;
+        generatedArchiveFile = null;
+        if (!generated.isFile()) {
+            if (isSuccess) {
+                JAVAS_WITHOUT_DYNAMIC_ARCHIVE.add(javaPath);
+            }
+            return;
+        }
+
+        if (!isSuccess || archiveFile.exists() || !generated.renameTo(archiveFile)) {
+            if (!generated.delete()) {
+                generated.deleteOnExit();
+            }
+            return;
+        }
+        LOGGER.log(Level.FINE, "Created a class data sharing archive: '" + archiveFile.getAbsolutePath() + "'");
+    }
+
+    /**
+     * Returns the archives that were created for the agent jar (by any JVM).
+     */
+    public static File[] findArchives(File agentJar) {
+        final String agentFileName = agentJar.getName();
+        File[] archives = agentJar.getAbsoluteFile().getParentFile().listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return isArchiveName(agentFileName, name);
+            }
+        });
+        return archives == null ? new File[0] : archives;
+    }
+
+    /**
+     * Whether the file is an archive (or an archive being generated) of the agent jar.
+     */
+    public static boolean isArchiveName(String agentFileName, String fileName) {
+        return fileName.startsWith(agentFileName + ".") && (fileName.endsWith(ARCHIVE_EXTENSION) || fileName.endsWith(".tmp"));
+    }
+
+    private boolean canGenerateArchive() {
+        File folder = archiveFile.getParentFile();
+        return !JAVAS_WITHOUT_DYNAMIC_ARCHIVE.contains(javaPath) && folder != null && folder.canWrite();
+    }
+
+    private static String getArchiveName(File agentJar, String javaPath) {
+        // An archive can only be used by the JVM that created it
+        return agentJar.getName() + "." + Integer.toHexString(canonicalPath(javaPath).hashCode()) + ARCHIVE_EXTENSION;
+    }
+
+    private static String canonicalPath(String path) {
+        try {
+            return new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            return path;
+        }
+    }
+}
@@ -5,5 +5,5 @@ package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
  */
 public interface ICommandExecutor {
 
-    boolean execute();
+    boolean execute() throws InterruptedException;
 }
@@ -1,6 +1,7 @@
 package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
 
 import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
 import io.sealights.plugins.sealightsjenkins.CleanupManager;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.UploadReportsCommandArguments;
@@ -28,17 +29,19 @@ public class UploadReportsCommandExecutor extends AbstractCommandExecutor {
     }
 
     @Override
-    public boolean execute() {
+    public boolean execute() throws InterruptedException {
 
         try {
             this.reportFiles = resolveFilesList(uploadReportsCommandArguments.getReportFiles());
             this.reportFilesFolders = resolveFilesList(uploadReportsCommandArguments.getReportsFolders());
 
             FilePath workspace = baseArgs.getBuild().getWorkspace();
-            boolean isSlaveMachine = workspace.isRemote();
+            // When the agent runs on the node itself, the reports are uploaded from there and never touch the master
+            boolean isSlaveMachine = workspace.isRemote() && !isRunningOnNode();
             if (isSlaveMachine) {
-                // The execution is performed on the master..
-                copyFilesToMaster();
+                // The execution is performed on the master. The workspace's channel is used rather than the
+                // current computer, which is unknown when the step runs in the background
+                copyFilesToMaster(workspace.getChannel());
             }
 
             boolean isSuccess = super.execute();
@@ -51,6 +54,8 @@ public class UploadReportsCommandExecutor extends AbstractCommandExecutor {
             } else {
                 logger.error("Failed to upload report");
             }
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to upload report due to an error. Error:", e);
         }
@@ -74,13 +79,13 @@ public class UploadReportsCommandExecutor extends AbstractCommandExecutor {
     /*
     * For when working on slave
     * */
-    private void copyFilesToMaster() throws IOException, InterruptedException {
+    private void copyFilesToMaster(VirtualChannel channel) throws IOException, InterruptedException {
         String tempFolder = System.getProperty("java.io.tmpdir");
-        copyReportFilesToMaster(tempFolder);
-        copyReportFoldersToMaster(tempFolder);
+        copyReportFilesToMaster(tempFolder, channel);
+        copyReportFoldersToMaster(tempFolder, channel);
     }
 
-    private void copyReportFoldersToMaster(String tempFolder) throws IOException, InterruptedException {
+    private void copyReportFoldersToMaster(String tempFolder, VirtualChannel channel) throws IOException, InterruptedException {
         List<String> reportFilesFoldersOnMaster = new ArrayList<>();
         for (String folder : this.reportFilesFolders) {
             String folderNameOnMaster = PathUtils.join(tempFolder, "reportsfolder-" + System.nanoTime());
@@ -89,12 +94,12 @@ public class UploadReportsCommandExecutor extends AbstractCommandExecutor {
             // copy to master from slave
             boolean isFolder = true;
             CustomFile fpOnSlave =  new CustomFile(logger, cleanupManager, folder, isFolder);
-            fpOnSlave.copyToMaster(folderNameOnMaster);
+            fpOnSlave.copyToMaster(folderNameOnMaster, channel);
         }
         this.reportFilesFolders = reportFilesFoldersOnMaster;
     }
 
-    private void copyReportFilesToMaster(String tempFolder) throws IOException, InterruptedException {
+    private void copyReportFilesToMaster(String tempFolder, VirtualChannel channel) throws IOException, InterruptedException {
         List<String> reportFilesOnMaster = new ArrayList<>();
         for (String report : this.reportFiles) {
             String fileNameOnMaster = PathUtils.join(tempFolder, "reportfile-" + System.nanoTime());
@@ -102,7 +107,7 @@ public class UploadReportsCommandExecutor extends AbstractCommandExecutor {
 
             // copy to master from slave
             CustomFile fpOnSlave =  new CustomFile(logger, cleanupManager, report);
-            fpOnSlave.copyToMaster(fileNameOnMaster);
+            fpOnSlave.copyToMaster(fileNameOnMaster, channel);
         }
         this.reportFiles = reportFilesOnMaster;
     }
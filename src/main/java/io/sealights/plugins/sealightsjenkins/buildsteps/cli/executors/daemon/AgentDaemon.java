@@ -0,0 +1,196 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon;
+
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.CommandTimeoutException;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.CommandWatchdog;
+import io.sealights.plugins.sealightsjenkins.utils.BoundedOutputBuffer;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.LoggerOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * The master side of a single agent daemon process (see {@link AgentDaemonMain}).
+ * A daemon runs one command at a time. Each command is sent with its own request id and only output frames tagged
+ * with that id reach the build log, stray output of threads left behind by earlier commands is dropped.
+ */
+public class AgentDaemon {
+
+    private static final java.util.logging.Logger LOGGER = java.util.logging.Logger.getLogger(AgentDaemon.class.getName());
+
+    private final Process process;
+    private final DataOutputStream requests;
+    private final DataInputStream responses;
+    private volatile boolean broken;
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile long idleTimeoutMillis;
+    private int lastRequestId = AgentDaemonMain.NO_REQUEST;
+
+    AgentDaemon(Process process) {
+        this.process = process;
+        this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    /**
+     * Starts a daemon and waits for its handshake.
+     * Throws {@link DaemonUnsupportedException} when the daemon can't trap 'System.exit' in the target JVM.
+     */
+    static AgentDaemon start(List<String> command) throws IOException {
+        return connect(new ProcessBuilder(command).start());
+    }
+
+    /**
+     * Waits for the handshake of an already started daemon process.
+     */
+    static AgentDaemon connect(Process process) throws IOException {
+        AgentDaemon daemon = new AgentDaemon(process);
+        daemon.drainDiagnostics(process.getErrorStream());
+        try {
+            daemon.awaitReady();
+        } catch (IOException e) {
+            daemon.stop();
+            throw e;
+        }
+        return daemon;
+    }
+
+    /**
+     * Sends a command to the daemon, forwards its output to the logger and returns its exit code.
+     * An IOException means the daemon died (or the stream broke) and it must not be reused.
+     * When the command times out or the build is aborted, the whole daemon is stopped.
+     */
+    public int execute(String[] agentArgs, int timeoutSecs, Logger logger) throws IOException, InterruptedException {
+        lastUsed = System.currentTimeMillis();
+        int requestId = ++lastRequestId;
+        BoundedOutputBuffer outputBuffer = new BoundedOutputBuffer();
+        BoundedOutputBuffer errorsBuffer = new BoundedOutputBuffer();
+        LoggerOutputStream out = new LoggerOutputStream(logger, false, outputBuffer);
+        LoggerOutputStream err = new LoggerOutputStream(logger, true, errorsBuffer);
+        CommandWatchdog watchdog = CommandWatchdog.start(timeoutSecs, new CommandWatchdog.KillAction() {
+            @Override
+            public void kill() {
+                stop();
+            }
+        });
+        try {
+            AgentDaemonMain.writeRequest(requests, requestId, agentArgs);
+            while (true) {
+                AgentDaemonMain.Frame frame = AgentDaemonMain.readFrame(responses);
+                if (frame.requestId != requestId) {
+                    LOGGER.log(Level.FINE, "Dropped a frame of request " + frame.requestId + " (type " + frame.type
+                            + ") received while running request " + requestId);
+                    continue;
+                }
+                if (frame.type == AgentDaemonMain.FRAME_STDOUT) {
+                    out.write(frame.payload);
+                } else if (frame.type == AgentDaemonMain.FRAME_STDERR) {
+                    err.write(frame.payload);
+                } else if (frame.type == AgentDaemonMain.FRAME_EXIT) {
+                    return new DataInputStream(new ByteArrayInputStream(frame.payload)).readInt();
+                } else {
+                    throw new IOException("Unexpected frame type '" + frame.type + "' received from the agent daemon");
+                }
+            }
+        } catch (IOException e) {
+            broken = true;
+            if (watchdog.isAborted()) {
+                throw new InterruptedException("The build was aborted while the agent daemon was running a command");
+            }
+            if (watchdog.isTimedOut()) {
+                CommandWatchdog.logLastOutput(logger, outputBuffer, errorsBuffer);
+                throw new CommandTimeoutException(agentArgs[0], timeoutSecs);
+            }
+            throw e;
+        } finally {
+            watchdog.cancel();
+            lastUsed = System.currentTimeMillis();
+            out.close();
+            err.close();
+        }
+    }
+
+    public boolean isAlive() {
+        if (broken) {
+            return false;
+        }
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    public boolean isIdleExpired(long now) {
+        return now - lastUsed > idleTimeoutMillis;
+    }
+
+    void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void stop() {
+        broken = true;
+        try {
+            // Closing stdin lets the daemon exit by itself
+            requests.close();
+        } catch (IOException e) {
+            // The process is destroyed below anyway
+        }
+        process.destroy();
+    }
+
+    private void awaitReady() throws IOException {
+        AgentDaemonMain.Frame frame;
+        try {
+            frame = AgentDaemonMain.readFrame(responses);
+        } catch (EOFException e) {
+            throw new IOException("The agent daemon exited before it was ready");
+        }
+        if (frame.type == AgentDaemonMain.FRAME_UNSUPPORTED) {
+            throw new DaemonUnsupportedException(new String(frame.payload, "UTF-8"));
+        }
+        if (frame.type != AgentDaemonMain.FRAME_READY) {
+            throw new IOException("Unexpected handshake frame type '" + frame.type + "' received from the agent daemon");
+        }
+    }
+
+    private void drainDiagnostics(final InputStream errorStream) {
+        // Anything the daemon JVM itself prints (not the agent) is not part of a specific build
+        Thread thread = new Thread("SeaLights agent daemon diagnostics") {
+            @Override
+            public void run() {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(errorStream))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        LOGGER.log(Level.FINE, line);
+                    }
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Stopped reading the agent daemon diagnostics", e);
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The target JVM doesn't allow to trap 'System.exit' without an explicit opt-in.
+     */
+    static class DaemonUnsupportedException extends IOException {
+        DaemonUnsupportedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+/**
+ * Entry point of a long-lived agent JVM. It reads commands from stdin and runs each one with a fresh class loader
+ * of the agent jar, so the agent static state never leaks between commands while the JVM itself stays warm.
+ * <p>
+ * Protocol (all numbers are big endian, as written by DataOutputStream):
+ * <ul>
+ * <li>request: int requestId, int argumentsCount, followed by each argument as UTF</li>
+ * <li>response: a sequence of frames - byte type, int requestId, int length, bytes. Output frames carry raw
+ * stdout/stderr bytes, the exit frame carries the exit code as its 4 bytes payload</li>
+ * </ul>
+ * Output is tagged with the request of the command whose class loader the writing thread runs with, so output of
+ * threads that outlive their command is never attributed to the next one. Output of no command is tagged with
+ * {@link #NO_REQUEST}.
+ * This class runs outside of Jenkins, so it must only depend on the JDK.
+ */
+public class AgentDaemonMain {
+
+    public static final byte FRAME_STDOUT = 1;
+    public static final byte FRAME_STDERR = 2;
+    public static final byte FRAME_EXIT = 3;
+    public static final byte FRAME_READY = 4;
+    public static final byte FRAME_UNSUPPORTED = 5;
+    public static final int NO_REQUEST = 0;
+
+    private static final Map<ClassLoader, Integer> requestIdsByClassLoader =
+            Collections.synchronizedMap(new WeakHashMap<ClassLoader, Integer>());
+    private static volatile boolean shuttingDown;
+
+    public static void main(String[] args) throws Exception {
+        File agentJar = new File(args[0]);
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream responses = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+        System.setOut(new PrintStream(new FramingOutputStream(responses, FRAME_STDOUT), true));
+        System.setErr(new PrintStream(new FramingOutputStream(responses, FRAME_STDERR), true));
+
+        String mainClassName = readMainClass(agentJar);
+        try {
+            System.setSecurityManager(new ExitTrappingSecurityManager());
+        } catch (SecurityException | UnsupportedOperationException e) {
+            writeFrame(responses, FRAME_UNSUPPORTED, NO_REQUEST, toBytes(String.valueOf(e)));
+            responses.flush();
+            return;
+        }
+        writeFrame(responses, FRAME_READY, NO_REQUEST, new byte[0]);
+        responses.flush();
+
+        while (true) {
+            int requestId;
+            String[] commandArgs;
+            try {
+                requestId = requests.readInt();
+                commandArgs = readArguments(requests);
+            } catch (EOFException e) {
+                // The client closed our stdin - it is time to go
+                break;
+            }
+
+            int exitCode = runCommand(agentJar, mainClassName, requestId, commandArgs);
+            System.out.flush();
+            System.err.flush();
+            writeFrame(responses, FRAME_EXIT, requestId, intToBytes(exitCode));
+            responses.flush();
+        }
+
+        shuttingDown = true;
+        System.exit(0);
+    }
+
+    private static String[] readArguments(DataInputStream requests) throws IOException {
+        int count = requests.readInt();
+        String[] commandArgs = new String[count];
+        for (int i = 0; i < count; i++) {
+            commandArgs[i] = requests.readUTF();
+        }
+        return commandArgs;
+    }
+
+    private static int runCommand(File agentJar, String mainClassName, int requestId, String[] commandArgs) {
+        ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        Thread currentThread = Thread.currentThread();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{agentJar.toURI().toURL()}, parent)) {
+            // Threads started by the agent inherit its loader as their context class loader, which tags their output
+            requestIdsByClassLoader.put(classLoader, requestId);
+            currentThread.setContextClassLoader(classLoader);
+            Method mainMethod = classLoader.loadClass(mainClassName).getMethod("main", String[].class);
+            mainMethod.invoke(null, (Object) commandArgs);
+            return 0;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ExitTrappedException) {
+                return ((ExitTrappedException) e.getCause()).status;
+            }
+            e.getCause().printStackTrace();
+            return 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        } finally {
+            currentThread.setContextClassLoader(null);
+        }
+    }
+
+    private static String readMainClass(File agentJar) throws IOException {
+        try (JarFile jarFile = new JarFile(agentJar)) {
+            String mainClass = null;
+            if (jarFile.getManifest() != null) {
+                mainClass = jarFile.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+            }
+            if (mainClass == null) {
+                throw new IOException("Agent jar '" + agentJar + "' doesn't declare a 'Main-Class' in its manifest");
+            }
+            return mainClass;
+        }
+    }
+
+    static int requestIdOfCurrentThread() {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Integer requestId = contextClassLoader == null ? null : requestIdsByClassLoader.get(contextClassLoader);
+        return requestId == null ? NO_REQUEST : requestId;
+    }
+
+    static void writeRequest(DataOutputStream out, int requestId, String[] commandArgs) throws IOException {
+        out.writeInt(requestId);
+        out.writeInt(commandArgs.length);
+        for (String arg : commandArgs) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, int requestId, byte[] payload) throws IOException {
+        writeFrame(out, type, requestId, payload, 0, payload.length);
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, int requestId, byte[] payload, int off, int len)
+            throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.writeInt(requestId);
+            out.writeInt(len);
+            out.write(payload, off, len);
+        }
+    }
+
+    static Frame readFrame(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        int requestId = in.readInt();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new Frame(type, requestId, payload);
+    }
+
+    static byte[] intToBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static byte[] toBytes(String value) throws IOException {
+        return value.getBytes("UTF-8");
+    }
+
+    private static class FramingOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte type;
+
+        FramingOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeFrame(out, type, requestIdOfCurrentThread(), b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    static class Frame {
+
+        final byte type;
+        final int requestId;
+        final byte[] payload;
+
+        Frame(byte type, int requestId, byte[] payload) {
+            this.type = type;
+            this.requestId = requestId;
+            this.payload = payload;
+        }
+    }
+
+    private static class ExitTrappedException extends SecurityException {
+        private final int status;
+
+        ExitTrappedException(int status) {
+            super("Agent requested to exit with status " + status);
+            this.status = status;
+        }
+    }
+
+    private static class ExitTrappingSecurityManager extends SecurityManager {
+        @Override
+        public void checkExit(int status) {
+            if (!shuttingDown) {
+                throw new ExitTrappedException(status);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission perm) {
+            // Everything except exiting is allowed, as it would be without a security manager
+        }
+
+        @Override
+        public void checkPermission(Permission perm, Object context) {
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon;
+
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps warm agent daemons per java executable and agent jar (version).
+ * Daemons are started lazily, a busy daemon is never shared, idle daemons are stopped after their idle timeout
+ * and a daemon that crashed is simply replaced by a new one on the next command.
+ * <p>
+ * Daemons run on the Jenkins master, next to the agents cache, and serve the builds of every node. A daemon is
+ * not started through the build's launcher since it outlives the build; commands that must run on the build's node
+ * use the 'node' execution mode instead.
+ */
+public class AgentDaemonRegistry {
+
+    public static final int DEFAULT_IDLE_TIMEOUT_SECS = 600;
+    private static final long REAPER_INTERVAL_SECS = 30;
+    private static final String ALLOW_SECURITY_MANAGER = "-Djava.security.manager=allow";
+
+    private static final AgentDaemonRegistry INSTANCE = new AgentDaemonRegistry();
+
+    private final Map<String, Deque<AgentDaemon>> idleDaemonsByKey = new HashMap<>();
+    private final Set<String> javaPathsRequiringSecurityManagerOptIn = new HashSet<>();
+    private ScheduledExecutorService reaper;
+
+    AgentDaemonRegistry() {
+    }
+
+    public static AgentDaemonRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the command on a warm daemon and returns its exit code.
+     * Throws IllegalStateException when no daemon can be started (the caller should fall back to a process),
+     * and IOException when the daemon died (or was stopped on timeout) while running the command.
+     */
+    public int execute(String javaPath, String agentPath, String[] agentArgs, int idleTimeoutSecs, int timeoutSecs,
+                       Logger logger) throws IOException, InterruptedException {
+        File agentJar = new File(agentPath).getCanonicalFile();
+        String key = createKey(javaPath, agentJar);
+
+        AgentDaemon daemon = acquire(key, javaPath, agentJar, logger);
+        daemon.setIdleTimeoutMillis(TimeUnit.SECONDS.toMillis(idleTimeoutSecs));
+        boolean completed = false;
+        try {
+            int exitCode = daemon.execute(agentArgs, timeoutSecs, logger);
+            completed = true;
+            return exitCode;
+        } finally {
+            if (completed) {
+                release(key, daemon);
+            } else {
+                logger.warning("The agent daemon was stopped, a new one will be started for the next command.");
+                daemon.stop();
+            }
+        }
+    }
+
+    public synchronized void stopAll() {
+        for (Deque<AgentDaemon> daemons : idleDaemonsByKey.values()) {
+            for (AgentDaemon daemon : daemons) {
+                daemon.stop();
+            }
+        }
+        idleDaemonsByKey.clear();
+    }
+
+    private AgentDaemon acquire(String key, String javaPath, File agentJar, Logger logger) {
+        AgentDaemon daemon = pollIdleDaemon(key);
+        if (daemon != null) {
+            return daemon;
+        }
+
+        logger.info("Starting a new agent daemon for '" + agentJar.getName() + "'");
+        try {
+            return startDaemon(javaPath, agentJar);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to start the agent daemon. Error: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized AgentDaemon pollIdleDaemon(String key) {
+        Deque<AgentDaemon> daemons = idleDaemonsByKey.get(key);
+        while (daemons != null && !daemons.isEmpty()) {
+            AgentDaemon daemon = daemons.pollLast();
+            if (daemon.isAlive()) {
+                return daemon;
+            }
+            daemon.stop();
+        }
+        return null;
+    }
+
+    private synchronized void release(String key, AgentDaemon daemon) {
+        if (!daemon.isAlive()) {
+            daemon.stop();
+            return;
+        }
+        Deque<AgentDaemon> daemons = idleDaemonsByKey.get(key);
+        if (daemons == null) {
+            daemons = new ArrayDeque<>();
+            idleDaemonsByKey.put(key, daemons);
+        }
+        daemons.addLast(daemon);
+        ensureReaperStarted();
+    }
+
+    AgentDaemon startDaemon(String javaPath, File agentJar) throws IOException {
+        boolean optIn;
+        synchronized (this) {
+            optIn = javaPathsRequiringSecurityManagerOptIn.contains(javaPath);
+        }
+        try {
+            return AgentDaemon.start(createDaemonCommand(javaPath, agentJar, optIn));
+        } catch (AgentDaemon.DaemonUnsupportedException e) {
+            if (optIn) {
+                throw e;
+            }
+            // Newer JVMs only allow installing a security manager when explicitly opted in
+            synchronized (this) {
+                javaPathsRequiringSecurityManagerOptIn.add(javaPath);
+            }
+            return AgentDaemon.start(createDaemonCommand(javaPath, agentJar, true));
+        }
+    }
+
+    private List<String> createDaemonCommand(String javaPath, File agentJar, boolean allowSecurityManager)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(javaPath);
+        if (allowSecurityManager) {
+            command.add(ALLOW_SECURITY_MANAGER);
+        }
+        command.add("-cp");
+        command.add(resolveDaemonClasspath());
+        command.add(AgentDaemonMain.class.getName());
+        command.add(agentJar.getPath());
+        return command;
+    }
+
+    private String resolveDaemonClasspath() throws IOException {
+        try {
+            // The plugin jar (or classes folder) that contains AgentDaemonMain
+            return new File(AgentDaemonMain.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (URISyntaxException | NullPointerException e) {
+            throw new IOException("Unable to locate the plugin classes for the agent daemon", e);
+        }
+    }
+
+    private String createKey(String javaPath, File agentJar) {
+        // A replaced jar gets a new key, so a daemon never runs an agent version other than the requested one
+        return javaPath + "|" + agentJar.getPath() + "|" + agentJar.lastModified() + "|" + agentJar.length();
+    }
+
+    private synchronized void ensureReaperStarted() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "SeaLights agent daemons reaper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reaper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                stopIdleDaemons();
+            }
+        }, REAPER_INTERVAL_SECS, REAPER_INTERVAL_SECS, TimeUnit.SECONDS);
+    }
+
+    void stopIdleDaemons() {
+        stopIdleDaemons(System.currentTimeMillis());
+    }
+
+    synchronized void stopIdleDaemons(long now) {
+        Iterator<Deque<AgentDaemon>> keysIterator = idleDaemonsByKey.values().iterator();
+        while (keysIterator.hasNext()) {
+            Deque<AgentDaemon> daemons = keysIterator.next();
+            Iterator<AgentDaemon> daemonsIterator = daemons.iterator();
+            while (daemonsIterator.hasNext()) {
+                AgentDaemon daemon = daemonsIterator.next();
+                if (!daemon.isAlive() || daemon.isIdleExpired(now)) {
+                    daemonsIterator.remove();
+                    daemon.stop();
+                }
+            }
+            if (daemons.isEmpty()) {
+                keysIterator.remove();
+            }
+        }
+    }
+}
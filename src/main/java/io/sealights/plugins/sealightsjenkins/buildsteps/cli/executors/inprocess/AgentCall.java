@@ -0,0 +1,50 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+import java.io.PrintStream;
+
+/**
+ * One running in-process agent command: the class loader it runs in, where its output goes
+ * and the status it asked to exit with (if it called System.exit).
+ */
+public class AgentCall {
+
+    private final ClassLoader classLoader;
+    private final PrintStream out;
+    private final PrintStream err;
+    private Integer exitStatus;
+
+    public AgentCall(ClassLoader classLoader, PrintStream out, PrintStream err) {
+        this.classLoader = classLoader;
+        this.out = out;
+        this.err = err;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public PrintStream getErr() {
+        return err;
+    }
+
+    public PrintStream getStream(boolean isErrorStream) {
+        return isErrorStream ? err : out;
+    }
+
+    /**
+     * Returns the status of the first System.exit call made by the agent, or null if it didn't call it.
+     */
+    public synchronized Integer getExitStatus() {
+        return exitStatus;
+    }
+
+    synchronized void onExit(int status) {
+        if (exitStatus == null) {
+            exitStatus = status;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Keeps one isolated class loader per agent jar and version, so consecutive CLI steps don't pay for
+ * loading the agent classes again. When a jar is replaced by another version, the old loader is retired.
+ */
+public class AgentClassLoaderCache {
+
+    private static final AgentClassLoaderCache INSTANCE = new AgentClassLoaderCache();
+
+    private final Map<String, CachedAgent> agentsByKey = new HashMap<>();
+
+    public static AgentClassLoaderCache getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized CachedAgent get(String agentPath) throws IOException {
+        File jar = new File(agentPath).getCanonicalFile();
+        if (!jar.isFile()) {
+            throw new IOException("Agent jar '" + jar + "' doesn't exist");
+        }
+
+        Manifest manifest = readManifest(jar);
+        String version = resolveVersion(jar, manifest);
+        String key = jar.getPath() + "@" + version;
+
+        CachedAgent cachedAgent = agentsByKey.get(key);
+        if (cachedAgent != null) {
+            return cachedAgent;
+        }
+
+        retireOtherVersions(jar.getPath());
+        String mainClassName = manifest == null ? null : manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+        if (mainClassName == null) {
+            throw new IOException("Agent jar '" + jar + "' doesn't declare a 'Main-Class' in its manifest");
+        }
+
+        cachedAgent = new CachedAgent(jar, version, mainClassName);
+        agentsByKey.put(key, cachedAgent);
+        return cachedAgent;
+    }
+
+    private void retireOtherVersions(String jarPath) {
+        Iterator<Map.Entry<String, CachedAgent>> iterator = agentsByKey.entrySet().iterator();
+        while (iterator.hasNext()) {
+            CachedAgent cachedAgent = iterator.next().getValue();
+            if (cachedAgent.getJar().getPath().equals(jarPath)) {
+                iterator.remove();
+                cachedAgent.retire();
+            }
+        }
+    }
+
+    private Manifest readManifest(File jar) throws IOException {
+        try (JarFile jarFile = new JarFile(jar)) {
+            return jarFile.getManifest();
+        }
+    }
+
+    private String resolveVersion(File jar, Manifest manifest) {
+        String version = null;
+        if (manifest != null) {
+            version = manifest.getMainAttributes().getValue(Attributes.Name.IMPLEMENTATION_VERSION);
+        }
+        if (version == null) {
+            // No version in the manifest, use the file stamp so a replaced jar is reloaded
+            version = "modified-" + jar.lastModified() + "-" + jar.length();
+        }
+        return version;
+    }
+
+    /**
+     * A cached agent jar. Agents keep static state, so a loader runs one invocation at a time: concurrent builds
+     * each get a loader of their own, and loaders are reused by later invocations once they are released.
+     */
+    public static class CachedAgent {
+
+        private final File jar;
+        private final String version;
+        private final String mainClassName;
+        private final Deque<AgentLoader> idleLoaders = new ArrayDeque<>();
+        private boolean retired;
+        private volatile boolean processOnly;
+
+        CachedAgent(File jar, String version, String mainClassName) {
+            this.jar = jar;
+            this.version = version;
+            this.mainClassName = mainClassName;
+        }
+
+        public File getJar() {
+            return jar;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * Whether this agent left threads running after a command ended, so its commands must run in a new process.
+         */
+        public boolean isProcessOnly() {
+            return processOnly;
+        }
+
+        void markProcessOnly() {
+            processOnly = true;
+        }
+
+        synchronized AgentLoader acquireLoader() throws IOException, ReflectiveOperationException {
+            AgentLoader loader = idleLoaders.pollFirst();
+            if (loader == null) {
+                loader = new AgentLoader(jar, mainClassName);
+            }
+            return loader;
+        }
+
+        /**
+         * Returns the loader to the pool. A loader that is still used by threads the agent started is not reusable,
+         * it is dropped and left to those threads.
+         */
+        synchronized void release(AgentLoader loader, boolean reusable) {
+            if (!reusable) {
+                return;
+            }
+            if (retired || processOnly) {
+                loader.close();
+                return;
+            }
+            idleLoaders.addLast(loader);
+        }
+
+        synchronized void retire() {
+            retired = true;
+            for (AgentLoader loader : idleLoaders) {
+                loader.close();
+            }
+            idleLoaders.clear();
+        }
+    }
+
+    /**
+     * An isolated class loader of an agent jar with the agent's 'main' method.
+     */
+    static class AgentLoader {
+
+        private final URLClassLoader classLoader;
+        private final Method mainMethod;
+
+        AgentLoader(File jar, String mainClassName) throws IOException, ReflectiveOperationException {
+            // The parent is the platform/extension loader, so none of Jenkins' classes leak into the agent
+            ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+            URLClassLoader loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, parent);
+            try {
+                this.mainMethod = loader.loadClass(mainClassName).getMethod("main", String[].class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                loader.close();
+                throw e;
+            }
+            this.classLoader = loader;
+        }
+
+        ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        Method getMainMethod() {
+            return mainMethod;
+        }
+
+        void close() {
+            try {
+                classLoader.close();
+            } catch (IOException e) {
+                // Best effort, the loader is not used anymore
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+/**
+ * Thrown instead of terminating the JVM when an agent running in-process calls System.exit.
+ */
+public class AgentExitException extends SecurityException {
+
+    private final int status;
+
+    public AgentExitException(int status) {
+        super("Agent requested to exit with status " + status);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
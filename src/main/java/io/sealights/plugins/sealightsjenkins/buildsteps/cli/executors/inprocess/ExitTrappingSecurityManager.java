@@ -0,0 +1,49 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+import java.security.Permission;
+
+/**
+ * Turns System.exit calls made by an in-process agent (or by threads it started) into an {@link AgentExitException}.
+ * Every other check is delegated to the security manager that was installed before us (if any).
+ * Installed by {@link InProcessHooks} only while agent commands run.
+ */
+public class ExitTrappingSecurityManager extends SecurityManager {
+
+    private final SecurityManager delegate;
+    private final InProcessHooks hooks;
+
+    public ExitTrappingSecurityManager(SecurityManager delegate, InProcessHooks hooks) {
+        this.delegate = delegate;
+        this.hooks = hooks;
+    }
+
+    public SecurityManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void checkExit(int status) {
+        AgentCall call = hooks.currentCall();
+        if (call != null) {
+            call.onExit(status);
+            throw new AgentExitException(status);
+        }
+        if (delegate != null) {
+            delegate.checkExit(status);
+        }
+    }
+
+    @Override
+    public void checkPermission(Permission perm) {
+        if (delegate != null) {
+            delegate.checkPermission(perm);
+        }
+    }
+
+    @Override
+    public void checkPermission(Permission perm, Object context) {
+        if (delegate != null) {
+            delegate.checkPermission(perm, context);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+import io.sealights.plugins.sealightsjenkins.utils.BoundedOutputBuffer;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.LoggerOutputStream;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs an agent command inside the current JVM by invoking the 'main' method of the agent jar.
+ * The agent output is routed to the build log and System.exit calls are turned into the command exit code.
+ * Like a JVM, a command only ends when every non-daemon thread the agent started has ended.
+ */
+public class InProcessAgentRunner {
+
+    static final long AGENT_THREADS_GRACE_MILLIS = 60 * 1000;
+
+    private final AgentClassLoaderCache classLoaderCache;
+    private final InProcessHooks hooks;
+
+    public InProcessAgentRunner() {
+        this(AgentClassLoaderCache.getInstance(), InProcessHooks.getInstance());
+    }
+
+    public InProcessAgentRunner(AgentClassLoaderCache classLoaderCache, InProcessHooks hooks) {
+        this.classLoaderCache = classLoaderCache;
+        this.hooks = hooks;
+    }
+
+    /**
+     * Returns the exit code of the command.
+     * Throws IllegalStateException when the agent cannot be run in-process (the caller should fall back to a process).
+     */
+    public int run(String agentPath, String[] agentArgs, Logger logger) throws Exception {
+        AgentClassLoaderCache.CachedAgent cachedAgent;
+        AgentClassLoaderCache.AgentLoader loader;
+        try {
+            cachedAgent = classLoaderCache.get(agentPath);
+            if (cachedAgent.isProcessOnly()) {
+                throw new IllegalStateException("agent version '" + cachedAgent.getVersion()
+                        + "' left threads running after a previous in-process command");
+            }
+            loader = cachedAgent.acquireLoader();
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to load the agent '" + agentPath + "' in-process", e);
+        }
+
+        try {
+            logger.info("Running agent version '" + cachedAgent.getVersion() + "' in-process");
+            return invoke(cachedAgent, loader, agentArgs, logger);
+        } finally {
+            // A loader used by threads the agent left behind must not run another command
+            cachedAgent.release(loader, findAgentThreads(loader.getClassLoader()).isEmpty());
+        }
+    }
+
+    private int invoke(AgentClassLoaderCache.CachedAgent cachedAgent, AgentClassLoaderCache.AgentLoader loader,
+                       String[] agentArgs, Logger logger) throws Exception {
+        PrintStream out = new PrintStream(new LoggerOutputStream(logger, false, new BoundedOutputBuffer()), true, "UTF-8");
+        PrintStream err = new PrintStream(new LoggerOutputStream(logger, true, new BoundedOutputBuffer()), true, "UTF-8");
+        AgentCall call = new AgentCall(loader.getClassLoader(), out, err);
+
+        Thread currentThread = Thread.currentThread();
+        ClassLoader originalContextClassLoader = currentThread.getContextClassLoader();
+        try {
+            hooks.enter(call);
+            try {
+                currentThread.setContextClassLoader(loader.getClassLoader());
+                int exitCode = invokeMain(loader, agentArgs, logger);
+                currentThread.setContextClassLoader(originalContextClassLoader);
+
+                if (!awaitAgentThreads(cachedAgent, loader, logger)) {
+                    logger.error("The agent threads didn't end within " + AGENT_THREADS_GRACE_MILLIS / 1000
+                            + " seconds after its 'main' method ended, the command is considered failed.");
+                    return 1;
+                }
+                Integer exitStatus = call.getExitStatus();
+                return exitStatus != null ? exitStatus : exitCode;
+            } finally {
+                currentThread.setContextClassLoader(originalContextClassLoader);
+                hooks.exit(call);
+            }
+        } finally {
+            out.close();
+            err.close();
+        }
+    }
+
+    private int invokeMain(AgentClassLoaderCache.AgentLoader loader, String[] agentArgs, Logger logger)
+            throws IllegalAccessException {
+        try {
+            loader.getMainMethod().invoke(null, (Object) agentArgs);
+            return 0;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AgentExitException) {
+                return ((AgentExitException) cause).getStatus();
+            }
+            logger.error("Agent failed while running in-process. Error: ", cause);
+            return 1;
+        }
+    }
+
+    /**
+     * Waits (for a limited time) for the non-daemon threads the agent left running, as the JVM would before ending
+     * an agent process. Returns false if some of them are still running. An agent that leaves threads running is not
+     * run in-process anymore.
+     */
+    private boolean awaitAgentThreads(AgentClassLoaderCache.CachedAgent cachedAgent,
+                                   AgentClassLoaderCache.AgentLoader loader, Logger logger) throws InterruptedException {
+        List<Thread> nonDaemonThreads = new ArrayList<>();
+        for (Thread thread : findAgentThreads(loader.getClassLoader())) {
+            if (!thread.isDaemon()) {
+                nonDaemonThreads.add(thread);
+            }
+        }
+        if (nonDaemonThreads.isEmpty()) {
+            return true;
+        }
+
+        cachedAgent.markProcessOnly();
+        logger.warning("The agent left " + nonDaemonThreads.size() + " thread(s) running after its 'main' method ended. "
+                + "Waiting for them to end. Next commands with this agent version will run in a new java process.");
+        long deadline = System.currentTimeMillis() + AGENT_THREADS_GRACE_MILLIS;
+        for (Thread thread : nonDaemonThreads) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining > 0) {
+                thread.join(remaining);
+            }
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the live threads started by the agent: they inherit the agent's loader as their context class loader.
+     */
+    static List<Thread> findAgentThreads(ClassLoader agentClassLoader) {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        Thread[] threads;
+        int count;
+        do {
+            threads = new Thread[root.activeCount() * 2 + 16];
+            count = root.enumerate(threads, true);
+        } while (count == threads.length);
+
+        List<Thread> agentThreads = new ArrayList<>();
+        Thread currentThread = Thread.currentThread();
+        for (int i = 0; i < count; i++) {
+            Thread thread = threads[i];
+            if (thread != currentThread && thread.isAlive() && thread.getContextClassLoader() == agentClassLoader) {
+                agentThreads.add(thread);
+            }
+        }
+        return agentThreads;
+    }
+}
@@ -0,0 +1,103 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Installs the System.exit trap and the System.out/System.err routing only while in-process agent commands run,
+ * and restores the JVM's original security manager and streams once the last of them ends.
+ * <p>
+ * A thread belongs to a command when it is the thread that invoked the agent (a plain thread local, cleared when
+ * the command ends) or when its context class loader is the command's agent loader, which is how threads started
+ * by the agent are recognized. Nothing is left on a thread after the command ends.
+ */
+public class InProcessHooks {
+
+    private static final InProcessHooks INSTANCE = new InProcessHooks();
+
+    private final ThreadLocal<AgentCall> invokingThreadCall = new ThreadLocal<>();
+    private final Map<ClassLoader, AgentCall> activeCalls = new ConcurrentHashMap<>();
+    private ExitTrappingSecurityManager exitTrapper;
+    private ThreadRoutedPrintStream routedOut;
+    private ThreadRoutedPrintStream routedErr;
+
+    public static InProcessHooks getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the command on the current thread, installing the hooks if no other command is running.
+     * Throws IllegalStateException when System.exit calls can't be trapped in this JVM.
+     */
+    public synchronized void enter(AgentCall call) {
+        if (activeCalls.isEmpty()) {
+            install();
+        }
+        activeCalls.put(call.getClassLoader(), call);
+        invokingThreadCall.set(call);
+    }
+
+    /**
+     * Unregisters the command from the current thread (which must be the thread that called {@link #enter}),
+     * restoring the JVM's security manager and streams if no other command is running.
+     */
+    public synchronized void exit(AgentCall call) {
+        invokingThreadCall.remove();
+        activeCalls.remove(call.getClassLoader());
+        if (activeCalls.isEmpty()) {
+            uninstall();
+        }
+    }
+
+    /**
+     * Returns the command the current thread belongs to, or null for any thread that isn't running agent code.
+     */
+    AgentCall currentCall() {
+        AgentCall call = invokingThreadCall.get();
+        if (call != null) {
+            return call;
+        }
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return contextClassLoader == null ? null : activeCalls.get(contextClassLoader);
+    }
+
+    private void install() {
+        if (exitTrapper == null || System.getSecurityManager() != exitTrapper) {
+            ExitTrappingSecurityManager trapper = new ExitTrappingSecurityManager(System.getSecurityManager(), this);
+            try {
+                System.setSecurityManager(trapper);
+            } catch (SecurityException | UnsupportedOperationException e) {
+                throw new IllegalStateException("Unable to trap 'System.exit' calls of the agent in this JVM", e);
+            }
+            exitTrapper = trapper;
+        }
+
+        routedOut = new ThreadRoutedPrintStream(System.out, this, false);
+        routedErr = new ThreadRoutedPrintStream(System.err, this, true);
+        System.setOut(routedOut);
+        System.setErr(routedErr);
+    }
+
+    private void uninstall() {
+        // Streams or a security manager replaced by someone else meanwhile are left as they are
+        if (System.out == routedOut) {
+            System.setOut(routedOut.getOriginal());
+        }
+        if (System.err == routedErr) {
+            System.setErr(routedErr.getOriginal());
+        }
+        routedOut = null;
+        routedErr = null;
+
+        if (exitTrapper != null && System.getSecurityManager() == exitTrapper) {
+            try {
+                System.setSecurityManager(exitTrapper.getDelegate());
+                exitTrapper = null;
+            } catch (SecurityException e) {
+                // The previous security manager doesn't allow replacing it back. The trapper stays, and with no
+                // command running it only delegates, it is reused by the next command
+            }
+        }
+    }
+}
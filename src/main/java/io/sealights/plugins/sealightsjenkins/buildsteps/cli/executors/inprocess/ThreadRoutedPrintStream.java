@@ -0,0 +1,46 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess;
+
+import java.io.PrintStream;
+
+/**
+ * Replaces System.out/System.err so that writes made by an in-process agent (and the threads it starts)
+ * go to the build log of the step that runs it. Writes made by any other thread go to the original stream.
+ * Installed by {@link InProcessHooks} only while agent commands run.
+ */
+public class ThreadRoutedPrintStream extends PrintStream {
+
+    private final PrintStream original;
+    private final InProcessHooks hooks;
+    private final boolean isErrorStream;
+
+    public ThreadRoutedPrintStream(PrintStream original, InProcessHooks hooks, boolean isErrorStream) {
+        super(original, true);
+        this.original = original;
+        this.hooks = hooks;
+        this.isErrorStream = isErrorStream;
+    }
+
+    public PrintStream getOriginal() {
+        return original;
+    }
+
+    @Override
+    public void write(int b) {
+        current().write(b);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        current().write(buf, off, len);
+    }
+
+    @Override
+    public void flush() {
+        current().flush();
+    }
+
+    private PrintStream current() {
+        AgentCall call = hooks.currentCall();
+        return call != null ? call.getStream(isErrorStream) : original;
+    }
+}
@@ -0,0 +1,95 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.CommandTimeoutException;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.CommandWatchdog;
+import io.sealights.plugins.sealightsjenkins.utils.BoundedOutputBuffer;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.LoggerOutputStream;
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs an agent command through the build's {@link Launcher}, on the node that owns the workspace.
+ * The output is streamed back to the build log while the command runs.
+ * Aborting the build kills the process on the node (this is handled by the launcher).
+ */
+public class NodeCommandRunner {
+
+    private static final String JAVA_HOME_ENV_VAR = "JAVA_HOME";
+
+    /**
+     * Returns the exit code of the command.
+     *
+     * @param timeoutSecs the command's timeout, 0 (or less) for no timeout.
+     */
+    public int run(Launcher launcher, FilePath workspace, EnvVars envVars, String javaPath, String agentPathOnNode,
+                   String[] agentArgs, int timeoutSecs, Logger logger) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(resolveJavaOnNode(workspace, envVars, javaPath));
+        command.add("-jar");
+        command.add(agentPathOnNode);
+        command.addAll(Arrays.asList(agentArgs));
+
+        BoundedOutputBuffer outputBuffer = new BoundedOutputBuffer();
+        BoundedOutputBuffer errorsBuffer = new BoundedOutputBuffer();
+        LoggerOutputStream out = new LoggerOutputStream(logger, false, outputBuffer);
+        LoggerOutputStream err = new LoggerOutputStream(logger, true, errorsBuffer);
+        try {
+            // 'quiet' since the launcher would print the command line, including the token
+            Launcher.ProcStarter procStarter = launcher.launch()
+                    .cmds(command)
+                    .pwd(workspace)
+                    .stdout(out)
+                    .stderr(err)
+                    .quiet(true);
+            if (envVars != null) {
+                procStarter.envs(envVars);
+            }
+            final Proc proc = procStarter.start();
+            CommandWatchdog watchdog = CommandWatchdog.start(timeoutSecs, new CommandWatchdog.KillAction() {
+                @Override
+                public void kill() throws Exception {
+                    proc.kill();
+                }
+            });
+            try {
+                int exitCode = proc.join();
+                if (watchdog.isAborted()) {
+                    throw new InterruptedException("The build was aborted while the command was running on the node");
+                }
+                if (watchdog.isTimedOut()) {
+                    CommandWatchdog.logLastOutput(logger, outputBuffer, errorsBuffer);
+                    throw new CommandTimeoutException(agentArgs[0], timeoutSecs);
+                }
+                return exitCode;
+            } finally {
+                watchdog.cancel();
+            }
+        } finally {
+            out.close();
+            err.close();
+        }
+    }
+
+    private String resolveJavaOnNode(FilePath workspace, EnvVars envVars, String javaPath) {
+        if (!StringUtils.isNullOrEmpty(javaPath)) {
+            return javaPath;
+        }
+
+        String javaHome = envVars == null ? null : envVars.get(JAVA_HOME_ENV_VAR);
+        if (!StringUtils.isNullOrEmpty(javaHome)) {
+            return new FilePath(workspace.getChannel(), javaHome).child("bin").child("java").getRemote();
+        }
+
+        // Rely on the PATH of the node
+        return "java";
+    }
+}
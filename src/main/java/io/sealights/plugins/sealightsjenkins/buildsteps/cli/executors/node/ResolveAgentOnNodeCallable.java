@@ -0,0 +1,145 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node;
+
+import hudson.model.TaskListener;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.AbstractUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.AgentCacheEvictor;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.AgentLease;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.BuildScannerUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.TestListenerUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.UpgradeProxy;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+import jenkins.security.MasterToSlaveCallable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs on the build node. Resolves the recommended agent and downloads it into the node's cache folder, so the
+ * download goes from the node to the server directly, and not through the master.
+ * Returns the path of the agent on the node. The agent is leased there under the given id (see {@link AgentLease}),
+ * so other builds that resolve agents on the node don't evict it. The caller deletes the lease when the command ends.
+ */
+public class ResolveAgentOnNodeCallable extends MasterToSlaveCallable<String, IOException> {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] PROXY_ENV_VARS = {"https_proxy", "HTTPS_PROXY", "http_proxy", "HTTP_PROXY"};
+    private static final String[] NO_PROXY_ENV_VARS = {"no_proxy", "NO_PROXY"};
+
+    private final UpgradeConfiguration upgradeConfiguration;
+    private final boolean useBuildScanner;
+    private final TaskListener listener;
+    private final String loggerPrefix;
+    private final int agentsCacheMaxVersions;
+    private final long agentsCacheMaxBytes;
+    private final String leaseId;
+
+    public ResolveAgentOnNodeCallable(UpgradeConfiguration upgradeConfiguration, boolean useBuildScanner,
+                                      TaskListener listener, String loggerPrefix, String leaseId) {
+        this.upgradeConfiguration = upgradeConfiguration;
+        this.useBuildScanner = useBuildScanner;
+        this.listener = listener;
+        this.loggerPrefix = loggerPrefix;
+        // The node's cache is kept within the limits that were configured on the master
+        this.agentsCacheMaxVersions = AgentCacheEvictor.getInstance().getMaxVersions();
+        this.agentsCacheMaxBytes = AgentCacheEvictor.getInstance().getMaxBytes();
+        this.leaseId = leaseId;
+    }
+
+    @Override
+    public String call() throws IOException {
+        Logger logger = new Logger(listener.getLogger(), loggerPrefix);
+        AgentCacheEvictor.getInstance().configure(agentsCacheMaxVersions, agentsCacheMaxBytes);
+
+        UpgradeConfiguration nodeConfiguration = withNodeProxy(upgradeConfiguration, System.getenv());
+        UpgradeProxy upgradeProxy = new UpgradeProxy(nodeConfiguration, logger);
+        AbstractUpgradeManager upgradeManager = useBuildScanner
+                ? new BuildScannerUpgradeManager(upgradeProxy, nodeConfiguration, logger)
+                : new TestListenerUpgradeManager(upgradeProxy, nodeConfiguration, logger);
+        return resolveAndLease(upgradeManager);
+    }
+
+    String resolveAndLease(AbstractUpgradeManager upgradeManager) {
+        String agentPath = upgradeManager.ensureLatestAgentPresentLocally();
+        // Not closed here, the lease is held until the command that runs the agent ends
+        AgentLease.acquire(agentPath, leaseId);
+        return agentPath;
+    }
+
+    /**
+     * A proxy that was set for the step is used as is, otherwise the node's own proxy (if it has one), unless the
+     * node's 'no_proxy' excludes the server.
+     */
+    static UpgradeConfiguration withNodeProxy(UpgradeConfiguration configuration, Map<String, String> env) {
+        if (!StringUtils.isNullOrEmpty(configuration.getProxy())) {
+            return configuration;
+        }
+        String nodeProxy = getFirstEnvVar(env, PROXY_ENV_VARS);
+        if (nodeProxy == null || isExcludedFromProxy(configuration.getServer(), getFirstEnvVar(env, NO_PROXY_ENV_VARS))) {
+            return configuration;
+        }
+        UpgradeConfiguration nodeConfiguration = new UpgradeConfiguration(
+                configuration.getToken(),
+                configuration.getCustomerId(),
+                configuration.getBuildSessionId(),
+                configuration.getAppName(),
+                configuration.getEnvironmentName(),
+                configuration.getBranchName(),
+                configuration.getServer(),
+                nodeProxy,
+                configuration.getFilesStorage()
+        );
+        nodeConfiguration.setAgentsMirror(configuration.getAgentsMirror());
+        nodeConfiguration.setHttpTimeoutSecs(configuration.getHttpTimeoutSecs());
+        return nodeConfiguration;
+    }
+
+    private static String getFirstEnvVar(Map<String, String> env, String[] names) {
+        for (String name : names) {
+            if (!StringUtils.isNullOrEmpty(env.get(name))) {
+                return env.get(name);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Matches the server host against the 'no_proxy' entries the way curl does: '*' excludes every host, and an
+     * entry (with or without a leading '.') excludes the domain and its sub-domains.
+     */
+    static boolean isExcludedFromProxy(String server, String noProxy) {
+        if (StringUtils.isNullOrEmpty(server) || StringUtils.isNullOrEmpty(noProxy)) {
+            return false;
+        }
+        String host;
+        try {
+            host = URI.create(server.trim()).getHost();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (host == null) {
+            return false;
+        }
+        host = host.toLowerCase(Locale.ENGLISH);
+        for (String entry : noProxy.split(",")) {
+            String domain = entry.trim().toLowerCase(Locale.ENGLISH);
+            if (domain.equals("*")) {
+                return true;
+            }
+            int portStart = domain.indexOf(':');
+            if (portStart >= 0) {
+                domain = domain.substring(0, portStart);
+            }
+            if (domain.startsWith(".")) {
+                domain = domain.substring(1);
+            }
+            if (!domain.isEmpty() && (host.equals(domain) || host.endsWith("." + domain))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -4,6 +4,9 @@ import io.sealights.plugins.sealightsjenkins.buildsteps.cli.CommandMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.*;
 import io.sealights.plugins.sealightsjenkins.utils.PropertiesUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Created by shahar on 2/12/2017.
  */
@@ -26,6 +29,8 @@ public class ModeToArgumentsConverter {
             return toConfigCommandArguments((CommandMode.ConfigView) mode);
         } else if (CommandModes.PrConfig.equals(mode.getCurrentMode())) {
             return toPrConfigCommandArguments((CommandMode.PrConfigView) mode);
+        } else if (CommandModes.Composite.equals(mode.getCurrentMode())) {
+            return toCompositeCommandArguments((CommandMode.CompositeView) mode);
         }
 
         throw new IllegalStateException("toCommandArgument() - The provided CommandMode is not one of the expected types");
@@ -56,6 +61,16 @@ public class ModeToArgumentsConverter {
         return new ConfigCommandArguments(configView.getTechOptions());
     }
 
+    private CompositeCommandArguments toCompositeCommandArguments(CommandMode.CompositeView compositeView){
+        String source = PropertiesUtils.toProperties(compositeView.getAdditionalArguments()).getProperty("source");
+        List<AbstractCommandArgument> commands = new ArrayList<>();
+        commands.add(new StartCommandArguments(compositeView.getTestStage()));
+        commands.add(new UploadReportsCommandArguments(
+                compositeView.getReportFiles(), compositeView.getReportsFolders(), true, source));
+        commands.add(new EndCommandArguments());
+        return new CompositeCommandArguments(commands);
+    }
+
     private PrConfigCommandArguments toPrConfigCommandArguments(CommandMode.PrConfigView prConfigView){
         return new PrConfigCommandArguments(prConfigView.getTechOptions(), prConfigView.getLatestCommit(),
          prConfigView.getPullRequestNumber(), prConfigView.getRepoUrl(), prConfigView.getTargetBranch());
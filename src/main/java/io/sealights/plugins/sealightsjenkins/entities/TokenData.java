@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 import org.apache.commons.codec.binary.Base64;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -80,6 +81,12 @@ public class TokenData {
     }
 
     public static TokenData parse(String token) {
+        try (Timings.Timer timer = Timings.start(Timings.TOKEN_VALIDATION)) {
+            return parseToken(token);
+        }
+    }
+
+    private static TokenData parseToken(String token) {
         try {
             String fullToken = token;
             if (StringUtils.isNullOrEmpty(token)) {
@@ -0,0 +1,107 @@
+package io.sealights.plugins.sealightsjenkins.integration;
+
+import io.sealights.agents.infra.pomIntegration.SeaLightsPluginInfo;
+import io.sealights.agents.infra.pomIntegration.entities.PomFile;
+import io.sealights.agents.infra.pomIntegration.integration.MavenIntegration;
+import io.sealights.agents.infra.pomIntegration.integration.MavenIntegrationInfo;
+import io.sealights.plugins.sealightsjenkins.utils.JsonSerializer;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.SearchFileCallable;
+import jenkins.security.MasterToSlaveCallable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs on the build node. Discovers, backs up, rewrites and saves all the poms with the node's own file system, so the
+ * integration takes a single remoting call instead of a few calls (and a DOM document) per pom.
+ * Returns a {@link NodePomIntegrationResult}; errors of the integration are returned in it as well, so an exception
+ * thrown by the call means that the integration didn't run. Integrations of builds that run on the same node at the
+ * same time are done one after the other (see {@link PomIntegrationLoggerScope}).
+ * The {@link SeaLightsPluginInfo} is sent to the node as JSON, since it isn't known to be serializable.
+ */
+public class IntegratePomsOnNodeCallable extends MasterToSlaveCallable<NodePomIntegrationResult, IOException> {
+    private static final long serialVersionUID = 1L;
+
+    // The tail of a longer log is returned, the master prints it in the build log
+    static final int MAX_LOG_CHARS = 256 * 1024;
+
+    private final ArrayList<String> folders;
+    private final String patterns;
+    private final String parentPomPath;
+    private final String slInfoJson;
+    private final String mvnPluginVersion;
+    private final String loggerPrefix;
+
+    public IntegratePomsOnNodeCallable(List<String> folders, String patterns, String parentPomPath,
+                                       SeaLightsPluginInfo slInfo, String mvnPluginVersion, String loggerPrefix) {
+        this.folders = new ArrayList<>(folders);
+        this.patterns = patterns;
+        this.parentPomPath = parentPomPath;
+        this.slInfoJson = JsonSerializer.serialize(slInfo);
+        this.mvnPluginVersion = mvnPluginVersion;
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    @Override
+    public NodePomIntegrationResult call() throws IOException {
+        NodePomIntegrationResult result = new NodePomIntegrationResult();
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        Logger logger = new Logger(new PrintStream(log, true, StandardCharsets.UTF_8.name()), loggerPrefix);
+        try (PomIntegrationLoggerScope loggerScope = PomIntegrationLoggerScope.enter(logger)) {
+            long startTime = System.currentTimeMillis();
+            List<PomFile> pomFiles = new ArrayList<>();
+            for (String pomPath : findPomPaths(logger)) {
+                pomFiles.add(new PomFile(pomPath));
+                result.getPomFiles().add(pomPath);
+            }
+            result.setDiscoveryMillis(System.currentTimeMillis() - startTime);
+
+            startTime = System.currentTimeMillis();
+            SeaLightsPluginInfo slInfo = JsonSerializer.deserializeLenient(slInfoJson, SeaLightsPluginInfo.class);
+            new MavenIntegration(new MavenIntegrationInfo(pomFiles, slInfo, mvnPluginVersion)).integrate();
+            result.setIntegrationMillis(System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            StringWriter stackTrace = new StringWriter();
+            e.printStackTrace(new PrintWriter(stackTrace));
+            result.setError("Failed to integrate the poms on the node. Error: " + stackTrace);
+        }
+        result.setLog(tail(log.toString(StandardCharsets.UTF_8.name())));
+        return result;
+    }
+
+    private List<String> findPomPaths(Logger logger) throws IOException, InterruptedException {
+        List<String> pomPaths = new ArrayList<>();
+        boolean isParentPomInList = false;
+        String includes = patterns.startsWith("**" + File.separator) ? patterns : "**" + File.separator + patterns;
+
+        for (String folder : folders) {
+            for (String matchingPom : new SearchFileCallable(includes).invoke(new File(folder), null)) {
+                logger.debug("Adding pom:" + matchingPom);
+                if (matchingPom.equalsIgnoreCase(parentPomPath))
+                    isParentPomInList = true;
+                pomPaths.add(matchingPom);
+            }
+        }
+
+        if (!isParentPomInList) {
+            pomPaths.add(parentPomPath);
+        }
+        return pomPaths;
+    }
+
+    private static String tail(String log) {
+        if (log.length() <= MAX_LOG_CHARS) {
+            return log;
+        }
+        return "... (the beginning of the log was truncated)" + System.lineSeparator()
+                + log.substring(log.length() - MAX_LOG_CHARS);
+    }
+}
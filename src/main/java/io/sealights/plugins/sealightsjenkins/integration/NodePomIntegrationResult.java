@@ -0,0 +1,59 @@
+package io.sealights.plugins.sealightsjenkins.integration;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What {@link IntegratePomsOnNodeCallable} sends back to the master: the integrated poms, the log of the integration
+ * and its error, if it failed.
+ */
+public class NodePomIntegrationResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private List<String> pomFiles = new ArrayList<>();
+    private String log;
+    private String error;
+    private long discoveryMillis;
+    private long integrationMillis;
+
+    public List<String> getPomFiles() {
+        return pomFiles;
+    }
+
+    public void setPomFiles(List<String> pomFiles) {
+        this.pomFiles = pomFiles;
+    }
+
+    public String getLog() {
+        return log;
+    }
+
+    public void setLog(String log) {
+        this.log = log;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getDiscoveryMillis() {
+        return discoveryMillis;
+    }
+
+    public void setDiscoveryMillis(long discoveryMillis) {
+        this.discoveryMillis = discoveryMillis;
+    }
+
+    public long getIntegrationMillis() {
+        return integrationMillis;
+    }
+
+    public void setIntegrationMillis(long integrationMillis) {
+        this.integrationMillis = integrationMillis;
+    }
+}
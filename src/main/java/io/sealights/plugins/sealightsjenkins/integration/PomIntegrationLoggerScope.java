@@ -0,0 +1,52 @@
+package io.sealights.plugins.sealightsjenkins.integration;
+
+import io.sealights.agents.infra.pomIntegration.integration.PomIntegrationLogger;
+import io.sealights.onpremise.agents.infra.logging.ILogger;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sets the logger of a pom integration. The logger is a static of the integration library, shared by all the builds
+ * that integrate poms in the same JVM (the master, or a node's agent), so the integrations run one at a time and the
+ * logger that was set before is restored when an integration ends.
+ */
+public class PomIntegrationLoggerScope implements AutoCloseable {
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    // The logger that was set last, the library doesn't expose it
+    private static ILogger currentLogger;
+
+    private final ILogger previousLogger;
+
+    private PomIntegrationLoggerScope(ILogger previousLogger) {
+        this.previousLogger = previousLogger;
+    }
+
+    /**
+     * Waits for the integrations that run in this JVM to end, then sets the logger until the scope is closed.
+     */
+    public static PomIntegrationLoggerScope enter(ILogger logger) {
+        LOCK.lock();
+        PomIntegrationLoggerScope scope = new PomIntegrationLoggerScope(currentLogger);
+        currentLogger = logger;
+        PomIntegrationLogger.setPluginLogger(logger);
+        return scope;
+    }
+
+    @Override
+    public void close() {
+        try {
+            currentLogger = previousLogger;
+            // A build logger must not outlive its integration, it would get the logs of the next one
+            PomIntegrationLogger.setPluginLogger(previousLogger != null ? previousLogger : new NullLogger());
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    static ILogger getCurrentLogger() {
+        return currentLogger;
+    }
+}
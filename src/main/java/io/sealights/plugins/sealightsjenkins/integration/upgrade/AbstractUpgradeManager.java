@@ -1,30 +1,42 @@
 package io.sealights.plugins.sealightsjenkins.integration.upgrade;
 
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.*;
+import io.sealights.plugins.sealightsjenkins.services.CircuitOpenException;
 import io.sealights.plugins.sealightsjenkins.utils.ArchiveUtils;
 import io.sealights.plugins.sealightsjenkins.utils.FileAndFolderUtils;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.PathUtils;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-
-import static io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.ComponentName.BUILD_SCANNER_COMPONENT_NAME;
-import static io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.ComponentName.TEST_LISTENER_COMPONENT_NAME;
+import java.util.concurrent.Callable;
 
 public abstract class AbstractUpgradeManager {
 
     private UpgradeProxy upgradeProxy;
+    private AgentDownloadCoordinator agentDownloadCoordinator = AgentDownloadCoordinator.getInstance();
+    private AgentCacheEvictor agentCacheEvictor = AgentCacheEvictor.getInstance();
     protected UpgradeConfiguration upgradeConfiguration;
     protected final Logger logger;
-    private static final int VERSIONS_HISTORY_TO_SAVE_BESIDE_RECOMMENDED = 2;
+    private static final String TEMP_EXTENSION = ".tmp";
 
     public static final String SL_RELATIVE_CACHE_FOLDER = "sl-cache";
     public static final String MAVEN_PLUGIN_AGENTS_RELATIVE_CACHE_FOLDER = "maven-plugin";
     protected String embeddedVersion;
 
+    // A prefetch places agents before any build uses them, so it neither records their use nor evicts for them
+    private boolean isPrefetch;
+
     public AbstractUpgradeManager(UpgradeProxy upgradeProxy, UpgradeConfiguration upgradeConfiguration, Logger logger) {
         this.upgradeProxy = upgradeProxy;
         this.upgradeConfiguration = upgradeConfiguration;
@@ -45,8 +57,7 @@ public abstract class AbstractUpgradeManager {
                         "The response from the server has invalid fields.");
             }
 
-            String jarsFolder = PathUtils.join(upgradeConfiguration.getFilesStorage(),
-                    SL_RELATIVE_CACHE_FOLDER, MAVEN_PLUGIN_AGENTS_RELATIVE_CACHE_FOLDER);
+            String jarsFolder = getJarsFolder();
             if (!FileAndFolderUtils.verifyFolderExists(jarsFolder)) {
                 throw new Exception("Could not verify that cache folder exists: '" + jarsFolder + "'.");
             }
@@ -57,10 +68,49 @@ public abstract class AbstractUpgradeManager {
             throw new RuntimeException("Error while trying to resolve Sealights recommended agents version. " +
                     "Probably the server did not found recommended agents version.", e);
         } catch (Exception e) {
+            // Don't fail the build while the server is down, if there is any agent to use
+            String cachedAgent = CircuitOpenException.isCausedBy(e) ? tryGetNewestCachedAgent() : null;
+            if (cachedAgent != null) {
+                logger.warning("The SeaLights server is unavailable, using the newest cached agent '" + cachedAgent
+                        + "'. Error: " + e.getMessage());
+                return cachedAgent;
+            }
             throw new RuntimeException("Error while trying to resolve Sealights recommended agents version.", e);
         }
     }
 
+    void setPrefetch(boolean isPrefetch) {
+        this.isPrefetch = isPrefetch;
+    }
+
+    private String getJarsFolder() {
+        return PathUtils.join(upgradeConfiguration.getFilesStorage(),
+                SL_RELATIVE_CACHE_FOLDER, MAVEN_PLUGIN_AGENTS_RELATIVE_CACHE_FOLDER);
+    }
+
+    private String tryGetNewestCachedAgent() {
+        AgentCacheManifest manifest = AgentCacheManifest.forFolder(getJarsFolder());
+        Version newestVersion = null;
+        File newestAgent = null;
+        for (AgentCacheManifest.AgentEntry entry : manifest.getEntries(logger)) {
+            if (!entry.getFileName().startsWith(getComponentNameDash()) || !Version.isValidVersion(entry.getVersion())) {
+                continue;
+            }
+            Version version = new Version(entry.getVersion());
+            File agent = manifest.getFile(entry);
+            if (agent.isFile() && (newestVersion == null || version.compareTo(newestVersion) > 0)) {
+                newestVersion = version;
+                newestAgent = agent;
+            }
+        }
+        if (newestAgent == null) {
+            return null;
+        }
+        // Looking it up records its use, so it isn't the first to be evicted
+        File agent = manifest.find(newestAgent.getName(), !isPrefetch, logger);
+        return (agent == null) ? null : agent.getAbsolutePath();
+    }
+
     /*
     * Response will be valid if:
     * 1. Version is in the right format.
@@ -97,85 +147,13 @@ public abstract class AbstractUpgradeManager {
         return "sealights-java".equals(name);
     }
 
-    private void rearrangeJarsFolder(String jarsFolder) {
-        File folder = new File(jarsFolder);
-        File[] filesInFolder = folder.listFiles();
-        if (filesInFolder == null) {
-            logger.warning("Unable to rearrange the cache folder since 'filesInFolder' is null.");
+    private void rearrangeJarsFolder(String jarsFolder, String recommendedVersion) {
+        if (isPrefetch) {
             return;
         }
-        TreeMap<Version, List<File>> versions = createAgentsVersionsSortedMap(filesInFolder);
-        if (versions.size() > VERSIONS_HISTORY_TO_SAVE_BESIDE_RECOMMENDED) {
-            performJarsRearrangement(versions);
-        }
-    }
-
-    private void performJarsRearrangement(TreeMap<Version, List<File>> versions) {
-        versions = getVersionsToDelete(versions);
-        Iterator it = versions.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Version, List<File>> pair = (Map.Entry<Version, List<File>>) it.next();
-            List<File> agentsToDelete = pair.getValue();
-            for (File agent : agentsToDelete)
-                tryDeleteFile(agent, "old agent");
-        }
-    }
-
-    private TreeMap<Version, List<File>> getVersionsToDelete(TreeMap<Version, List<File>> versions) {
-        for (int i = 0; i < VERSIONS_HISTORY_TO_SAVE_BESIDE_RECOMMENDED; i++) {
-            versions.remove(versions.lastKey());
-        }
-        return versions;
-    }
-
-    private TreeMap<Version, List<File>> createAgentsVersionsSortedMap(File[] filesInFolder) {
-        TreeMap<Version, List<File>> versionsTree = new TreeMap<>();
-        for (File f : filesInFolder) {
-
-            if (f == null || !f.isFile())
-                continue;
-
-            String filename = f.getName();
-            boolean isAgentJar = filename.startsWith("sl-") && filename.endsWith(".jar");
-            if (!isAgentJar)
-                continue;
-
-            String detectedVersion = detectVersionFromAgentFileName(filename);
-            if (!Version.isValidVersion(detectedVersion)) {
-                continue;
-            }
-            Version v = new Version(detectedVersion);
-            addAgentToVersionAgentTree(versionsTree, v, f);
-        }
-
-        return versionsTree;
-    }
-
-    private String detectVersionFromAgentFileName(String fileName) {
-        fileName = fileName.replace(BUILD_SCANNER_COMPONENT_NAME.toString() + "-", "");
-        fileName = fileName.replace(TEST_LISTENER_COMPONENT_NAME.toString() + "-", "");
-        return fileName.replace(".jar", "");
-    }
-
-    private void addAgentToVersionAgentTree(TreeMap<Version, List<File>> versionsTree, Version version, File agent) {
-        List<File> listToAdd = tryGetMatchingVersionInVersionAgentTree(versionsTree, version);
-
-        if (listToAdd != null) {
-            listToAdd.add(agent);
-        } else {
-            //create new version key
-            List<File> filesRelatedToVersion = new ArrayList<>();
-            filesRelatedToVersion.add(agent);
-            versionsTree.put(version, filesRelatedToVersion);
-        }
-    }
-
-    private List<File> tryGetMatchingVersionInVersionAgentTree(TreeMap<Version, List<File>> versionsTree, Version version) {
-        for (Version v : versionsTree.keySet()) {
-            if (v.equals(version))
-                return versionsTree.get(v);
-        }
-        return null;
+        AgentCacheManifest manifest = AgentCacheManifest.forFolder(jarsFolder);
+        List<File> evictedAgents = agentCacheEvictor.evict(manifest, new Version(recommendedVersion), logger);
+        manifest.remove(evictedAgents, logger);
     }
 
     /**
@@ -221,35 +199,150 @@ public abstract class AbstractUpgradeManager {
                     "Recommended agent information was 'null'.");
             return null;
         }
-        String version = agentInfo.getVersion();
-        String url = agentInfo.getUrl();
-        String zipFilePath = getAgentsTargetZipFilePath(jarsFolder);
-
-        // try to download the agent to the target zip file.
-        logger.info("Trying to upgrade to version '" + version + "' from url '" + url + "'.");
-        if (!upgradeProxy.downloadAgent(url, zipFilePath)) {
-            logger.warning("Failed to download agent with version '" + version + "'.");
-        } else {
+        final String version = agentInfo.getVersion();
+        final String url = agentInfo.getUrl();
+        final String sha256 = agentInfo.getSha256();
+        final String jarsFolderPath = jarsFolder;
+
+        // Builds that need the same version, of any component, reuse a single download of all its agents
+        File lockFile = new File(jarsFolder, getFileToDownloadName() + "-" + version + AgentDownloadCoordinator.LOCK_FILE_EXTENSION);
+        String downloadedVersion = agentDownloadCoordinator.download(lockFile, new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                // Another build may have downloaded it while we waited for the lock
+                List<File> missingAgents = getMissingAgents(jarsFolderPath, version);
+                if (missingAgents.isEmpty())
+                    return version;
+                return downloadAndExtractAgents(jarsFolderPath, version, url, sha256, missingAgents) ? version : null;
+            }
+        }, logger);
+        return (downloadedVersion == null) ? null : tryGetRecommendedAgentFromFolder(jarsFolder, version);
+    }
+
+    /**
+     * Returns the agents of the version, of every component of the download, that aren't in the cache folder.
+     */
+    private List<File> getMissingAgents(String jarsFolder, String version) {
+        AgentCacheManifest manifest = AgentCacheManifest.forFolder(jarsFolder);
+        List<File> missingAgents = new ArrayList<>();
+        for (ComponentName component : getComponentsOfDownload()) {
+            File agent = getDownloadedAgent(jarsFolder, component, version);
+            if (manifest.find(agent.getName(), false, logger) == null)
+                missingAgents.add(agent);
+        }
+        return missingAgents;
+    }
+
+    private boolean downloadAndExtractAgents(String jarsFolder, String version, String url, String sha256,
+                                             List<File> missingAgents) throws IOException {
+        // Download and extract to unique temp locations, so an interrupted download or a concurrent build
+        // never leaves a partial agent under its final name
+        String uniqueSuffix = "." + UUID.randomUUID() + TEMP_EXTENSION;
+        File partialZip = new File(getAgentsTargetZipFilePath(jarsFolder) + uniqueSuffix);
+        if (streamExtractAgents(jarsFolder, version, url, sha256, missingAgents, uniqueSuffix, partialZip)) {
+            return true;
+        }
+        // The transfer failed, the whole zip is downloaded to the same file so it resumes from the bytes already read
+        logger.info("Falling back to downloading the whole zip of version '" + version + "'.");
+        return downloadZipAndExtractAgent(jarsFolder, version, url, sha256, uniqueSuffix) != null;
+    }
+
+    /**
+     * Extracts the missing jars of all the components from a single download.
+     *
+     * @return false if the transfer failed, in which case 'partialZip' keeps the bytes read so far.
+     */
+    private boolean streamExtractAgents(String jarsFolder, String version, String url, String sha256,
+                                        List<File> missingAgents, String uniqueSuffix, File partialZip) throws IOException {
+        Map<String, File> tempAgents = new LinkedHashMap<>();
+        for (File agent : missingAgents) {
+            tempAgents.put(agent.getName(), new File(agent.getPath() + uniqueSuffix));
+        }
+        try {
+            logger.info("Trying to upgrade to version '" + version + "' from url '" + url + "'.");
+            Set<String> extractedAgents = upgradeProxy.downloadAndExtractEntries(url, sha256, tempAgents, partialZip);
+            if (extractedAgents.isEmpty()) {
+                return false;
+            }
+            String agentName = getDownloadedAgent(jarsFolder, version).getName();
+            if (!extractedAgents.contains(agentName)) {
+                throw new IOException("The zip of version '" + version + "' doesn't contain '" + agentName + "'.");
+            }
+            logger.info("Download completed successfully.");
+            AgentCacheManifest manifest = AgentCacheManifest.forFolder(jarsFolder);
+            for (String extractedAgent : extractedAgents) {
+                placeAgent(tempAgents.get(extractedAgent).toPath(), new File(jarsFolder, extractedAgent).toPath(), manifest);
+            }
+            rearrangeJarsFolder(jarsFolder, version);
+            return true;
+        } finally {
+            for (File tempAgent : tempAgents.values())
+                tempAgent.delete();
+        }
+    }
+
+    private String downloadZipAndExtractAgent(String jarsFolder, String version, String url, String sha256, String uniqueSuffix) throws IOException {
+        String zipFilePath = getAgentsTargetZipFilePath(jarsFolder) + uniqueSuffix;
+        File extractionFolder = new File(jarsFolder, getFileToDownloadName() + uniqueSuffix);
+
+        try {
+            // try to download the agent to the target zip file.
+            logger.info("Trying to upgrade to version '" + version + "' from url '" + url + "'.");
+            if (!upgradeProxy.downloadAgent(url, sha256, zipFilePath)) {
+                logger.warning("Failed to download agent with version '" + version + "'.");
+                return null;
+            }
             logger.info("Download completed successfully.");
-            rearrangeJarsFolder(jarsFolder);
 
             // try to unzip the downloaded agent.
-            ArchiveUtils archiveUtils = new ArchiveUtils(logger);
-            archiveUtils.unzip(zipFilePath, jarsFolder);
-            tryDeleteDownloadedZip(zipFilePath);
+            try (Timings.Timer timer = Timings.start(Timings.AGENT_UNZIP)) {
+                ArchiveUtils archiveUtils = new ArchiveUtils(logger);
+                archiveUtils.unzip(zipFilePath, extractionFolder.getAbsolutePath());
+                if (extractionFolder.isDirectory())
+                    moveExtractedFiles(extractionFolder.toPath(), Paths.get(jarsFolder));
+            }
+            rearrangeJarsFolder(jarsFolder, version);
 
             File newAgent = getDownloadedAgent(jarsFolder, version);
             if (newAgent.isFile())
                 return newAgent.getAbsolutePath();
 
             logger.warning("Failed to unzip agent with version '" + version + "'.");
+            return null;
+        } finally {
+            tryDeleteDownloadedZip(zipFilePath);
+            FileAndFolderUtils.tryDeleteFolder(extractionFolder, logger);
+        }
+    }
+
+    private void moveExtractedFiles(final Path extractionFolder, final Path jarsFolder) throws IOException {
+        final AgentCacheManifest manifest = AgentCacheManifest.forFolder(jarsFolder.toString());
+        Files.walkFileTree(extractionFolder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path target = jarsFolder.resolve(extractionFolder.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                placeAgent(file, target, manifest);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void placeAgent(Path file, Path target, AgentCacheManifest manifest) throws IOException {
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (target.toString().endsWith(".jar")) {
+            String sha256 = AgentIntegrity.markVerified(target.toFile());
+            if (isPrefetch)
+                manifest.addPrefetched(target.toFile(), sha256, logger);
+            else
+                manifest.add(target.toFile(), sha256, logger);
         }
-        return null;
     }
 
     private String tryGetRecommendedAgentFromFolder(String jarsFolder, String recommendedVersion) {
         String jarNameToFind = getComponentNameDash() + recommendedVersion + ".jar";
-        File recommendedAgent = FileAndFolderUtils.findFileInFolder(jarsFolder, jarNameToFind);
+        AgentCacheManifest manifest = AgentCacheManifest.forFolder(jarsFolder);
+        File recommendedAgent = manifest.find(jarNameToFind, !isPrefetch, logger);
 
         if (recommendedAgent == null) {
             logger.info("Didn't find the recommended agent '" + jarNameToFind
@@ -261,6 +354,13 @@ public abstract class AbstractUpgradeManager {
                     + recommendedAgent.getAbsolutePath() + "' in file system or it is not a valid file.");
             return null;
         }
+        if (AgentIntegrity.check(recommendedAgent) == AgentIntegrity.Status.CORRUPTED) {
+            logger.warning("The agent '" + recommendedAgent.getAbsolutePath()
+                    + "' was changed since it was downloaded, it will be downloaded again.");
+            tryDeleteFile(recommendedAgent, "corrupted agent");
+            manifest.remove(Collections.singletonList(recommendedAgent), logger);
+            return null;
+        }
 
         return recommendedAgent.getAbsolutePath();
     }
@@ -276,8 +376,12 @@ public abstract class AbstractUpgradeManager {
     }
 
     private File getDownloadedAgent(String jarsFolder, String version) {
+        return getDownloadedAgent(jarsFolder, getComponentNameEnum(), version);
+    }
+
+    private File getDownloadedAgent(String jarsFolder, ComponentName component, String version) {
         Version recommendedVersion = new Version(version);
-        String newAgentName = getComponentNameDash() + recommendedVersion.get() + ".jar";
+        String newAgentName = component + "-" + recommendedVersion.get() + ".jar";
         String pathToNewAgent = PathUtils.join(jarsFolder, newAgentName);
         return new File(pathToNewAgent);
     }
@@ -301,6 +405,11 @@ public abstract class AbstractUpgradeManager {
 
     abstract String getFileToDownloadName();
 
+    /**
+     * The components whose jars are in the downloaded file, they are all extracted from a single download.
+     */
+    abstract List<ComponentName> getComponentsOfDownload();
+
     protected String getComponentName() {
         return getComponentNameEnum().toString();
     }
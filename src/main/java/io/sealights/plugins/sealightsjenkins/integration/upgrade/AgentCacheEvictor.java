@@ -0,0 +1,165 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.Version;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Decides which agent versions are evicted from the cache folder.
+ * Versions are kept from the most recently used one (as recorded by the {@link AgentCacheManifest}), until the
+ * maximum number of versions or the size budget is reached. The version that was just resolved is always kept, and so is any version that a running command leased
+ * (see {@link AgentLease}).
+ */
+public class AgentCacheEvictor {
+
+    public static final int DEFAULT_MAX_VERSIONS = 3;
+
+    private static final AgentCacheEvictor INSTANCE = new AgentCacheEvictor();
+
+    private volatile int maxVersions = DEFAULT_MAX_VERSIONS;
+    private volatile long maxBytes = 0;
+
+    public static AgentCacheEvictor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param maxVersions the number of versions to keep, a value lower than 1 sets the default.
+     * @param maxBytes    the total size of the versions to keep, 0 for unlimited.
+     */
+    public void configure(int maxVersions, long maxBytes) {
+        this.maxVersions = maxVersions > 0 ? maxVersions : DEFAULT_MAX_VERSIONS;
+        this.maxBytes = Math.max(maxBytes, 0);
+    }
+
+    public int getMaxVersions() {
+        return maxVersions;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Deletes the agents of the manifest's folder that are out of the budget, with the files kept beside them,
+     * and returns them.
+     */
+    public List<File> evict(AgentCacheManifest manifest, Version versionToKeep, Logger logger) {
+        AgentCacheFolderIndex index = AgentCacheFolderIndex.of(manifest.getFolder());
+        List<AgentCacheManifest.AgentEntry> agentsToEvict =
+                selectAgentsToEvict(groupByVersion(manifest.getEntries(logger)), index, versionToKeep, logger);
+
+        List<File> evictedAgents = new ArrayList<>();
+        for (AgentCacheManifest.AgentEntry agentToEvict : agentsToEvict) {
+            File agent = manifest.getFile(agentToEvict);
+            tryDeleteFile(agent, "old agent", logger);
+            // Its verification file and class data sharing archives are useless without it
+            for (File agentFile : index.getFiles(agentToEvict.getFileName()))
+                tryDeleteFile(agentFile, "old agent file", logger);
+            evictedAgents.add(agent);
+        }
+        return evictedAgents;
+    }
+
+    List<AgentCacheManifest.AgentEntry> selectAgentsToEvict(Map<Version, List<AgentCacheManifest.AgentEntry>> versions,
+                                                            AgentCacheFolderIndex index, Version versionToKeep, Logger logger) {
+        List<Map.Entry<Version, List<AgentCacheManifest.AgentEntry>>> byLastUse = new ArrayList<>(versions.entrySet());
+        Collections.sort(byLastUse, new Comparator<Map.Entry<Version, List<AgentCacheManifest.AgentEntry>>>() {
+            @Override
+            public int compare(Map.Entry<Version, List<AgentCacheManifest.AgentEntry>> v1,
+                               Map.Entry<Version, List<AgentCacheManifest.AgentEntry>> v2) {
+                return Long.compare(getLastUse(v2.getValue()), getLastUse(v1.getValue()));
+            }
+        });
+
+        // The version to keep takes its share of the budget first
+        List<AgentCacheManifest.AgentEntry> keptAgents = versions.containsKey(versionToKeep)
+                ? versions.get(versionToKeep) : new ArrayList<AgentCacheManifest.AgentEntry>();
+        int keptVersions = 1;
+        long keptBytes = getSize(keptAgents, index);
+
+        List<AgentCacheManifest.AgentEntry> agentsToEvict = new ArrayList<>();
+        for (Map.Entry<Version, List<AgentCacheManifest.AgentEntry>> version : byLastUse) {
+            if (version.getKey().equals(versionToKeep)) {
+                continue;
+            }
+
+            long size = getSize(version.getValue(), index);
+            boolean isInBudget = keptVersions < maxVersions && (maxBytes == 0 || keptBytes + size <= maxBytes);
+            if (!isInBudget && isLeased(version.getValue(), index)) {
+                logger.info("Agent version '" + version.getKey() + "' is used by a running command, it will be evicted later.");
+                isInBudget = true;
+            }
+
+            if (isInBudget) {
+                keptVersions++;
+                keptBytes += size;
+            } else {
+                agentsToEvict.addAll(version.getValue());
+            }
+        }
+        return agentsToEvict;
+    }
+
+    static Map<Version, List<AgentCacheManifest.AgentEntry>> groupByVersion(List<AgentCacheManifest.AgentEntry> agents) {
+        Map<Version, List<AgentCacheManifest.AgentEntry>> versions = new TreeMap<>();
+        for (AgentCacheManifest.AgentEntry agent : agents) {
+            if (!Version.isValidVersion(agent.getVersion())) {
+                continue;
+            }
+            Version version = new Version(agent.getVersion());
+            if (!versions.containsKey(version)) {
+                versions.put(version, new ArrayList<AgentCacheManifest.AgentEntry>());
+            }
+            versions.get(version).add(agent);
+        }
+        return versions;
+    }
+
+    private long getLastUse(List<AgentCacheManifest.AgentEntry> agents) {
+        long lastUse = 0;
+        for (AgentCacheManifest.AgentEntry agent : agents) {
+            lastUse = Math.max(lastUse, agent.getLastUsed());
+        }
+        return lastUse;
+    }
+
+    private long getSize(List<AgentCacheManifest.AgentEntry> agents, AgentCacheFolderIndex index) {
+        long size = 0;
+        for (AgentCacheManifest.AgentEntry agent : agents) {
+            size += agent.getSize();
+            for (File archive : index.getArchives(agent.getFileName()))
+                size += archive.length();
+        }
+        return size;
+    }
+
+    private boolean isLeased(List<AgentCacheManifest.AgentEntry> agents, AgentCacheFolderIndex index) {
+        for (AgentCacheManifest.AgentEntry agent : agents) {
+            if (AgentLease.isLeased(index.getLeaseFiles(agent.getFileName())))
+                return true;
+        }
+        return false;
+    }
+
+    private void tryDeleteFile(File file, String descriptor, Logger logger) {
+        try {
+            if (file.delete()) {
+                logger.info("Successfully deleted " + descriptor + ": '" + file.getAbsolutePath() + "'.");
+                return;
+            }
+            if (file.exists()) {
+                logger.warning("Failed to delete " + descriptor + ": '" + file.getAbsolutePath() + "'.");
+            }
+        } catch (Exception e) {
+            logger.error("Failed to delete " + descriptor + ": '" + file.getAbsolutePath() + "'. Error: ", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.FastStartProfile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The files kept beside the agents of a cache folder, named '[jar].[suffix]' (leases, verification files, class
+ * data sharing archives), taken from a single listing of the folder rather than a listing per agent.
+ */
+class AgentCacheFolderIndex {
+
+    private static final String JAR_EXTENSION = ".jar";
+
+    private final Map<String, List<File>> filesByAgent = new HashMap<>();
+
+    static AgentCacheFolderIndex of(File folder) {
+        AgentCacheFolderIndex index = new AgentCacheFolderIndex();
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return index;
+        }
+        for (File f : files) {
+            int jarExtensionEnd = f.getName().indexOf(JAR_EXTENSION + ".");
+            if (jarExtensionEnd < 0) {
+                continue;
+            }
+            String agentFileName = f.getName().substring(0, jarExtensionEnd + JAR_EXTENSION.length());
+            List<File> agentFiles = index.filesByAgent.get(agentFileName);
+            if (agentFiles == null) {
+                agentFiles = new ArrayList<>();
+                index.filesByAgent.put(agentFileName, agentFiles);
+            }
+            agentFiles.add(f);
+        }
+        return index;
+    }
+
+    /**
+     * Returns every file kept beside the agent, they are all useless without it.
+     */
+    List<File> getFiles(String agentFileName) {
+        List<File> agentFiles = filesByAgent.get(agentFileName);
+        return agentFiles == null ? Collections.<File>emptyList() : agentFiles;
+    }
+
+    List<File> getLeaseFiles(String agentFileName) {
+        List<File> leaseFiles = new ArrayList<>();
+        for (File f : getFiles(agentFileName)) {
+            if (AgentLease.isLeaseFile(agentFileName, f.getName()))
+                leaseFiles.add(f);
+        }
+        return leaseFiles;
+    }
+
+    List<File> getArchives(String agentFileName) {
+        List<File> archives = new ArrayList<>();
+        for (File f : getFiles(agentFileName)) {
+            if (FastStartProfile.isArchiveName(agentFileName, f.getName()))
+                archives.add(f);
+        }
+        return archives;
+    }
+}
@@ -0,0 +1,339 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.sealights.plugins.sealightsjenkins.utils.JsonSerializer;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An index of the agents in a cache folder, kept in '[cache folder]/manifest.json', so looking up an agent doesn't
+ * list the folder (which is slow on shared storage). It is also the record of when each agent was last used, by which
+ * the cache is ordered for eviction (see {@link AgentCacheEvictor}).
+ * The manifest is re-read only when it was changed by another process, and is updated under a lock file with an
+ * atomic rename. A missing or corrupted manifest is rebuilt from the folder.
+ */
+public class AgentCacheManifest {
+
+    static final String MANIFEST_FILE_NAME = "manifest.json";
+    private static final String LOCK_FILE_EXTENSION = ".lock";
+    private static final Pattern AGENT_FILE_NAME = Pattern.compile("^(sl-.+)-(\\d+(\\.\\d+)*)\\.jar$");
+
+    // Lookups record the last use at this resolution, so they don't rewrite the manifest on every build
+    private static final long LAST_USE_RESOLUTION_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final ConcurrentMap<String, AgentCacheManifest> MANIFESTS = new ConcurrentHashMap<>();
+
+    private final File folder;
+    private final File manifestFile;
+    private Map<String, AgentEntry> agents;
+    private long loadedLastModified = -1;
+    private long loadedLength = -1;
+
+    AgentCacheManifest(File folder) {
+        this.folder = folder;
+        this.manifestFile = new File(folder, MANIFEST_FILE_NAME);
+    }
+
+    public static AgentCacheManifest forFolder(String folder) {
+        String key = new File(folder).getAbsolutePath();
+        MANIFESTS.putIfAbsent(key, new AgentCacheManifest(new File(key)));
+        return MANIFESTS.get(key);
+    }
+
+    /**
+     * Returns the agent, or 'null' if it isn't in the cache folder. Finding an agent records its use.
+     */
+    public File find(String fileName, Logger logger) {
+        return find(fileName, true, logger);
+    }
+
+    /**
+     * Returns the agent, or 'null' if it isn't in the cache folder.
+     *
+     * @param recordUse whether the agent is looked up to be used, rather than to check that it is there.
+     */
+    public synchronized File find(final String fileName, boolean recordUse, Logger logger) {
+        AgentEntry entry = getAgents(logger).get(fileName);
+        if (entry == null) {
+            return null;
+        }
+
+        File agent = new File(folder, fileName);
+        if (!agent.isFile()) {
+            // Deleted by someone else
+            update(new Update() {
+                @Override
+                public void apply(Map<String, AgentEntry> agents) {
+                    agents.remove(fileName);
+                }
+            }, logger);
+            return null;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (recordUse && now - entry.getLastUsed() > LAST_USE_RESOLUTION_MILLIS) {
+            update(new Update() {
+                @Override
+                public void apply(Map<String, AgentEntry> agents) {
+                    if (agents.containsKey(fileName))
+                        agents.get(fileName).setLastUsed(now);
+                }
+            }, logger);
+        }
+        return agent;
+    }
+
+    /**
+     * Adds an agent that was placed in the cache folder for a build, as used now. Files that aren't agents are ignored.
+     */
+    public void add(File agent, String sha256, Logger logger) {
+        add(agent, sha256, true, logger);
+    }
+
+    /**
+     * Adds an agent that was placed in the cache folder before any build asked for it (i.e, prefetched). It keeps the
+     * last use of the agent it replaces, or has none, so the agents builds use are not evicted in its favor.
+     */
+    public void addPrefetched(File agent, String sha256, Logger logger) {
+        add(agent, sha256, false, logger);
+    }
+
+    private synchronized void add(File agent, String sha256, final boolean isUse, Logger logger) {
+        final AgentEntry entry = createEntry(agent, isUse ? System.currentTimeMillis() : 0);
+        if (entry == null) {
+            return;
+        }
+        entry.setSha256(sha256);
+        update(new Update() {
+            @Override
+            public void apply(Map<String, AgentEntry> agents) {
+                AgentEntry previousEntry = agents.get(entry.getFileName());
+                if (!isUse && previousEntry != null)
+                    entry.setLastUsed(previousEntry.getLastUsed());
+                agents.put(entry.getFileName(), entry);
+            }
+        }, logger);
+    }
+
+    public synchronized void remove(final Collection<File> removedAgents, Logger logger) {
+        if (removedAgents.isEmpty()) {
+            return;
+        }
+        update(new Update() {
+            @Override
+            public void apply(Map<String, AgentEntry> agents) {
+                for (File agent : removedAgents)
+                    agents.remove(agent.getName());
+            }
+        }, logger);
+    }
+
+    public synchronized List<AgentEntry> getEntries(Logger logger) {
+        return new ArrayList<>(getAgents(logger).values());
+    }
+
+    public File getFolder() {
+        return folder;
+    }
+
+    public File getFile(AgentEntry entry) {
+        return new File(folder, entry.getFileName());
+    }
+
+    private Map<String, AgentEntry> getAgents(Logger logger) {
+        boolean isChanged = manifestFile.lastModified() != loadedLastModified || manifestFile.length() != loadedLength;
+        if (agents == null || isChanged) {
+            agents = read(logger);
+            rememberLoadedState();
+        }
+        if (agents == null) {
+            // Missing or corrupted, 'update' rebuilds it
+            update(new Update() {
+                @Override
+                public void apply(Map<String, AgentEntry> agents) {
+                }
+            }, logger);
+        }
+        return agents;
+    }
+
+    private void update(Update update, Logger logger) {
+        Map<String, AgentEntry> updatedAgents;
+        File lockFile = new File(manifestFile.getPath() + LOCK_FILE_EXTENSION);
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            // Another process may have changed it since it was read
+            updatedAgents = read(null);
+            if (updatedAgents == null) {
+                logger.info("Building the agents cache manifest of '" + folder + "'.");
+                updatedAgents = scanFolder();
+            }
+            update.apply(updatedAgents);
+            write(updatedAgents);
+        } catch (IOException | RuntimeException e) {
+            // The manifest is only an index, the folder stays usable without it
+            logger.warning("Failed to update the agents cache manifest '" + manifestFile + "'. Error: " + e.getMessage());
+            if (agents == null) {
+                agents = scanFolder();
+            }
+            update.apply(agents);
+            return;
+        }
+        agents = updatedAgents;
+        rememberLoadedState();
+    }
+
+    private Map<String, AgentEntry> read(Logger logger) {
+        if (!manifestFile.isFile()) {
+            return null;
+        }
+        try {
+            Manifest manifest = JsonSerializer.deserialize(manifestFile, Manifest.class);
+            return manifest.getAgents();
+        } catch (RuntimeException e) {
+            if (logger != null)
+                logger.warning("The agents cache manifest '" + manifestFile + "' is corrupted, it will be rebuilt. Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Map<String, AgentEntry> agentsToWrite) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.setAgents(agentsToWrite);
+        File tempFile = new File(manifestFile.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            JsonSerializer.serializeToFile(tempFile, manifest);
+            Files.move(tempFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private void rememberLoadedState() {
+        loadedLastModified = manifestFile.lastModified();
+        loadedLength = manifestFile.length();
+    }
+
+    private Map<String, AgentEntry> scanFolder() {
+        Map<String, AgentEntry> scannedAgents = new HashMap<>();
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return scannedAgents;
+        }
+        for (File f : files) {
+            // The time the agent was placed is the best known last use of an agent that isn't in the manifest
+            AgentEntry entry = createEntry(f, f.lastModified());
+            if (entry != null) {
+                scannedAgents.put(entry.getFileName(), entry);
+            }
+        }
+        return scannedAgents;
+    }
+
+    private AgentEntry createEntry(File agent, long lastUsed) {
+        Matcher matcher = AGENT_FILE_NAME.matcher(agent.getName());
+        if (!agent.isFile() || !matcher.matches()) {
+            return null;
+        }
+        AgentEntry entry = new AgentEntry();
+        entry.setComponent(matcher.group(1));
+        entry.setVersion(matcher.group(2));
+        entry.setFileName(agent.getName());
+        entry.setSize(agent.length());
+        entry.setLastUsed(lastUsed);
+        return entry;
+    }
+
+    private interface Update {
+        void apply(Map<String, AgentEntry> agents);
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Manifest {
+        private Map<String, AgentEntry> agents;
+
+        public Map<String, AgentEntry> getAgents() {
+            return agents;
+        }
+
+        public void setAgents(Map<String, AgentEntry> agents) {
+            this.agents = agents;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class AgentEntry {
+        private String component;
+        private String version;
+        private String fileName;
+        private long size;
+        private String sha256;
+        private long lastUsed;
+
+        public String getComponent() {
+            return component;
+        }
+
+        public void setComponent(String component) {
+            this.component = component;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public void setVersion(String version) {
+            this.version = version;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public void setFileName(String fileName) {
+            this.fileName = fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public void setLastUsed(long lastUsed) {
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Makes sure a version of an agent is downloaded only once, even when many builds need it at the same time.
+ * Builds in this JVM that need the same version wait for the build that started the download and reuse its result.
+ * The download itself runs under a lock file in the cache folder, so Jenkins instances (or executors) that share the
+ * files storage download it once as well.
+ */
+public class AgentDownloadCoordinator {
+
+    static final String LOCK_FILE_EXTENSION = ".lock";
+
+    private static final AgentDownloadCoordinator INSTANCE = new AgentDownloadCoordinator();
+
+    private final ConcurrentMap<String, FutureTask<String>> downloads = new ConcurrentHashMap<>();
+
+    public static AgentDownloadCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the download, or waits for the one that is already running for the same lock file.
+     *
+     * @param lockFile identifies the download, i.e '[cache folder]/sealights-java-1.2.3.lock'
+     * @param download downloads the agents and returns its result (i.e, the downloaded version). It runs while holding
+     *                 the lock, so it should first check whether another process already downloaded the agents.
+     * @return the result of the download
+     */
+    public String download(final File lockFile, final Callable<String> download, final Logger logger) throws IOException {
+        final String key = lockFile.getAbsolutePath();
+        FutureTask<String> newDownload = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return downloadUnderFileLock(lockFile, download, logger);
+            }
+        });
+
+        FutureTask<String> currentDownload = downloads.putIfAbsent(key, newDownload);
+        if (currentDownload == null) {
+            try {
+                newDownload.run();
+            } finally {
+                downloads.remove(key, newDownload);
+            }
+            currentDownload = newDownload;
+        } else {
+            String agentName = lockFile.getName().replace(LOCK_FILE_EXTENSION, "");
+            logger.info("Another build is already downloading '" + agentName + "', waiting for it to complete.");
+        }
+
+        return getResult(currentDownload);
+    }
+
+    private String downloadUnderFileLock(File lockFile, Callable<String> download, Logger logger) throws Exception {
+        lockFile.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                logger.info("'" + lockFile + "' is locked by another process, waiting for it to release the lock.");
+                lock = channel.lock();
+            }
+            try {
+                return download.call();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private String getResult(FutureTask<String> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the agent download.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to download the agent.", cause);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Records the state of the agents that were verified when they were added to the cache folder, in a
+ * '[jar].verified' file beside each jar.
+ * Later builds compare the jar with the recorded size and modification time instead of hashing it again,
+ * so a jar that was truncated or replaced is detected cheaply.
+ */
+public class AgentIntegrity {
+
+    static final String VERIFIED_FILE_EXTENSION = ".verified";
+
+    private static final String SHA256_PROPERTY = "sha256";
+    private static final String SIZE_PROPERTY = "size";
+    private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+
+    public enum Status {
+        VERIFIED,
+        // The jar was added before its state was recorded (i.e, by an older version of the plugin)
+        UNKNOWN,
+        CORRUPTED
+    }
+
+    public static String sha256(File file) throws IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            return DigestUtils.sha256Hex(inputStream);
+        }
+    }
+
+    /**
+     * Records the state of the jar and returns its sha256.
+     */
+    public static String markVerified(File jar) throws IOException {
+        String sha256 = sha256(jar);
+        Properties properties = new Properties();
+        properties.setProperty(SHA256_PROPERTY, sha256);
+        properties.setProperty(SIZE_PROPERTY, String.valueOf(jar.length()));
+        properties.setProperty(LAST_MODIFIED_PROPERTY, String.valueOf(jar.lastModified()));
+        try (OutputStream outputStream = new FileOutputStream(getVerifiedFile(jar))) {
+            properties.store(outputStream, null);
+        }
+        return sha256;
+    }
+
+    public static Status check(File jar) {
+        File verifiedFile = getVerifiedFile(jar);
+        if (!verifiedFile.isFile()) {
+            return Status.UNKNOWN;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(verifiedFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            return Status.UNKNOWN;
+        }
+
+        boolean isSameSize = String.valueOf(jar.length()).equals(properties.getProperty(SIZE_PROPERTY));
+        boolean isSameModificationTime = String.valueOf(jar.lastModified()).equals(properties.getProperty(LAST_MODIFIED_PROPERTY));
+        return (isSameSize && isSameModificationTime) ? Status.VERIFIED : Status.CORRUPTED;
+    }
+
+    public static File getVerifiedFile(File jar) {
+        return new File(jar.getPath() + VERIFIED_FILE_EXTENSION);
+    }
+}
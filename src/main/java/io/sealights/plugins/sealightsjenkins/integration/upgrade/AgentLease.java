@@ -0,0 +1,89 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks an agent in the cache folder as in use, so it is not evicted while a command runs it.
+ * A lease is a '[jar].[id].lease' file beside the jar, so it is seen by every Jenkins that shares the files storage.
+ * The time an agent was last used is kept by the {@link AgentCacheManifest}, when the agent is resolved.
+ */
+public class AgentLease implements AutoCloseable {
+
+    static final String LEASE_FILE_EXTENSION = ".lease";
+
+    // A lease that wasn't released by then was left by a Jenkins that crashed
+    private static final long STALE_LEASE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private final File leaseFile;
+
+    private AgentLease(File leaseFile) {
+        this.leaseFile = leaseFile;
+    }
+
+    /**
+     * Leases the agent. An agent that isn't a file (i.e, not in the cache folder) isn't leased.
+     */
+    public static AgentLease acquire(String agentPath) {
+        return acquire(agentPath, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Leases the agent under a known id, so the lease can be released from another machine
+     * (see {@link #getLeaseFileName}).
+     */
+    public static AgentLease acquire(String agentPath, String leaseId) {
+        if (StringUtils.isNullOrEmpty(agentPath) || !new File(agentPath).isFile()) {
+            return new AgentLease(null);
+        }
+
+        File jar = new File(agentPath);
+        File leaseFile = getLeaseFile(jar, leaseId);
+        try {
+            leaseFile.createNewFile();
+        } catch (IOException e) {
+            // The cache folder is read only for us, so we can't evict from it either
+            return new AgentLease(null);
+        }
+        return new AgentLease(leaseFile);
+    }
+
+    @Override
+    public void close() {
+        if (leaseFile != null) {
+            leaseFile.delete();
+        }
+    }
+
+    static File getLeaseFile(File jar, String leaseId) {
+        return new File(jar.getParentFile(), getLeaseFileName(jar.getName(), leaseId));
+    }
+
+    public static String getLeaseFileName(String agentFileName, String leaseId) {
+        return agentFileName + "." + leaseId + LEASE_FILE_EXTENSION;
+    }
+
+    static boolean isLeaseFile(String agentFileName, String fileName) {
+        return fileName.startsWith(agentFileName + ".") && fileName.endsWith(LEASE_FILE_EXTENSION);
+    }
+
+    /**
+     * Returns whether one of the lease files of an agent is held. Stale leases are deleted.
+     */
+    static boolean isLeased(List<File> leaseFiles) {
+        boolean isLeased = false;
+        for (File f : leaseFiles) {
+            if (System.currentTimeMillis() - f.lastModified() > STALE_LEASE_MILLIS) {
+                f.delete();
+            } else {
+                isLeased = true;
+            }
+        }
+        return isLeased;
+    }
+}
@@ -0,0 +1,90 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.services.HttpResponse;
+import org.apache.http.HttpStatus;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A local folder (or 'file://' url) that replaces the SeaLights server for resolving agents, for build farms that
+ * can't reach the server and for hermetic tests. It can be refreshed by a separate job. Its layout is:
+ * <pre>
+ *     [mirror]/[component]/recommended.json - the server's recommended version response (i.e, 'sealights-java')
+ *     [mirror]/[agent zip]                  - the agents, relative urls in the responses are resolved against the mirror
+ * </pre>
+ * The agents are never downloaded from elsewhere: an absolute url in a response (i.e, a copy of the server's response)
+ * is resolved by its file name, as '[mirror]/[file name]'.
+ */
+public class AgentsMirror {
+
+    static final String RECOMMENDED_VERSION_FILE_NAME = "recommended.json";
+    private static final String FILE_URL_SCHEME = "file:";
+
+    private final File folder;
+
+    public AgentsMirror(String location) {
+        this.folder = isFileUrl(location) ? new File(URI.create(location)) : new File(location);
+    }
+
+    /**
+     * Returns the recommended version response of the component.
+     *
+     * @throws FileNotFoundException if the mirror doesn't have the component.
+     */
+    public String readRecommendedVersion(String componentName) throws IOException {
+        File recommendedVersionFile = new File(new File(folder, componentName), RECOMMENDED_VERSION_FILE_NAME);
+        if (!recommendedVersionFile.isFile()) {
+            throw new FileNotFoundException("The agents mirror doesn't have '" + recommendedVersionFile + "'.");
+        }
+        return new String(Files.readAllBytes(recommendedVersionFile.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolves a url of the mirror into a 'file://' url. A relative url is resolved against the mirror, an absolute
+     * url by its file name. 'file://' urls are returned as is.
+     *
+     * @throws FileNotFoundException if the url is absolute and the mirror doesn't have its file.
+     */
+    public String resolveUrl(String url) throws FileNotFoundException {
+        if (url == null || isFileUrl(url)) {
+            return url;
+        }
+        if (!url.contains("://")) {
+            return new File(folder, url).toURI().toString();
+        }
+
+        String path = URI.create(url).getPath();
+        String fileName = (path == null) ? "" : path.substring(path.lastIndexOf('/') + 1);
+        File file = new File(folder, fileName);
+        if (fileName.isEmpty() || !file.isFile()) {
+            throw new FileNotFoundException("The agents mirror doesn't have the agent of '" + url + "', expected it at '"
+                    + file + "'. Copy the agent into the mirror, it is not downloaded when a mirror is set.");
+        }
+        return file.toURI().toString();
+    }
+
+    public static boolean isFileUrl(String url) {
+        return url != null && url.regionMatches(true, 0, FILE_URL_SCHEME, 0, FILE_URL_SCHEME.length());
+    }
+
+    /**
+     * Reads a 'file://' url as if it was downloaded, a missing file is 'not found'.
+     */
+    public static HttpResponse getFile(String fileUrl) throws IOException {
+        File file = new File(URI.create(fileUrl));
+        HttpResponse httpResponse = new HttpResponse();
+        if (!file.isFile()) {
+            httpResponse.setStatusCode(HttpStatus.SC_NOT_FOUND);
+            return httpResponse;
+        }
+        httpResponse.setStatusCode(HttpStatus.SC_OK);
+        httpResponse.setResponseStream(new FileInputStream(file));
+        return httpResponse;
+    }
+}
@@ -0,0 +1,73 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.PrefetchTargets.PrefetchTarget;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the recommended versions of the recently used {@link PrefetchTargets} in the background, and downloads
+ * new agents into the cache folder before a build asks for them. Prefetched agents are not recorded as used, so they
+ * don't push the agents that builds use out of the cache.
+ */
+@Extension
+public class AgentsPrefetchWork extends AsyncPeriodicWork {
+
+    private static final long RECURRENCE_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    public AgentsPrefetchWork() {
+        super("SeaLights Agents Prefetch");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD_MILLIS;
+    }
+
+    /**
+     * Runs on the thread of the periodic work, one target after the other. The pool of the {@link AsyncHttpClient}
+     * is kept for the requests that builds wait for.
+     */
+    @Override
+    protected void execute(TaskListener listener) throws InterruptedException {
+        Logger logger = new Logger(listener.getLogger(), "SeaLights Agents Prefetch");
+
+        for (PrefetchTarget target : PrefetchTargets.getInstance().getTargets()) {
+            UpgradeConfiguration upgradeConfiguration = target.getUpgradeConfiguration();
+            for (String componentName : target.getComponentNames()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                try {
+                    prefetch(componentName, upgradeConfiguration, logger);
+                } catch (IOException | RuntimeException e) {
+                    // A failed prefetch only means the next build resolves the agent by itself
+                    logger.warning("Failed to prefetch '" + componentName + "' for app '" + upgradeConfiguration.getAppName()
+                            + "'. Error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void prefetch(String componentName, UpgradeConfiguration upgradeConfiguration, Logger logger) throws IOException {
+        UpgradeProxy upgradeProxy = new UpgradeProxy(upgradeConfiguration, logger);
+        if ("sealights-java".equals(componentName)) {
+            // Both components share a single download of the agents zip, which extracts the jars of both
+            for (AbstractUpgradeManager upgradeManager : Arrays.asList(
+                    new BuildScannerUpgradeManager(upgradeProxy, upgradeConfiguration, logger),
+                    new TestListenerUpgradeManager(upgradeProxy, upgradeConfiguration, logger))) {
+                upgradeManager.setPrefetch(true);
+                upgradeManager.ensureLatestAgentPresentLocally();
+            }
+        } else {
+            // The maven plugin is resolved by maven itself, only its recommended version is cached here
+            upgradeProxy.getRecommendedVersion(componentName);
+        }
+    }
+}
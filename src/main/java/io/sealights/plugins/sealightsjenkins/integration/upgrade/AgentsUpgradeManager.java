@@ -1,8 +1,12 @@
 package io.sealights.plugins.sealightsjenkins.integration.upgrade;
 
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.ComponentName;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 
+import java.util.Arrays;
+import java.util.List;
+
 public abstract class AgentsUpgradeManager extends AbstractUpgradeManager {
 
     public AgentsUpgradeManager(UpgradeProxy upgradeProxy, UpgradeConfiguration upgradeConfiguration, Logger logger) {
@@ -13,5 +17,10 @@ public abstract class AgentsUpgradeManager extends AbstractUpgradeManager {
     protected String getFileToDownloadName() {
         return "sealights-java";
     }
+
+    @Override
+    protected List<ComponentName> getComponentsOfDownload() {
+        return Arrays.asList(ComponentName.values());
+    }
 }
 
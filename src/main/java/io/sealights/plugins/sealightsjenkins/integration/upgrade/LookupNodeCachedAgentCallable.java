@@ -0,0 +1,41 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import org.jenkinsci.remoting.RoleChecker;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs on the node. Returns whether the agent is in the node's {@link NodeAgentCache}, and leases its entry for the
+ * build so it is not evicted while the build uses it.
+ */
+public class LookupNodeCachedAgentCallable implements FilePath.FileCallable<Boolean> {
+    private static final long serialVersionUID = 1L;
+
+    private String leaseId;
+
+    public LookupNodeCachedAgentCallable(String leaseId) {
+        this.leaseId = leaseId;
+    }
+
+    @Override
+    public Boolean invoke(File cachedAgent, VirtualChannel channel) throws IOException, InterruptedException {
+        // Eviction runs under the same lock, so an entry found here is not deleted before it is leased
+        synchronized (StoreNodeCachedAgentCallable.CACHE_LOCK) {
+            if (!cachedAgent.isFile()) {
+                return false;
+            }
+            AgentLease.getLeaseFile(cachedAgent, leaseId).createNewFile();
+            // The entries are evicted by the modification time of their folder
+            cachedAgent.getParentFile().setLastModified(System.currentTimeMillis());
+            return true;
+        }
+    }
+
+    @Override
+    public void checkRoles(RoleChecker roleChecker) throws SecurityException {
+
+    }
+}
@@ -5,9 +5,12 @@ import io.sealights.onpremise.agents.infra.logging.ILogger;
 import io.sealights.plugins.sealightsjenkins.entities.TokenData;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeResponse;
+import io.sealights.plugins.sealightsjenkins.services.AsyncHttpClient;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * This class is responsible to get SeaLights-maven-plugin recommended version
@@ -16,19 +19,38 @@ public class MavenPluginUpgradeManager {
 
     private SeaLightsPluginInfo slInfo;
     private ILogger logger;
+    private String agentsMirror;
+    private AsyncHttpClient asyncHttpClient = AsyncHttpClient.getInstance();
 
     public MavenPluginUpgradeManager(SeaLightsPluginInfo slInfo, ILogger logger) {
         this.slInfo = slInfo;
         this.logger = logger;
     }
 
+    public void setAgentsMirror(String agentsMirror) {
+        this.agentsMirror = agentsMirror;
+    }
+
     public String queryServerForMavenPluginVersion() throws IOException {
         UpgradeConfiguration upgradeConfiguration = createUpgradeConfiguration();
+        PrefetchTargets.getInstance().record("sl-maven-plugin", upgradeConfiguration);
         UpgradeProxy upgradeProxy = new UpgradeProxy(upgradeConfiguration, logger);
         UpgradeResponse upgradeResponse = upgradeProxy.getRecommendedVersion("sl-maven-plugin");
         return upgradeResponse.getAgent().getVersion();
     }
 
+    /**
+     * Starts querying the server, so the build can do other work until it needs the version.
+     */
+    public Future<String> queryServerForMavenPluginVersionAsync() {
+        return asyncHttpClient.submit(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return queryServerForMavenPluginVersion();
+            }
+        });
+    }
+
     private UpgradeConfiguration createUpgradeConfiguration(){
 
         String token = null;
@@ -42,7 +64,7 @@ public class MavenPluginUpgradeManager {
             server = tokenData.getServer();
         }
 
-        return new UpgradeConfiguration(
+        UpgradeConfiguration upgradeConfiguration = new UpgradeConfiguration(
                 token,
                 customerId,
                 slInfo.getBuildSessionId(),
@@ -53,5 +75,7 @@ public class MavenPluginUpgradeManager {
                 slInfo.getProxy(),
                 slInfo.getFilesStorage()
         );
+        upgradeConfiguration.setAgentsMirror(agentsMirror);
+        return upgradeConfiguration;
     }
 }
@@ -0,0 +1,170 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.slaves.SlaveComputer;
+import io.sealights.plugins.sealightsjenkins.utils.FileUtils;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the agents that builds copy to a node in a cache on the node, under
+ * '[node root]/sl-cache/agents-by-hash/[sha256]/[jar name]'.
+ * The master sends the hash first and copies the jar only if the node doesn't have it yet, so an agent crosses the
+ * remoting channel once per node instead of once per build. A build leases the entries it uses until it completes
+ * (see {@link NodeAgentLeasesRunListener}), and the least recently used entries that aren't leased are evicted on the node.
+ */
+public class NodeAgentCache {
+
+    static final String CACHE_RELATIVE_FOLDER = "agents-by-hash";
+    static final int MAX_ENTRIES = 10;
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final NodeAgentCache INSTANCE = new NodeAgentCache();
+
+    // The hashes of the agents on the master, by path. An agent replaced in place overwrites its entry.
+    private final ConcurrentMap<String, FileHash> sha256ByFile = new ConcurrentHashMap<>();
+
+    // The lease files on the nodes, by the build that holds them
+    private final ConcurrentMap<String, List<FilePath>> leasesByBuild = new ConcurrentHashMap<>();
+
+    public static NodeAgentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Makes the agent available on the node the build runs on, leased for the build until {@link #releaseLeases}.
+     *
+     * @param buildId the externalizable id of the build.
+     * @return the path of the agent on the node. On the master, the agent is returned as is.
+     */
+    public String copyToNode(Logger logger, String agentOnMaster, String buildId) throws IOException, InterruptedException {
+        Computer computer = Computer.currentComputer();
+        if (!(computer instanceof SlaveComputer)) {
+            logger.debug("There is no need to copy '" + agentOnMaster + "' since the current machine is a master Jenkins machine.");
+            return agentOnMaster;
+        }
+
+        File agent = new File(agentOnMaster);
+        Node node = computer.getNode();
+        FilePath nodeRoot = (node == null) ? null : node.getRootPath();
+        if (nodeRoot == null || !agent.isFile()) {
+            // Copy it to the same path, as it was done before the cache
+            FileUtils.tryCopyFileFromLocalToSlave(logger, agentOnMaster, agentOnMaster);
+            return agentOnMaster;
+        }
+
+        return copyToNode(logger, agent, nodeRoot, computer.getName(), buildId);
+    }
+
+    /**
+     * Makes the agent available in the cache under the root folder of a node, leased for the build until
+     * {@link #releaseLeases}. Unlike {@link #copyToNode(Logger, String, String)}, it doesn't need the current thread
+     * to run on the node's executor.
+     *
+     * @param buildId the externalizable id of the build.
+     * @return the path of the agent on the node.
+     */
+    public String copyToNode(Logger logger, File agent, FilePath nodeRoot, String nodeName, String buildId)
+            throws IOException, InterruptedException {
+        String sha256 = getSha256(agent);
+        FilePath entryFolder = nodeRoot.child(AbstractUpgradeManager.SL_RELATIVE_CACHE_FOLDER)
+                .child(CACHE_RELATIVE_FOLDER).child(sha256);
+        FilePath cachedAgent = entryFolder.child(agent.getName());
+        String leaseId = toLeaseId(buildId);
+        if (cachedAgent.act(new LookupNodeCachedAgentCallable(leaseId))) {
+            addLease(buildId, cachedAgent, leaseId);
+            logger.info("'" + agent.getName() + "' is already in the cache of node '" + nodeName + "'.");
+            return cachedAgent.getRemote();
+        }
+
+        FilePath tempAgent = entryFolder.child(agent.getName() + "." + UUID.randomUUID() + TEMP_EXTENSION);
+        try {
+            new FilePath(agent).copyTo(tempAgent);
+            tempAgent.act(new StoreNodeCachedAgentCallable(cachedAgent.getName(), sha256, MAX_ENTRIES, leaseId));
+            addLease(buildId, cachedAgent, leaseId);
+        } finally {
+            tempAgent.delete();
+        }
+        logger.info("Copied '" + agent.getPath() + "' to the cache of node '" + nodeName + "': '"
+                + cachedAgent.getRemote() + "'.");
+        return cachedAgent.getRemote();
+    }
+
+    /**
+     * Releases the leases the build holds on the caches of the nodes. A lease that can't be released (i.e, the node
+     * is offline) turns stale and is ignored by the eviction after a while.
+     */
+    public void releaseLeases(String buildId) {
+        List<FilePath> leaseFiles = leasesByBuild.remove(buildId);
+        if (leaseFiles == null) {
+            return;
+        }
+        for (FilePath leaseFile : leaseFiles) {
+            try {
+                leaseFile.delete();
+            } catch (IOException e) {
+                // Left to turn stale
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void addLease(String buildId, FilePath cachedAgent, String leaseId) {
+        List<FilePath> leaseFiles = leasesByBuild.get(buildId);
+        if (leaseFiles == null) {
+            leasesByBuild.putIfAbsent(buildId, new CopyOnWriteArrayList<FilePath>());
+            leaseFiles = leasesByBuild.get(buildId);
+        }
+        leaseFiles.add(cachedAgent.getParent().child(AgentLease.getLeaseFileName(cachedAgent.getName(), leaseId)));
+    }
+
+    /**
+     * The build id (i.e, 'folder/job#12') as a part of a file name.
+     */
+    static String toLeaseId(String buildId) {
+        return buildId.replaceAll("[^a-zA-Z0-9_-]", "_");
+    }
+
+    String getSha256(File agent) throws IOException {
+        String path = agent.getAbsolutePath();
+        long length = agent.length();
+        long lastModified = agent.lastModified();
+        FileHash fileHash = sha256ByFile.get(path);
+        if (fileHash == null || !fileHash.isOf(length, lastModified)) {
+            fileHash = new FileHash(length, lastModified, AgentIntegrity.sha256(agent));
+            sha256ByFile.put(path, fileHash);
+        }
+        return fileHash.sha256;
+    }
+
+    int getHashedFilesCount() {
+        return sha256ByFile.size();
+    }
+
+    private static class FileHash {
+        private final long length;
+        private final long lastModified;
+        private final String sha256;
+
+        FileHash(long length, long lastModified, String sha256) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        boolean isOf(long length, long lastModified) {
+            return this.length == length && this.lastModified == lastModified;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Releases the leases a build took on the agents in the caches of the nodes (see {@link NodeAgentCache}),
+ * so they can be evicted once the build completed.
+ */
+@Extension
+public class NodeAgentLeasesRunListener extends RunListener<Run> {
+
+    @Override
+    public void onCompleted(Run run, TaskListener listener) {
+        NodeAgentCache.getInstance().releaseLeases(run.getExternalizableId());
+    }
+}
@@ -0,0 +1,85 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The (customer, app, branch, environment) tuples that builds recently resolved agents for, and the components they
+ * resolved. {@link AgentsPrefetchWork} keeps their recommended agents ready in the cache.
+ * Tuples that no build used for a week are dropped.
+ */
+public class PrefetchTargets {
+
+    static final int MAX_TARGETS = 100;
+    static final long MAX_IDLE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final PrefetchTargets INSTANCE = new PrefetchTargets();
+
+    // In access order, so the least recently used target is dropped first
+    private final LinkedHashMap<String, PrefetchTarget> targets = new LinkedHashMap<String, PrefetchTarget>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PrefetchTarget> eldest) {
+            return size() > MAX_TARGETS;
+        }
+    };
+
+    public static PrefetchTargets getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void record(String componentName, UpgradeConfiguration upgradeConfiguration) {
+        String key = RecommendedVersionCache.createKey("", upgradeConfiguration);
+        PrefetchTarget target = targets.get(key);
+        if (target == null) {
+            target = new PrefetchTarget();
+            targets.put(key, target);
+        }
+        target.upgradeConfiguration = upgradeConfiguration;
+        target.componentNames.add(componentName);
+        target.lastUsed = System.currentTimeMillis();
+    }
+
+    public synchronized List<PrefetchTarget> getTargets() {
+        List<PrefetchTarget> activeTargets = new ArrayList<>();
+        Iterator<PrefetchTarget> it = targets.values().iterator();
+        while (it.hasNext()) {
+            PrefetchTarget target = it.next();
+            if (System.currentTimeMillis() - target.lastUsed > MAX_IDLE_MILLIS) {
+                it.remove();
+            } else {
+                activeTargets.add(target.copy());
+            }
+        }
+        return activeTargets;
+    }
+
+    public static class PrefetchTarget {
+        private UpgradeConfiguration upgradeConfiguration;
+        private Set<String> componentNames = new LinkedHashSet<>();
+        private long lastUsed;
+
+        public UpgradeConfiguration getUpgradeConfiguration() {
+            return upgradeConfiguration;
+        }
+
+        public Set<String> getComponentNames() {
+            return componentNames;
+        }
+
+        private PrefetchTarget copy() {
+            PrefetchTarget copy = new PrefetchTarget();
+            copy.upgradeConfiguration = upgradeConfiguration;
+            copy.componentNames.addAll(componentNames);
+            copy.lastUsed = lastUsed;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.sealights.onpremise.agents.infra.logging.ILogger;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import io.sealights.plugins.sealightsjenkins.utils.JsonSerializer;
+import io.sealights.plugins.sealightsjenkins.utils.PathUtils;
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the server's answers for the recommended version of a component, so the many builds that resolve the
+ * same answer don't all query the server.
+ * Answers are kept in memory and in the files storage ('sl-cache/recommended-versions'), so they survive a restart.
+ * An answer is fresh for the configured TTL. After that, it is revalidated with the server and it is still used
+ * when the server can't be reached.
+ */
+public class RecommendedVersionCache {
+
+    public static final int DEFAULT_TTL_SECS = 300;
+    static final String CACHE_FOLDER = "recommended-versions";
+
+    private static final RecommendedVersionCache INSTANCE = new RecommendedVersionCache();
+
+    private final Map<String, CachedVersion> cachedVersions = new ConcurrentHashMap<>();
+    private volatile int ttlSecs = DEFAULT_TTL_SECS;
+
+    public static RecommendedVersionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param ttlSecs how long an answer is used without asking the server, 0 disables the cache.
+     */
+    public void setTtlSecs(int ttlSecs) {
+        this.ttlSecs = Math.max(ttlSecs, 0);
+    }
+
+    public int getTtlSecs() {
+        return ttlSecs;
+    }
+
+    public boolean isEnabled() {
+        return ttlSecs > 0;
+    }
+
+    public static String createKey(String componentName, UpgradeConfiguration upgradeConfiguration) {
+        return componentName
+                + "|" + upgradeConfiguration.getServer()
+                + "|" + upgradeConfiguration.getCustomerId()
+                + "|" + upgradeConfiguration.getAppName()
+                + "|" + upgradeConfiguration.getBranchName()
+                + "|" + upgradeConfiguration.getEnvironmentName();
+    }
+
+    /**
+     * Returns the cached answer (fresh or not), or 'null' if there is none.
+     */
+    public CachedVersion get(String key, String filesStorage, ILogger logger) {
+        CachedVersion cachedVersion = cachedVersions.get(key);
+        if (cachedVersion != null) {
+            return cachedVersion;
+        }
+
+        File cacheFile = getCacheFile(key, filesStorage);
+        if (cacheFile == null || !cacheFile.isFile()) {
+            return null;
+        }
+
+        try {
+            cachedVersion = JsonSerializer.deserialize(cacheFile, CachedVersion.class);
+        } catch (RuntimeException e) {
+            logger.warning("Failed to read the cached recommended version from '" + cacheFile + "'. Error: " + e.getMessage());
+            return null;
+        }
+
+        // The file name is a hash of the key, make sure it's the same key
+        if (!key.equals(cachedVersion.getKey())) {
+            return null;
+        }
+
+        cachedVersions.put(key, cachedVersion);
+        return cachedVersion;
+    }
+
+    public void put(CachedVersion cachedVersion, String filesStorage, ILogger logger) {
+        cachedVersions.put(cachedVersion.getKey(), cachedVersion);
+
+        File cacheFile = getCacheFile(cachedVersion.getKey(), filesStorage);
+        if (cacheFile == null) {
+            return;
+        }
+
+        // Write to a temp file and move it, so concurrent builds never read a partially written file
+        File tempFile = new File(cacheFile.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            cacheFile.getParentFile().mkdirs();
+            JsonSerializer.serializeToFile(tempFile, cachedVersion);
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to save the recommended version to '" + cacheFile + "'. Error: " + e.getMessage());
+            tempFile.delete();
+        }
+    }
+
+    private File getCacheFile(String key, String filesStorage) {
+        if (StringUtils.isNullOrEmpty(filesStorage)) {
+            return null;
+        }
+        String fileName = Integer.toHexString(key.hashCode()) + ".json";
+        return new File(PathUtils.join(filesStorage, AbstractUpgradeManager.SL_RELATIVE_CACHE_FOLDER, CACHE_FOLDER, fileName));
+    }
+
+    /**
+     * A single answer of the server, with the validators it was returned with.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class CachedVersion {
+        private String key;
+        private String json;
+        private String etag;
+        private String lastModified;
+        private long fetchedAt;
+
+        public CachedVersion() {
+        }
+
+        public CachedVersion(String key, String json, String etag, String lastModified) {
+            this.key = key;
+            this.json = json;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = System.currentTimeMillis();
+        }
+
+        public boolean isFresh(int ttlSecs) {
+            return System.currentTimeMillis() - fetchedAt < ttlSecs * 1000L;
+        }
+
+        /**
+         * Returns a copy that is fresh again, for when the server confirmed the answer didn't change.
+         */
+        public CachedVersion revalidated() {
+            return new CachedVersion(key, json, etag, lastModified);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public String getJson() {
+            return json;
+        }
+
+        public void setJson(String json) {
+            this.json = json;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public void setEtag(String etag) {
+            this.etag = etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(String lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        public void setFetchedAt(long fetchedAt) {
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
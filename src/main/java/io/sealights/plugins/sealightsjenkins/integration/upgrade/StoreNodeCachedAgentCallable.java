@@ -0,0 +1,105 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import org.jenkinsci.remoting.RoleChecker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs on the node. Verifies an agent that was copied to the node's {@link NodeAgentCache}, renames it into place,
+ * leases it for the build and evicts the least recently used entries that no build holds a lease on.
+ */
+public class StoreNodeCachedAgentCallable implements FilePath.FileCallable<Boolean> {
+    private static final long serialVersionUID = 1L;
+
+    // Guards the leases and the eviction of the cache of the node this JVM runs on
+    static final Object CACHE_LOCK = new Object();
+
+    private String agentName;
+    private String sha256;
+    private int maxEntries;
+    private String leaseId;
+
+    public StoreNodeCachedAgentCallable(String agentName, String sha256, int maxEntries, String leaseId) {
+        this.agentName = agentName;
+        this.sha256 = sha256;
+        this.maxEntries = maxEntries;
+        this.leaseId = leaseId;
+    }
+
+    @Override
+    public Boolean invoke(File tempAgent, VirtualChannel channel) throws IOException, InterruptedException {
+        String actualSha256 = AgentIntegrity.sha256(tempAgent);
+        if (!sha256.equalsIgnoreCase(actualSha256)) {
+            throw new IOException("The agent copied to the node is corrupted. Expected sha256: '" + sha256
+                    + "', actual sha256: '" + actualSha256 + "'.");
+        }
+
+        File entryFolder = tempAgent.getParentFile();
+        File cachedAgent = new File(entryFolder, agentName);
+        synchronized (CACHE_LOCK) {
+            Files.move(tempAgent.toPath(), cachedAgent.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            AgentLease.getLeaseFile(cachedAgent, leaseId).createNewFile();
+            entryFolder.setLastModified(System.currentTimeMillis());
+
+            evictLeastRecentlyUsed(entryFolder.getParentFile());
+        }
+        return true;
+    }
+
+    private void evictLeastRecentlyUsed(File cacheFolder) {
+        File[] entries = cacheFolder.listFiles();
+        if (entries == null || entries.length <= maxEntries) {
+            return;
+        }
+
+        List<File> byLastUse = Arrays.asList(entries);
+        Collections.sort(byLastUse, new Comparator<File>() {
+            @Override
+            public int compare(File e1, File e2) {
+                return Long.compare(e2.lastModified(), e1.lastModified());
+            }
+        });
+        for (File entry : byLastUse.subList(maxEntries, byLastUse.size())) {
+            if (entry.isDirectory() && !isLeased(entry)) {
+                deleteEntry(entry);
+            }
+        }
+    }
+
+    private boolean isLeased(File entry) {
+        List<File> leaseFiles = new ArrayList<>();
+        File[] files = entry.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.getName().endsWith(AgentLease.LEASE_FILE_EXTENSION))
+                    leaseFiles.add(f);
+            }
+        }
+        return AgentLease.isLeased(leaseFiles);
+    }
+
+    private void deleteEntry(File entry) {
+        File[] files = entry.listFiles();
+        if (files != null) {
+            for (File f : files)
+                f.delete();
+        }
+        entry.delete();
+    }
+
+    @Override
+    public void checkRoles(RoleChecker roleChecker) throws SecurityException {
+
+    }
+}
@@ -1,42 +1,164 @@
 package io.sealights.plugins.sealightsjenkins.integration.upgrade;
 
 import io.sealights.onpremise.agents.infra.logging.ILogger;
-import io.sealights.plugins.sealightsjenkins.integration.JarsHelper;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.RecommendedVersionCache.CachedVersion;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
 import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeResponse;
 import io.sealights.plugins.sealightsjenkins.services.ApacheHttpClient;
+import io.sealights.plugins.sealightsjenkins.services.CircuitOpenException;
 import io.sealights.plugins.sealightsjenkins.services.HttpRequest;
+import io.sealights.plugins.sealightsjenkins.services.HttpRequestPolicy;
 import io.sealights.plugins.sealightsjenkins.services.HttpResponse;
+import io.sealights.plugins.sealightsjenkins.services.HttpStatusException;
 import io.sealights.plugins.sealightsjenkins.utils.JsonSerializer;
 import io.sealights.plugins.sealightsjenkins.utils.StreamUtils;
+import io.sealights.plugins.sealightsjenkins.utils.StringUtils;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
 import io.sealights.plugins.sealightsjenkins.utils.UrlBuilder;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 public class UpgradeProxy {
 
     protected UpgradeConfiguration upgradeConfiguration;
     private ILogger logger;
+    private static final int MAX_DOWNLOAD_ATTEMPTS = 3;
+    private static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+    private static final String SHA256_FILE_EXTENSION = ".sha256";
+    // Downloads are resumed instead of being sent again (see 'downloadWithResume')
+    private static final int MAX_QUERY_RETRIES = 2;
+    private static final int MAX_FILE_RETRIES = 0;
+
+    private ApacheHttpClient httpClient = new ApacheHttpClient();
+    private RecommendedVersionCache recommendedVersionCache = RecommendedVersionCache.getInstance();
 
     public UpgradeProxy(UpgradeConfiguration upgradeConfiguration, ILogger logger) {
         this.upgradeConfiguration = upgradeConfiguration;
         this.logger = logger;
     }
 
+    public void setHttpClient(ApacheHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    public void setRecommendedVersionCache(RecommendedVersionCache recommendedVersionCache) {
+        this.recommendedVersionCache = recommendedVersionCache;
+    }
+
     public UpgradeResponse getRecommendedVersion(String componentName) throws IOException {
+        if (!StringUtils.isNullOrEmpty(upgradeConfiguration.getAgentsMirror())) {
+            return getRecommendedVersionFromMirror(componentName);
+        }
+
         String serverUrl = createUrlToGetRecommendedVersion(componentName);
+        String cacheKey = RecommendedVersionCache.createKey(componentName, upgradeConfiguration);
+        String filesStorage = upgradeConfiguration.getFilesStorage();
+
+        CachedVersion cachedVersion = null;
+        if (recommendedVersionCache.isEnabled()) {
+            cachedVersion = recommendedVersionCache.get(cacheKey, filesStorage, logger);
+            if (cachedVersion != null && cachedVersion.isFresh(recommendedVersionCache.getTtlSecs())) {
+                logger.info("Using the cached recommended version of '" + componentName + "'.");
+                return toUpgradeResponse(cachedVersion.getJson());
+            }
+        }
+
         logger.info("Trying to get recommended version. Url: '" + serverUrl + "'");
-        ApacheHttpClient client = new ApacheHttpClient();
-        HttpRequest request = new HttpRequest(serverUrl, upgradeConfiguration.getProxy(), upgradeConfiguration.getToken());
-        HttpResponse httpResponse = client.getJson(request);
-        String jsonOrServerError = StreamUtils.toString(httpResponse.getResponseStream());
-        UpgradeResponse upgradeResponse = JsonSerializer.deserialize(jsonOrServerError, UpgradeResponse.class);
+        try (Timings.Timer timer = Timings.start(Timings.RECOMMENDED_VERSION);
+             HttpResponse httpResponse = queryServer(serverUrl, cachedVersion)) {
+            if (cachedVersion != null && httpResponse.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                logger.info("The recommended version of '" + componentName + "' didn't change.");
+                recommendedVersionCache.put(cachedVersion.revalidated(), filesStorage, logger);
+                return toUpgradeResponse(cachedVersion.getJson());
+            }
+
+            if (!httpResponse.isStatusCodeOk()) {
+                throw HttpStatusException.forResponse(httpResponse, "the recommended version of '" + componentName + "'");
+            }
+            if (httpResponse.getResponseStream() == null) {
+                throw new IOException("The server returned an empty response.");
+            }
+
+            // Deserialized as it arrives, the cache keeps the parsed response
+            UpgradeResponse upgradeResponse = JsonSerializer.deserialize(httpResponse.getResponseStream(), UpgradeResponse.class);
+            if (recommendedVersionCache.isEnabled()) {
+                recommendedVersionCache.put(new CachedVersion(cacheKey, JsonSerializer.serialize(upgradeResponse),
+                        httpResponse.getHeader(HttpHeaders.ETAG), httpResponse.getHeader(HttpHeaders.LAST_MODIFIED)), filesStorage, logger);
+            }
+            return upgradeResponse;
+        } catch (IOException | RuntimeException e) {
+            if (cachedVersion == null) {
+                throw e;
+            }
+            // Serve the stale answer, a short server outage should not fail the builds
+            logger.warning("Failed to get recommended version from the server, using the cached one from "
+                    + new Date(cachedVersion.getFetchedAt()) + ". Error: " + e.getMessage());
+            return toUpgradeResponse(cachedVersion.getJson());
+        }
+    }
+
+    private UpgradeResponse getRecommendedVersionFromMirror(String componentName) throws IOException {
+        AgentsMirror agentsMirror = new AgentsMirror(upgradeConfiguration.getAgentsMirror());
+        logger.info("Trying to get recommended version from the agents mirror '" + upgradeConfiguration.getAgentsMirror() + "'.");
+        UpgradeResponse upgradeResponse = toUpgradeResponse(agentsMirror.readRecommendedVersion(componentName));
+        if (upgradeResponse != null && upgradeResponse.getAgent() != null) {
+            upgradeResponse.getAgent().setUrl(agentsMirror.resolveUrl(upgradeResponse.getAgent().getUrl()));
+        }
         return upgradeResponse;
     }
 
+    private HttpResponse queryServer(String serverUrl, CachedVersion cachedVersion) throws IOException {
+        HttpRequest request = createRequest(serverUrl, upgradeConfiguration.getToken(), MAX_QUERY_RETRIES);
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        if (cachedVersion != null) {
+            if (!StringUtils.isNullOrEmpty(cachedVersion.getEtag())) {
+                request.addHeader(HttpHeaders.IF_NONE_MATCH, cachedVersion.getEtag());
+            }
+            if (!StringUtils.isNullOrEmpty(cachedVersion.getLastModified())) {
+                request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, cachedVersion.getLastModified());
+            }
+        }
+        return httpClient.getJson(request);
+    }
+
+    private HttpRequest createRequest(String url, String token, int maxRetries) {
+        HttpRequest request = new HttpRequest(url, upgradeConfiguration.getProxy(), token);
+        request.setPolicy(new HttpRequestPolicy(upgradeConfiguration.getHttpTimeoutSecs(), maxRetries));
+        return request;
+    }
+
+    private UpgradeResponse toUpgradeResponse(String json) {
+        return JsonSerializer.deserialize(json, UpgradeResponse.class);
+    }
+
     private String createUrlToGetRecommendedVersion(String componentName) throws MalformedURLException {
         UrlBuilder urlBuilder = new UrlBuilder();
         String token = this.upgradeConfiguration.getToken();
@@ -51,20 +173,30 @@ public class UpgradeProxy {
     }
 
     public boolean downloadAgent(String urlToAgent, String destFile) throws IOException {
+        return downloadAgent(urlToAgent, null, destFile);
+    }
+
+    /**
+     * Downloads the agent, resuming the download if the connection drops, and verifies it.
+     *
+     * @param expectedSha256 the checksum of the agent. If missing, it is taken from '[url].sha256' when the server has it.
+     */
+    public boolean downloadAgent(String urlToAgent, String expectedSha256, String destFile) throws IOException {
         boolean isSuccess = true;
         logger.info("Trying to download agent from url '" + urlToAgent + "' to folder '" + destFile + "'.");
-        try {
+        try (Timings.Timer timer = Timings.start(Timings.AGENT_DOWNLOAD)) {
             File agentDestination = new File(destFile);
-            ApacheHttpClient client = new ApacheHttpClient();
-            HttpRequest request = new HttpRequest(urlToAgent, upgradeConfiguration.getProxy());
-            HttpResponse response = client.getFile(request);
-            InputStream responseStream = response.getResponseStream();
-            JarsHelper.copyInputStreamToFile(responseStream, new File(destFile));
+            downloadWithResume(urlToAgent, agentDestination);
 
             if (!agentDestination.exists()) {
                 logger.error("Failed to download recommended agent.");
                 isSuccess = false;
+            } else if (!isValidChecksum(urlToAgent, expectedSha256, agentDestination)) {
+                agentDestination.delete();
+                isSuccess = false;
             }
+        } catch (CircuitOpenException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error while trying to download recommended agent. Error: " + e.getMessage());
             isSuccess = false;
@@ -72,4 +204,265 @@ public class UpgradeProxy {
 
         return isSuccess;
     }
+
+    /**
+     * Downloads the agent zip and extracts the requested entries from the response as it arrives. The rest of the
+     * response is still read, so the zip is verified like in {@link #downloadAgent}.
+     * The response is also written to 'partialZip', so if the connection drops, {@link #downloadAgent} to the same
+     * file resumes the download from the last byte instead of starting over.
+     *
+     * @param destFilesByEntryName the destination of each entry, by the file name of the entry in any folder of the zip.
+     * @return the names of the extracted entries. It is empty only if the transfer failed, in which case the destination
+     * files are deleted and 'partialZip' keeps the bytes read so far. Otherwise 'partialZip' is deleted.
+     * @throws IOException if the server refused the download (e.g, the agent is missing or the circuit is open),
+     * the zip doesn't contain any of the entries or it is corrupted. Downloading the whole zip would fail the same way.
+     */
+    public Set<String> downloadAndExtractEntries(String urlToAgent, String expectedSha256, Map<String, File> destFilesByEntryName,
+                                                 File partialZip) throws IOException {
+        logger.info("Trying to download " + destFilesByEntryName.keySet() + " from url '" + urlToAgent + "'.");
+        try (Timings.Timer timer = Timings.start(Timings.AGENT_DOWNLOAD)) {
+            if (StringUtils.isNullOrEmpty(expectedSha256)) {
+                expectedSha256 = tryGetSha256File(urlToAgent);
+            }
+
+            MessageDigest digest = newSha256Digest();
+            Set<String> extractedEntries;
+            try (HttpResponse response = getFile(createRequest(urlToAgent, null, MAX_FILE_RETRIES))) {
+                if (!response.isStatusCodeOk()) {
+                    throw HttpStatusException.forResponse(response, "the agent '" + urlToAgent + "'");
+                }
+                if (response.getResponseStream() == null) {
+                    throw new IOException("The server returned an empty response.");
+                }
+                InputStream copyingStream = new CopyingInputStream(response.getResponseStream(), partialZip);
+                extractedEntries = extractEntries(new DigestInputStream(copyingStream, digest), destFilesByEntryName);
+            } catch (IOException e) {
+                deleteFiles(destFilesByEntryName.values());
+                if (isRefusedByServer(e)) {
+                    partialZip.delete();
+                    throw e;
+                }
+                logger.warning("Failed to extract " + destFilesByEntryName.keySet() + " while downloading them after "
+                        + partialZip.length() + " bytes. Error: " + e.getMessage());
+                return Collections.<String>emptySet();
+            }
+
+            partialZip.delete();
+            if (extractedEntries.isEmpty()) {
+                throw new IOException("The zip doesn't contain any of " + destFilesByEntryName.keySet() + ".");
+            }
+            if (StringUtils.isNullOrEmpty(expectedSha256)) {
+                logger.warning("The server didn't provide a checksum for '" + urlToAgent + "', skipping the verification of the download.");
+                return extractedEntries;
+            }
+            String actualSha256 = Hex.encodeHexString(digest.digest());
+            if (!expectedSha256.trim().equalsIgnoreCase(actualSha256)) {
+                deleteFiles(destFilesByEntryName.values());
+                throw new IOException("The downloaded agent is corrupted. Expected sha256: '" + expectedSha256
+                        + "', actual sha256: '" + actualSha256 + "'.");
+            }
+            logger.info("The checksum of the downloaded agent was verified.");
+            return extractedEntries;
+        }
+    }
+
+    /**
+     * An open circuit or an error status (e.g, 401, 404) would refuse another download too, unlike a dropped connection.
+     */
+    private static boolean isRefusedByServer(IOException e) {
+        return e instanceof CircuitOpenException || e instanceof HttpStatusException || e instanceof FileNotFoundException;
+    }
+
+    private static MessageDigest newSha256Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IOException("SHA-256 isn't supported. Error: " + e.getMessage(), e);
+        }
+    }
+
+    private Set<String> extractEntries(DigestInputStream digestStream, Map<String, File> destFilesByEntryName) throws IOException {
+        Set<String> extractedEntries = new HashSet<>();
+        try (ZipInputStream zipStream = new ZipInputStream(digestStream)) {
+            ZipEntry entry;
+            while ((entry = zipStream.getNextEntry()) != null) {
+                String entryName = new File(entry.getName()).getName();
+                File entryDestination = destFilesByEntryName.get(entryName);
+                if (!entry.isDirectory() && entryDestination != null) {
+                    Files.copy(zipStream, entryDestination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    extractedEntries.add(entryName);
+                }
+            }
+            // The zip stream stops before the central directory, which is part of the checksum
+            StreamUtils.readToEnd(digestStream);
+        }
+        return extractedEntries;
+    }
+
+    private void deleteFiles(Collection<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private void downloadWithResume(String urlToAgent, File agentDestination) throws IOException {
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= MAX_DOWNLOAD_ATTEMPTS; attempt++) {
+            long downloadedBytes = agentDestination.length();
+            HttpRequest request = createRequest(urlToAgent, null, MAX_FILE_RETRIES);
+            // The range counts the bytes of the file, a compressed response would break it
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, "identity");
+            if (downloadedBytes > 0) {
+                request.addHeader(HttpHeaders.RANGE, "bytes=" + downloadedBytes + "-");
+                logger.info("Resuming the download from byte " + downloadedBytes + ".");
+            }
+
+            try (HttpResponse response = getFile(request)) {
+                if (response.getStatusCode() == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                    // The partial file doesn't match the file on the server, start over
+                    agentDestination.delete();
+                    throw new IOException("The server can't resume the download from byte " + downloadedBytes + ".");
+                }
+                if (!response.isStatusCodeOk()) {
+                    throw HttpStatusException.forResponse(response, "the agent '" + urlToAgent + "'");
+                }
+
+                // A server that doesn't support ranges returns the whole file
+                boolean isResumed = response.getStatusCode() == HttpStatus.SC_PARTIAL_CONTENT;
+                writeToFile(response.getResponseStream(), agentDestination, isResumed ? downloadedBytes : 0);
+                return;
+            } catch (IOException e) {
+                if (!isWorthRetrying(e)) {
+                    throw e;
+                }
+                lastError = e;
+                logger.warning("Download attempt " + attempt + "/" + MAX_DOWNLOAD_ATTEMPTS + " of '" + urlToAgent
+                        + "' failed after " + agentDestination.length() + " bytes. Error: " + e.getMessage());
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * Only I/O errors and server errors (5xx) may pass on another attempt. An unavailable server, a missing agent
+     * or a rejected request would fail the same way again.
+     */
+    private static boolean isWorthRetrying(IOException e) {
+        if (e instanceof CircuitOpenException || e instanceof FileNotFoundException) {
+            return false;
+        }
+        if (e instanceof HttpStatusException) {
+            return ((HttpStatusException) e).getStatusCode() >= 500;
+        }
+        return true;
+    }
+
+    private HttpResponse getFile(HttpRequest request) throws IOException {
+        // Agents from an agents mirror are read from the disk
+        if (AgentsMirror.isFileUrl(request.getUrl())) {
+            return AgentsMirror.getFile(request.getUrl());
+        }
+        return httpClient.getFile(request);
+    }
+
+    private void writeToFile(InputStream responseStream, File agentDestination, long position) throws IOException {
+        if (responseStream == null) {
+            throw new IOException("The server returned an empty response.");
+        }
+        try (ReadableByteChannel source = Channels.newChannel(responseStream);
+             FileChannel target = FileChannel.open(agentDestination.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            target.truncate(position);
+            long transferred;
+            while ((transferred = target.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                position += transferred;
+            }
+        }
+    }
+
+    private boolean isValidChecksum(String urlToAgent, String expectedSha256, File agentDestination) throws IOException {
+        if (StringUtils.isNullOrEmpty(expectedSha256)) {
+            expectedSha256 = tryGetSha256File(urlToAgent);
+        }
+        if (StringUtils.isNullOrEmpty(expectedSha256)) {
+            logger.warning("The server didn't provide a checksum for '" + urlToAgent + "', skipping the verification of the download.");
+            return true;
+        }
+
+        String actualSha256 = AgentIntegrity.sha256(agentDestination);
+        if (!expectedSha256.trim().equalsIgnoreCase(actualSha256)) {
+            logger.error("The downloaded agent is corrupted. Expected sha256: '" + expectedSha256
+                    + "', actual sha256: '" + actualSha256 + "'.");
+            return false;
+        }
+
+        logger.info("The checksum of the downloaded agent was verified.");
+        return true;
+    }
+
+    private String tryGetSha256File(String urlToAgent) {
+        try (HttpResponse response = getFile(createRequest(urlToAgent + SHA256_FILE_EXTENSION, null, MAX_QUERY_RETRIES))) {
+            if (response.getStatusCode() != HttpStatus.SC_OK) {
+                return null;
+            }
+            // The format of 'sha256sum' is '[checksum]  [file name]'
+            String content = StreamUtils.toString(response.getResponseStream());
+            return StringUtils.isNullOrEmpty(content) ? null : content.trim().split("\\s+")[0];
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to get the checksum file of '" + urlToAgent + "'. Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the bytes it reads to a file, so a download that dropped midway can be resumed from the file.
+     */
+    private static class CopyingInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        CopyingInputStream(InputStream in, File copyFile) throws IOException {
+            super(in);
+            this.copy = new BufferedOutputStream(new FileOutputStream(copyFile));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                copy.write(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // Bytes read again after a reset would be copied twice
+            return false;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must be in the copy too
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                copy.close();
+            }
+        }
+    }
 }
@@ -11,6 +11,7 @@ public class AgentInfo {
     private String name;
     private String url;
     private String version;
+    private String sha256;
 
     public AgentInfo() {
     }
@@ -46,4 +47,12 @@ public class AgentInfo {
     public void setVersion(String version) {
         this.version = version;
     }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
 }
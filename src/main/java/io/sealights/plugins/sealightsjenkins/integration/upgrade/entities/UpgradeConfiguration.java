@@ -1,6 +1,13 @@
 package io.sealights.plugins.sealightsjenkins.integration.upgrade.entities;
 
-public class UpgradeConfiguration {
+import java.io.Serializable;
+
+/**
+ * Serializable, since it is sent to build nodes that resolve the agent by themselves.
+ */
+public class UpgradeConfiguration implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String token;
     private String customerId;
     private String buildSessionId;
@@ -10,6 +17,8 @@ public class UpgradeConfiguration {
     private String server;
     private String proxy;
     private String filesStorage;
+    private String agentsMirror;
+    private int httpTimeoutSecs;
 
     public UpgradeConfiguration(String token, String customerId, String buildSessionId, String appName,
                                 String environmentName, String branchName, String server,
@@ -61,5 +70,24 @@ public class UpgradeConfiguration {
         return filesStorage;
     }
 
+    public String getAgentsMirror() {
+        return agentsMirror;
+    }
+
+    public void setAgentsMirror(String agentsMirror) {
+        this.agentsMirror = agentsMirror;
+    }
+
+    /**
+     * The timeout of the requests to the server, 0 for the default.
+     */
+    public int getHttpTimeoutSecs() {
+        return httpTimeoutSecs;
+    }
+
+    public void setHttpTimeoutSecs(int httpTimeoutSecs) {
+        this.httpTimeoutSecs = httpTimeoutSecs;
+    }
+
 }
 
@@ -0,0 +1,54 @@
+package io.sealights.plugins.sealightsjenkins.model;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The accumulated time of a single SeaLights phase in a build (i.e, 'agentDownload').
+ */
+@ExportedBean
+public class PhaseTiming {
+
+    private String name;
+    private int count;
+    private long totalMillis;
+    private long maxMillis;
+
+    public PhaseTiming(String name) {
+        this.name = name;
+    }
+
+    void add(long durationMillis) {
+        count++;
+        totalMillis += durationMillis;
+        maxMillis = Math.max(maxMillis, durationMillis);
+    }
+
+    PhaseTiming copy() {
+        PhaseTiming copy = new PhaseTiming(name);
+        copy.count = count;
+        copy.totalMillis = totalMillis;
+        copy.maxMillis = maxMillis;
+        return copy;
+    }
+
+    @Exported
+    public String getName() {
+        return name;
+    }
+
+    @Exported
+    public int getCount() {
+        return count;
+    }
+
+    @Exported
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    @Exported
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+}
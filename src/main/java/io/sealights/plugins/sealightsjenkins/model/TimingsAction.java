@@ -0,0 +1,114 @@
+package io.sealights.plugins.sealightsjenkins.model;
+
+import hudson.model.Action;
+import hudson.model.Api;
+import hudson.model.Run;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The time spent by SeaLights in a build, per phase, and in total.
+ * Phases may run inside each other (i.e, a file copy as part of a command execution) or on several threads at once,
+ * so the total is the wall-clock time during which at least one phase was measured, not the sum of the phases.
+ * Available at '[build url]/sealightsTimings/api/json' (and as part of the build's own api).
+ */
+@ExportedBean
+public class TimingsAction implements Action {
+
+    private final Map<String, PhaseTiming> phases = new LinkedHashMap<>();
+    private long totalMillis;
+    private transient int runningPhases;
+    private transient long runningSince;
+
+    /**
+     * Returns the action of the build, adding it on first use.
+     */
+    public static TimingsAction getOrCreate(Run<?, ?> run) {
+        synchronized (run) {
+            TimingsAction action = run.getAction(TimingsAction.class);
+            if (action == null) {
+                action = new TimingsAction();
+                run.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    /**
+     * Records a phase measured elsewhere (i.e, on the node). It is added to the total only when it didn't run
+     * while another phase was measured, as its time would be counted twice otherwise.
+     */
+    public synchronized void record(String phase, long durationMillis) {
+        addToPhase(phase, durationMillis);
+        if (runningPhases == 0) {
+            totalMillis += durationMillis;
+        }
+    }
+
+    /**
+     * Called when a phase starts being measured, on any thread.
+     */
+    public synchronized void phaseStarted(long now) {
+        if (runningPhases++ == 0) {
+            runningSince = now;
+        }
+    }
+
+    /**
+     * Called when a measured phase ends. The name is 'null' when the phase ran inside a measurement of the same
+     * phase (i.e, parsing the token while validating it), so its time is counted only once.
+     */
+    public synchronized void phaseEnded(String phase, long startTime, long now) {
+        if (phase != null) {
+            addToPhase(phase, now - startTime);
+        }
+        if (--runningPhases == 0) {
+            totalMillis += now - runningSince;
+        }
+    }
+
+    private void addToPhase(String phase, long durationMillis) {
+        PhaseTiming phaseTiming = phases.get(phase);
+        if (phaseTiming == null) {
+            phaseTiming = new PhaseTiming(phase);
+            phases.put(phase, phaseTiming);
+        }
+        phaseTiming.add(durationMillis);
+    }
+
+    @Exported(inline = true)
+    public synchronized List<PhaseTiming> getPhases() {
+        List<PhaseTiming> copies = new ArrayList<>();
+        for (PhaseTiming phaseTiming : phases.values()) {
+            copies.add(phaseTiming.copy());
+        }
+        return copies;
+    }
+
+    @Exported
+    public synchronized long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    // The action has only an api, 'null' as the icon keeps it out of the build's side panel
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "SeaLights Timings";
+    }
+
+    public String getUrlName() {
+        return "sealightsTimings";
+    }
+}
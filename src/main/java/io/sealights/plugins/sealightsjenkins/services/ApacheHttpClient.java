@@ -1,17 +1,16 @@
 package io.sealights.plugins.sealightsjenkins.services;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpHost;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static io.sealights.plugins.sealightsjenkins.utils.StringUtils.isNullOrEmpty;
 
@@ -23,31 +22,78 @@ public class ApacheHttpClient {
     private final String AUTHORIZATION_HEADER = "Authorization";
     private final String BEARER = "Bearer ";
 
+    private static final int PROBE_TIMEOUT_MS = 10 * 1000;
+
+    private HttpClientRegistry clientRegistry = HttpClientRegistry.getInstance();
+    private HostCircuitBreakers circuitBreakers = HostCircuitBreakers.getInstance();
+
     public HttpResponse getJson(HttpRequest request) throws IOException {
-        HttpGet httpGet = new HttpGet(request.getUrl());
-        return get(request.getProxy(), request.getToken(), httpGet);
+        return get(request);
     }
 
     public HttpResponse getFile(HttpRequest request) throws IOException {
-        HttpGet httpGet = new HttpGet(request.getUrl());
-        return get(request.getProxy(), request.getToken(), httpGet);
+        return get(request);
     }
 
-    private HttpResponse get(String proxy, String token, HttpGet httpGet) throws IOException {
-        CloseableHttpClient httpClient = createHttpClient(proxy);
-        if (!isNullOrEmpty(token) ){
-            httpGet.setHeader(AUTHORIZATION_HEADER, BEARER + token);
+    public void setClientRegistry(HttpClientRegistry clientRegistry) {
+        this.clientRegistry = clientRegistry;
+    }
+
+    public void setCircuitBreakers(HostCircuitBreakers circuitBreakers) {
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    private HttpGet createHttpGet(HttpRequest request) {
+        HttpGet httpGet = new HttpGet(request.getUrl());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            httpGet.setHeader(header.getKey(), header.getValue());
+        }
+        if (!isNullOrEmpty(request.getToken())) {
+            httpGet.setHeader(AUTHORIZATION_HEADER, BEARER + request.getToken());
         }
+        trySetTimeout(httpGet, request.getPolicy());
+        return httpGet;
+    }
+
+    private HttpResponse get(HttpRequest request) throws IOException {
+        CloseableHttpClient httpClient = clientRegistry.getClient(request.getProxy());
+        CircuitBreaker breaker = circuitBreakers.get(request.getUrl());
+        int retriesLeft = request.getPolicy().getMaxRetries();
+        while (true) {
+            if (breaker.isOpen()) {
+                throw new CircuitOpenException(breaker.getHost());
+            }
 
-        trySetTimeout(httpGet);
+            long startTime = System.currentTimeMillis();
+            CloseableHttpResponse response;
+            try {
+                // A request can't be sent twice, so every attempt gets a new one
+                response = httpClient.execute(createHttpGet(request));
+            } catch (IOException e) {
+                onRequestCompleted(breaker, breaker.recordFailure(), httpClient);
+                if (retriesLeft-- <= 0) {
+                    throw e;
+                }
+                continue;
+            }
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        return toHttpResponse(response);
+            boolean isServerError = response.getStatusLine().getStatusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+            boolean isOpened = isServerError ? breaker.recordFailure()
+                    : breaker.recordSuccess(System.currentTimeMillis() - startTime);
+            onRequestCompleted(breaker, isOpened, httpClient);
+            return toHttpResponse(response);
+        }
     }
 
-    private void trySetTimeout(HttpGet httpGet) {
+    private void onRequestCompleted(CircuitBreaker breaker, boolean isOpened, CloseableHttpClient httpClient) {
+        if (isOpened) {
+            circuitBreakers.scheduleProbe(breaker, new HostProbe(httpClient, breaker.getHost()));
+        }
+    }
 
-        Integer connectTimeout = Integer.getInteger("sl.httpClient.timeout");
+    private void trySetTimeout(HttpGet httpGet, HttpRequestPolicy policy) {
+
+        Integer connectTimeout = policy.getTimeoutSecs();
         if (connectTimeout == null)
             return;
         int CONNECTION_TIMEOUT_MS = connectTimeout * 1000; // Timeout in millis.
@@ -61,39 +107,48 @@ public class ApacheHttpClient {
     }
 
     private HttpResponse toHttpResponse(CloseableHttpResponse response) throws IOException {
-        HttpResponse httpResponse = new HttpResponse();
-        httpResponse.setStatusCode(response.getStatusLine().getStatusCode());
+        try {
+            HttpResponse httpResponse = new HttpResponse();
+            httpResponse.setStatusCode(response.getStatusLine().getStatusCode());
+            for (Header header : response.getAllHeaders()) {
+                httpResponse.setHeader(header.getName(), header.getValue());
+            }
 
-        HttpEntity responseHttpEntity = response.getEntity();
-        if (responseHttpEntity != null){
-            httpResponse.setResponseStream(responseHttpEntity.getContent());
+            HttpEntity responseHttpEntity = response.getEntity();
+            if (responseHttpEntity != null) {
+                // Closing the stream returns the connection to the pool
+                httpResponse.setResponseStream(responseHttpEntity.getContent());
+            }
+            return httpResponse;
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
         }
-        return httpResponse;
     }
 
-    private CloseableHttpClient createHttpClient(String proxy) throws MalformedURLException {
-        CloseableHttpClient httpClient;
+    /**
+     * Checks whether a host responds at all, any response that isn't a server error means it's available.
+     */
+    private static class HostProbe implements Callable<Boolean> {
+        private final CloseableHttpClient httpClient;
+        private final String host;
 
-        if (isNullOrEmpty(proxy)) {
-            httpClient = HttpClients.createDefault();
-        } else {
-            URL proxyUrl = new URL(proxy);
-            proxy = proxyUrl.toString();
-            if (proxyUrl.getPort() == -1) {
-                proxy += ":80";
-            }
-            DefaultProxyRoutePlanner proxyRoutePlanner = createProxyRoutePlanner(proxy);
-            httpClient = HttpClients.custom().setRoutePlanner(proxyRoutePlanner).build();
+        HostProbe(CloseableHttpClient httpClient, String host) {
+            this.httpClient = httpClient;
+            this.host = host;
         }
 
-        return httpClient;
-    }
-
-    private DefaultProxyRoutePlanner createProxyRoutePlanner(String proxy) throws MalformedURLException {
-        URL proxyUrl = new URL(proxy);
-        HttpHost proxyHost = new HttpHost(proxyUrl.getHost(), proxyUrl.getPort(), proxyUrl.getProtocol());
-        DefaultProxyRoutePlanner routePlanner = new DefaultProxyRoutePlanner(proxyHost);
-        return routePlanner;
+        @Override
+        public Boolean call() throws IOException {
+            HttpGet httpGet = new HttpGet(host + "/");
+            httpGet.setConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(PROBE_TIMEOUT_MS)
+                    .setConnectTimeout(PROBE_TIMEOUT_MS)
+                    .setSocketTimeout(PROBE_TIMEOUT_MS)
+                    .build());
+            try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
+                return response.getStatusLine().getStatusCode() < HttpStatus.SC_INTERNAL_SERVER_ERROR;
+            }
+        }
     }
-
 }
@@ -0,0 +1,68 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import io.sealights.plugins.sealightsjenkins.model.TimingsAction;
+import io.sealights.plugins.sealightsjenkins.utils.Timings;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the requests of a build in the background and returns futures, so the build goes on while it waits for the
+ * server. The requests are sent by a bounded pool of daemon threads shared by all the builds. Background work that
+ * no build waits for (e.g, the agents prefetch) runs on its own thread, so it never queues ahead of a build's request.
+ */
+public class AsyncHttpClient {
+
+    // Below the connections per route of the http clients, so the threads don't wait for connections
+    static final int MAX_THREADS = HttpClientRegistry.MAX_CONNECTIONS_PER_ROUTE - 2;
+    private static final long IDLE_THREAD_SECS = 60;
+
+    private static final AsyncHttpClient INSTANCE = new AsyncHttpClient();
+
+    private final ExecutorService executor;
+
+    public AsyncHttpClient() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                IDLE_THREAD_SECS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SeaLights Http Client " + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        threadPool.allowCoreThreadTimeOut(true);
+        this.executor = threadPool;
+    }
+
+    public static AsyncHttpClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs a task that sends requests and handles their responses (e.g, resolves the version of the maven plugin)
+     * on the pool of the client.
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        // The time the task takes is reported to the build that submitted it
+        final TimingsAction timingsAction = Timings.current();
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                TimingsAction previousTimings = Timings.bind(timingsAction);
+                try {
+                    return task.call();
+                } finally {
+                    Timings.restore(previousTimings);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+/**
+ * Tracks the requests to a single host. After repeated failures (errors or very slow responses) the breaker opens and
+ * the requests to the host fail immediately, until a background probe finds that the host is back.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    static final int FAILURES_TO_OPEN = 5;
+    static final long SLOW_RESPONSE_MILLIS = 30 * 1000;
+
+    private final String host;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long requests;
+    private long failures;
+    private long averageLatencyMillis;
+
+    public CircuitBreaker(String host) {
+        this.host = host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    /**
+     * @return the time the breaker opened, 0 if it's closed.
+     */
+    public synchronized long getOpenedAt() {
+        return openedAt;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized long getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+
+    /**
+     * @return 'true' if the breaker opened because of this response.
+     */
+    public synchronized boolean recordSuccess(long latencyMillis) {
+        requests++;
+        // A moving average, so the page shows the recent latency
+        averageLatencyMillis = (requests - failures == 1) ? latencyMillis : (averageLatencyMillis * 3 + latencyMillis) / 4;
+        if (latencyMillis >= SLOW_RESPONSE_MILLIS) {
+            return countFailure();
+        }
+        consecutiveFailures = 0;
+        return false;
+    }
+
+    /**
+     * @return 'true' if the breaker opened because of this failure.
+     */
+    public synchronized boolean recordFailure() {
+        requests++;
+        failures++;
+        return countFailure();
+    }
+
+    private boolean countFailure() {
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= FAILURES_TO_OPEN) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void startProbe() {
+        state = State.HALF_OPEN;
+    }
+
+    synchronized void endProbe(boolean isHostAvailable) {
+        if (isHostAvailable) {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            openedAt = 0;
+        } else {
+            state = State.OPEN;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request to a host that is considered unavailable (see {@link CircuitBreaker}).
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String host) {
+        super("'" + host + "' is unavailable after repeated failures, the request was not sent. It is probed in the background.");
+    }
+
+    /**
+     * Returns whether the error, or one of its causes, is a {@link CircuitOpenException}.
+     */
+    public static boolean isCausedBy(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitOpenException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
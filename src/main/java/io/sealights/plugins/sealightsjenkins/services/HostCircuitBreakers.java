@@ -0,0 +1,104 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * The {@link CircuitBreaker}s of the hosts the plugin talks to, shared by all the builds.
+ * Open breakers are probed in the background, so builds never wait for a host that is down.
+ */
+public class HostCircuitBreakers {
+
+    private static final java.util.logging.Logger LOGGER = java.util.logging.Logger.getLogger(HostCircuitBreakers.class.getName());
+
+    static final long PROBE_DELAY_SECS = 30;
+
+    private static final HostCircuitBreakers INSTANCE = new HostCircuitBreakers();
+
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SeaLights Circuit Breaker Probe");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    public static HostCircuitBreakers getInstance() {
+        return INSTANCE;
+    }
+
+    public CircuitBreaker get(String url) {
+        String host = toHost(url);
+        CircuitBreaker breaker = breakers.get(host);
+        if (breaker == null) {
+            CircuitBreaker newBreaker = new CircuitBreaker(host);
+            breaker = breakers.putIfAbsent(host, newBreaker);
+            if (breaker == null) {
+                breaker = newBreaker;
+            }
+        }
+        return breaker;
+    }
+
+    /**
+     * Returns whether requests to the host of the url currently fail immediately.
+     */
+    public boolean isOpen(String url) {
+        CircuitBreaker breaker = breakers.get(toHost(url));
+        return breaker != null && breaker.isOpen();
+    }
+
+    public List<CircuitBreaker> getAll() {
+        return new ArrayList<>(breakers.values());
+    }
+
+    /**
+     * Probes an open breaker after a delay, until the probe finds that the host is available.
+     *
+     * @param probe returns whether the host is available.
+     */
+    public void scheduleProbe(final CircuitBreaker breaker, final Callable<Boolean> probe) {
+        prober.schedule(new Runnable() {
+            @Override
+            public void run() {
+                breaker.startProbe();
+                boolean isHostAvailable = false;
+                try {
+                    isHostAvailable = probe.call();
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Probing '" + breaker.getHost() + "' failed.", e);
+                }
+                breaker.endProbe(isHostAvailable);
+                if (isHostAvailable) {
+                    LOGGER.info("'" + breaker.getHost() + "' is available again.");
+                } else {
+                    scheduleProbe(breaker, probe);
+                }
+            }
+        }, PROBE_DELAY_SECS, TimeUnit.SECONDS);
+    }
+
+    static String toHost(String url) {
+        try {
+            URI uri = URI.create(url.trim());
+            if (uri.getHost() != null) {
+                String host = uri.getScheme() + "://" + uri.getHost().toLowerCase();
+                return (uri.getPort() == -1) ? host : host + ":" + uri.getPort();
+            }
+        } catch (IllegalArgumentException e) {
+            // Not a valid uri, the url itself is used
+        }
+        return url;
+    }
+}
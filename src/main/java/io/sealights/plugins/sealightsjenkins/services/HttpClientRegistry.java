@@ -0,0 +1,79 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import org.apache.http.HttpHost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultProxyRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.sealights.plugins.sealightsjenkins.utils.StringUtils.isNullOrEmpty;
+
+/**
+ * The http clients of the plugin, one per proxy, shared by all the builds.
+ * Each client keeps a bounded pool of keep-alive connections, so requests to the same server reuse a connection
+ * instead of opening a new one (and doing a new TLS handshake) every time.
+ */
+public class HttpClientRegistry {
+
+    static final int MAX_CONNECTIONS = 20;
+    static final int MAX_CONNECTIONS_PER_ROUTE = 10;
+    private static final long MAX_IDLE_SECS = 30;
+    private static final String NO_PROXY = "";
+
+    private static final HttpClientRegistry INSTANCE = new HttpClientRegistry();
+
+    private final ConcurrentMap<String, CloseableHttpClient> clients = new ConcurrentHashMap<>();
+
+    public static HttpClientRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public CloseableHttpClient getClient(String proxy) throws MalformedURLException {
+        String key = isNullOrEmpty(proxy) ? NO_PROXY : proxy;
+        CloseableHttpClient client = clients.get(key);
+        if (client != null) {
+            return client;
+        }
+
+        synchronized (clients) {
+            client = clients.get(key);
+            if (client == null) {
+                client = createHttpClient(key);
+                clients.put(key, client);
+            }
+            return client;
+        }
+    }
+
+    private CloseableHttpClient createHttpClient(String proxy) throws MalformedURLException {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+        // Connections are kept alive as long as the server allows, and closed after being idle for a while.
+        // Gzip responses are decompressed by the client (content compression is on by default)
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_SECS, TimeUnit.SECONDS);
+
+        if (!NO_PROXY.equals(proxy)) {
+            builder.setRoutePlanner(createProxyRoutePlanner(proxy));
+        }
+        return builder.build();
+    }
+
+    private DefaultProxyRoutePlanner createProxyRoutePlanner(String proxy) throws MalformedURLException {
+        URL proxyUrl = new URL(proxy);
+        int port = (proxyUrl.getPort() == -1) ? 80 : proxyUrl.getPort();
+        HttpHost proxyHost = new HttpHost(proxyUrl.getHost(), port, proxyUrl.getProtocol());
+        return new DefaultProxyRoutePlanner(proxyHost);
+    }
+}
@@ -1,5 +1,8 @@
 package io.sealights.plugins.sealightsjenkins.services;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Created by Ronis on 8/2/2017.
  */
@@ -7,6 +10,8 @@ public class HttpRequest {
     private String url;
     private String proxy;
     private String token;
+    private Map<String, String> headers = new LinkedHashMap<>();
+    private HttpRequestPolicy policy = HttpRequestPolicy.DEFAULT;
 
     public HttpRequest(String url, String proxy, String token) {
         this.url = url;
@@ -30,4 +35,20 @@ public class HttpRequest {
     public String getToken() {
         return token;
     }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public void addHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    public HttpRequestPolicy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(HttpRequestPolicy policy) {
+        this.policy = policy;
+    }
 }
@@ -0,0 +1,39 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+/**
+ * The timeout and the retries of a single request. It travels with the {@link HttpRequest}, so builds with different
+ * settings don't affect each other.
+ */
+public class HttpRequestPolicy {
+
+    // Set when Jenkins starts (-Dsl.httpClient.timeout=...), used by requests that don't set a timeout
+    static final String DEFAULT_TIMEOUT_SECS_PROPERTY = "sl.httpClient.timeout";
+
+    public static final HttpRequestPolicy DEFAULT = new HttpRequestPolicy(0, 0);
+
+    private final int timeoutSecs;
+    private final int maxRetries;
+
+    /**
+     * @param timeoutSecs the connect and read timeout, 0 (or less) for the default.
+     * @param maxRetries  the number of times the request is sent again after an I/O error.
+     */
+    public HttpRequestPolicy(int timeoutSecs, int maxRetries) {
+        this.timeoutSecs = timeoutSecs;
+        this.maxRetries = Math.max(maxRetries, 0);
+    }
+
+    /**
+     * Returns the timeout in seconds, or 'null' if there is none (the http client's defaults are used).
+     */
+    public Integer getTimeoutSecs() {
+        if (timeoutSecs > 0) {
+            return timeoutSecs;
+        }
+        return Integer.getInteger(DEFAULT_TIMEOUT_SECS_PROPERTY);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+}
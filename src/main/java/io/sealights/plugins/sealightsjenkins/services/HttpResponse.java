@@ -1,12 +1,16 @@
 package io.sealights.plugins.sealightsjenkins.services;
 
-
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.TreeMap;
 
-public class HttpResponse {
+public class HttpResponse implements Closeable {
 
     private int statusCode;
     private InputStream responseStream;
+    private Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
     public int getStatusCode() {
         return statusCode;
@@ -23,6 +27,22 @@ public class HttpResponse {
     public void setResponseStream(InputStream responseStream) {
         this.responseStream = responseStream;
     }
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+    public void setHeader(String name, String value) {
+        headers.put(name, value);
+    }
+
+    /**
+     * Closes the response stream, which releases the connection. Safe to call after the stream was read and closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (responseStream != null) {
+            responseStream.close();
+        }
+    }
 
     @Override
     public String toString() {
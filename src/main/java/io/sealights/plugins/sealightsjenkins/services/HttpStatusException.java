@@ -0,0 +1,72 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A response with an error status code. 'Not found' is mapped to a {@link FileNotFoundException}, which the callers
+ * already handle as a missing version.
+ */
+public class HttpStatusException extends IOException {
+
+    // Enough of the server's error to understand it, without filling the build log
+    static final int MAX_BODY_CHARS = 500;
+
+    private final int statusCode;
+
+    public HttpStatusException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Creates the error of a response, with the beginning of its body.
+     *
+     * @param request a description of the request, for the message (i.e, "the recommended version of 'x'").
+     */
+    public static IOException forResponse(HttpResponse response, String request) {
+        int statusCode = response.getStatusCode();
+        if (statusCode == 404) {
+            return new FileNotFoundException("The server didn't find " + request + " (status code 404).");
+        }
+
+        String reason;
+        if (statusCode == 401 || statusCode == 403) {
+            reason = "The server rejected the request for " + request + ", check the token";
+        } else if (statusCode >= 500) {
+            reason = "The server failed to return " + request;
+        } else {
+            reason = "The server didn't return " + request;
+        }
+        String body = tryReadBody(response.getResponseStream());
+        String message = reason + " (status code " + statusCode + ")." + (body.isEmpty() ? "" : " Response: '" + body + "'.");
+        return new HttpStatusException(statusCode, message);
+    }
+
+    private static String tryReadBody(InputStream stream) {
+        if (stream == null) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        try {
+            Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+            char[] buffer = new char[MAX_BODY_CHARS];
+            int read;
+            while (body.length() < MAX_BODY_CHARS
+                    && (read = reader.read(buffer, 0, MAX_BODY_CHARS - body.length())) != -1) {
+                body.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // The status code is enough
+        }
+        return body.toString().trim();
+    }
+}
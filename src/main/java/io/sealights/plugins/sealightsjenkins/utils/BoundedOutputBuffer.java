@@ -0,0 +1,47 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the tail of a process output, for reporting a process that got stuck or failed.
+ * Every line is already forwarded to the build log as it arrives, so only the last lines are kept in memory
+ * and a chatty process can never exhaust the master's heap.
+ */
+public class BoundedOutputBuffer {
+
+    public static final int LAST_LINES_COUNT = 20;
+
+    private final int maxLines;
+    private final Deque<String> lastLines = new ArrayDeque<>();
+    private long linesCount;
+
+    public BoundedOutputBuffer() {
+        this(LAST_LINES_COUNT);
+    }
+
+    public BoundedOutputBuffer(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    public synchronized void appendLine(String line) {
+        linesCount++;
+        lastLines.addLast(line);
+        if (lastLines.size() > maxLines) {
+            lastLines.removeFirst();
+        }
+    }
+
+    public synchronized long getLinesCount() {
+        return linesCount;
+    }
+
+    /**
+     * Returns the last lines that were appended (up to the buffer's size), oldest first.
+     */
+    public synchronized List<String> getLastLines() {
+        return new ArrayList<>(lastLines);
+    }
+}
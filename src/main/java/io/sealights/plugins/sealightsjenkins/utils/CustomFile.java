@@ -1,5 +1,6 @@
 package io.sealights.plugins.sealightsjenkins.utils;
 
+import hudson.remoting.VirtualChannel;
 import io.sealights.plugins.sealightsjenkins.CleanupManager;
 
 import java.io.IOException;
@@ -38,7 +39,10 @@ public class CustomFile {
     }
 
     public void copyToSlave(String targetFile, boolean deleteSourceFile, boolean deleteTargetFile) throws IOException, InterruptedException {
-        boolean copySuccess = FileUtils.tryCopyFileFromLocalToSlave(logger, name, targetFile);
+        boolean copySuccess;
+        try (Timings.Timer timer = Timings.start(Timings.FILE_COPY)) {
+            copySuccess = FileUtils.tryCopyFileFromLocalToSlave(logger, name, targetFile);
+        }
 
         if (deleteSourceFile)
             cleanupManager.addFile(name);
@@ -48,10 +52,23 @@ public class CustomFile {
     }
 
     public void copyToMaster(String targetFile) throws IOException, InterruptedException {
-        if (this.isFolder) {
-            FileUtils.tryCopyFolderFromSlaveToLocal(logger, targetFile, name);
-        }else{
-            FileUtils.tryCopyFileFromSlaveToLocal(logger, targetFile, name);
+        try (Timings.Timer timer = Timings.start(Timings.FILE_COPY)) {
+            if (this.isFolder) {
+                FileUtils.tryCopyFolderFromSlaveToLocal(logger, targetFile, name);
+            }else{
+                FileUtils.tryCopyFileFromSlaveToLocal(logger, targetFile, name);
+            }
+        }
+        cleanupManager.addFile(targetFile);
+    }
+
+    /**
+     * Copies the file from the node behind the given channel, regardless of the thread that runs the copy.
+     */
+    public void copyToMaster(String targetFile, VirtualChannel channel) throws IOException, InterruptedException {
+        try (Timings.Timer timer = Timings.start(Timings.FILE_COPY)) {
+            boolean toNode = false;
+            FileUtils.copyFilesBetweenMasterAndNode(logger, channel, targetFile, name, toNode, isFolder);
         }
         cleanupManager.addFile(targetFile);
     }
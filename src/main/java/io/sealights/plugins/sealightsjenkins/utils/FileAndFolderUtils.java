@@ -34,4 +34,23 @@ public class FileAndFolderUtils {
         return null;
     }
 
+    /**
+     * Deletes the folder with all of its content. Failures are logged and ignored.
+     */
+    public static void tryDeleteFolder(File folder, Logger logger) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    tryDeleteFolder(f, logger);
+                } else if (!f.delete() && f.exists()) {
+                    logger.warning("Failed to delete '" + f.getAbsolutePath() + "'.");
+                }
+            }
+        }
+        if (!folder.delete() && folder.exists()) {
+            logger.warning("Failed to delete folder '" + folder.getAbsolutePath() + "'.");
+        }
+    }
+
 }
@@ -80,22 +80,7 @@ public class FileUtils {
             VirtualChannel channel = Computer.currentComputer().getChannel();
             logger.debug("Current computer is: " + Computer.currentComputer().getName());
             logger.debug("Jenkins current computer is: " + Jenkins.MasterComputer.currentComputer().getName());
-
-            FilePath fpOnRemote = new FilePath(channel, fileOnSlave);
-            FilePath fpOnMaster = new FilePath(new File(fileOnMaster));
-            logger.debug("fpOnMaster.getChannel(): " + fpOnMaster.getChannel());
-            logger.debug("fpOnRemote: " + fpOnRemote.absolutize() + ", fpOnMaster:" + fpOnMaster.absolutize());
-
-            if (toSlave) {
-                fpOnMaster.copyTo(fpOnRemote);
-            }else {
-                if (isFolder){
-                    fpOnRemote.copyRecursiveTo(fpOnMaster);
-                }else{
-                    fpOnRemote.copyTo(fpOnMaster);
-                }
-
-            }
+            copyFilesBetweenMasterAndNode(logger, channel, fileOnMaster, fileOnSlave, toSlave, isFolder);
             return true;
         } else {
             logger.debug("There is no need to copy '" + fileOnSlave + "' since the current machine is a master Jenkins machine.");
@@ -103,6 +88,30 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Copies between the master and the node behind the given channel (i.e, the channel of the build's workspace).
+     * Unlike {@link #copyFilesBetweenMasterAndSlave}, it doesn't depend on the executor thread it runs on, so it
+     * can be used by steps that run in the background.
+     */
+    public static void copyFilesBetweenMasterAndNode(Logger logger, VirtualChannel channel, String fileOnMaster,
+                                                     String fileOnNode, boolean toNode, boolean isFolder)
+            throws IOException, InterruptedException {
+        FilePath fpOnRemote = new FilePath(channel, fileOnNode);
+        FilePath fpOnMaster = new FilePath(new File(fileOnMaster));
+        logger.debug("fpOnMaster.getChannel(): " + fpOnMaster.getChannel());
+        logger.debug("fpOnRemote: " + fpOnRemote.absolutize() + ", fpOnMaster:" + fpOnMaster.absolutize());
+
+        if (toNode) {
+            fpOnMaster.copyTo(fpOnRemote);
+        } else {
+            if (isFolder) {
+                fpOnRemote.copyRecursiveTo(fpOnMaster);
+            } else {
+                fpOnRemote.copyTo(fpOnMaster);
+            }
+        }
+    }
+
     public static boolean tryCopyFileFromLocalToSlave(Logger logger, String fileOnMaster, String fileOnSlave)
             throws IOException, InterruptedException {
         boolean toSlave = true, isFolder = false;
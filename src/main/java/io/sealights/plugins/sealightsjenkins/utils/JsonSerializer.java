@@ -3,16 +3,23 @@ package io.sealights.plugins.sealightsjenkins.utils;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 public class JsonSerializer {
     private static ObjectMapper objectMapper = new ObjectMapper();
+    private static ObjectMapper lenientObjectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     public static String serialize(Object target, boolean prettyPrint) {
         try {
@@ -45,6 +52,35 @@ public class JsonSerializer {
         return deserializedObject;
     }
 
+    /**
+     * Like {@link #deserialize(String, Class)}, skipping the properties that the target type can't set
+     * (e.g, the read-only properties of a bean that was serialized with {@link #serialize(Object)}).
+     */
+    public static <T> T deserializeLenient(String json, Class<T> targetType) {
+        try {
+            return lenientObjectMapper.readValue(json, targetType);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed during JSON deserialization. Error: " + e.toString(), e);
+        }
+    }
+
+    /**
+     * Deserializes straight from a UTF-8 stream (i.e, a response), without reading it into a string first.
+     * The stream is closed.
+     */
+    public static <T> T deserialize(InputStream stream, Class<T> targetType) {
+        T deserializedObject = null;
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            deserializedObject = objectMapper.readValue(reader, targetType);
+        } catch (JsonParseException | JsonMappingException e) {
+            throw new RuntimeException("Failed during JSON deserialization. Error: " + e.toString(), e);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed during JSON deserialization. Error: " + e.toString(), e);
+        }
+
+        return deserializedObject;
+    }
+
     public static <T1, T2> Map<T1, T2> deserializeMap(String json) {
         Map<T1, T2> deserializedObject = null;
         try {
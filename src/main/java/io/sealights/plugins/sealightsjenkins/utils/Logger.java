@@ -14,13 +14,14 @@ import java.io.StringWriter;
 public class Logger implements ILogger {
     private String PREFIX;
 
-    /* This member is static in order to avoid serialization
-      (see https://sealights.atlassian.net/browse/SLDEV-4430?filter=10625)
+    /* This member is transient in order to avoid serialization
+      (see https://sealights.atlassian.net/browse/SLDEV-4430?filter=10625).
+      It used to be static, which made concurrent builds (and the CLI stream pumpers) write into each other's logs.
     */
-    private static PrintStream printStream;
+    private transient PrintStream printStream;
 
     public Logger(PrintStream printStream, String prefix) {
-        Logger.printStream = printStream;
+        this.printStream = printStream;
         this.PREFIX = prefix;
     }
 
@@ -28,6 +29,10 @@ public class Logger implements ILogger {
         this(printStream, "SeaLights Jenkins Plugin");
     }
 
+    public String getPrefix() {
+        return PREFIX;
+    }
+
     // The methods below implement the bridge to the ILogger interface
     @Override
     public void trace(String string) {
@@ -116,7 +121,20 @@ public class Logger implements ILogger {
         error(message);
     }
 
+    /**
+     * Prints a log that was already formatted by another logger (i.e, on a build node) as is.
+     */
+    public void printFormatted(String log) {
+        if (this.printStream == null || log == null) {
+            return;
+        }
+        this.printStream.print(log);
+    }
+
     private void log(String level, String message) {
+        if (this.printStream == null) {
+            return;
+        }
         this.printStream.println("[" + PREFIX + "] " + "[" + level + "]" + " " + message);
     }
 
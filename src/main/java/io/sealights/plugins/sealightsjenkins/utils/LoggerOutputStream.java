@@ -0,0 +1,61 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that splits the written bytes into lines and forwards each line to the build log
+ * (and to an optional bounded buffer). Used when the agent writes to System.out/System.err inside our JVM.
+ */
+public class LoggerOutputStream extends OutputStream {
+
+    private final Logger logger;
+    private final boolean isErrorStream;
+    private final BoundedOutputBuffer buffer;
+    private final ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+
+    public LoggerOutputStream(Logger logger, boolean isErrorStream, BoundedOutputBuffer buffer) {
+        this.logger = logger;
+        this.isErrorStream = isErrorStream;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (b == '\n') {
+            flushLine();
+            return;
+        }
+        currentLine.write(b);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        // Partial lines are kept until the line ends or the stream is closed
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (currentLine.size() > 0) {
+            flushLine();
+        }
+    }
+
+    private void flushLine() throws IOException {
+        String line = currentLine.toString("UTF-8");
+        currentLine.reset();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+
+        if (isErrorStream) {
+            logger.error(line);
+        } else {
+            logger.info(line);
+        }
+        if (buffer != null) {
+            buffer.appendLine(line);
+        }
+    }
+}
@@ -35,6 +35,22 @@ public class PropertiesUtils {
         return p;
     }
 
+    /**
+     * Returns the value of the key as a positive integer, or the default value when the key is missing or invalid.
+     */
+    public static int getPositiveInt(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (StringUtils.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            return intValue > 0 ? intValue : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     private static boolean isValidKey(String key) {
         return !key.contains(" ");
     }
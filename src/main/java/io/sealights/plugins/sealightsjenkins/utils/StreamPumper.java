@@ -0,0 +1,57 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Drains a process stream on a background thread while the process is still running.
+ * Each line is forwarded to the build log as soon as it arrives and kept in a bounded buffer.
+ * Without draining, a process that writes more than the OS pipe buffer holds blocks forever.
+ */
+public class StreamPumper extends Thread {
+
+    private final InputStream stream;
+    private final Logger logger;
+    private final boolean isErrorStream;
+    private final BoundedOutputBuffer buffer;
+
+    public StreamPumper(InputStream stream, Logger logger, boolean isErrorStream, BoundedOutputBuffer buffer) {
+        super("SeaLights stream pumper - " + (isErrorStream ? "stderr" : "stdout"));
+        setDaemon(true);
+        this.stream = stream;
+        this.logger = logger;
+        this.isErrorStream = isErrorStream;
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                forwardLine(line);
+            }
+        } catch (IOException e) {
+            logger.warning("Stopped reading process " + streamName() + ". Error: " + e.getMessage());
+        }
+    }
+
+    public BoundedOutputBuffer getBuffer() {
+        return buffer;
+    }
+
+    private void forwardLine(String line) {
+        if (isErrorStream) {
+            logger.error(line);
+        } else {
+            logger.info(line);
+        }
+        buffer.appendLine(line);
+    }
+
+    private String streamName() {
+        return isErrorStream ? "errors output" : "output";
+    }
+}
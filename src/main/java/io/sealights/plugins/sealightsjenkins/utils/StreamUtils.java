@@ -1,27 +1,27 @@
 package io.sealights.plugins.sealightsjenkins.utils;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 
 public class StreamUtils {
+	/**
+	 * Reads the stream as UTF-8 (the charset of the server's responses), keeping its line breaks, and closes it.
+	 */
 	public static String toString(InputStream stream)
 	{
 		if (stream == null)
 			return null;
 
 		StringBuilder sb = new StringBuilder();
-		BufferedReader bufferedReader = null;
-		try{
-			InputStreamReader streamReader =  new InputStreamReader(stream);
-			bufferedReader = new BufferedReader(streamReader);
-			
-			String line;
-			while ((line = bufferedReader.readLine()) != null) {
-				sb.append(line);
+		try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				sb.append(buffer, 0, read);
 			}
-				
-			bufferedReader.close();
 		}
 		catch(Exception e)
 		{
@@ -30,4 +30,14 @@ public class StreamUtils {
 		
 		return sb.toString();
 	}
+
+	/**
+	 * Reads the rest of the stream and discards it. Unlike 'skip', filter streams (e.g, a digest stream) see the bytes.
+	 */
+	public static void readToEnd(InputStream stream) throws IOException
+	{
+		byte[] buffer = new byte[8192];
+		while (stream.read(buffer) != -1) {
+		}
+	}
 }
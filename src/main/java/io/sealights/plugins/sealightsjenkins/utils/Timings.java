@@ -0,0 +1,113 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import hudson.model.Run;
+import io.sealights.plugins.sealightsjenkins.model.TimingsAction;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Measures the SeaLights phases of a build.
+ * A build step binds its build's {@link TimingsAction} to the current thread, and the code it calls
+ * (at any depth) measures a phase with:
+ * <pre>
+ *     try (Timings.Timer timer = Timings.start(Timings.AGENT_DOWNLOAD)) {
+ *         ...
+ *     }
+ * </pre>
+ * When nothing is bound (i.e, in unit tests), measuring does nothing.
+ * A phase measured inside a measurement of the same phase on the same thread is counted once, by the outer one.
+ */
+public class Timings {
+
+    public static final String TOKEN_VALIDATION = "tokenValidation";
+    public static final String RECOMMENDED_VERSION = "recommendedVersion";
+    public static final String AGENT_DOWNLOAD = "agentDownload";
+    public static final String AGENT_UNZIP = "agentUnzip";
+    public static final String POM_DISCOVERY = "pomDiscovery";
+    public static final String POM_REWRITE = "pomRewrite";
+    public static final String FILE_COPY = "fileCopy";
+    public static final String COMMAND_QUEUE = "commandQueue";
+    public static final String COMMAND_EXECUTION = "commandExecution";
+    public static final String CLEANUP = "cleanup";
+
+    private static final ThreadLocal<TimingsAction> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Set<String>> MEASURED_PHASES = new ThreadLocal<>();
+
+    /**
+     * Binds the action of the build to the current thread and returns the previously bound one, to be passed to {@link #restore}.
+     */
+    public static TimingsAction bind(Run<?, ?> build) {
+        return bind(TimingsAction.getOrCreate(build));
+    }
+
+    /**
+     * Binds the action to the current thread and returns the previously bound one, to be passed to {@link #restore}.
+     */
+    public static TimingsAction bind(TimingsAction timingsAction) {
+        TimingsAction previous = CURRENT.get();
+        CURRENT.set(timingsAction);
+        return previous;
+    }
+
+    public static void restore(TimingsAction previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static TimingsAction current() {
+        return CURRENT.get();
+    }
+
+    public static Timer start(String phase) {
+        return new Timer(CURRENT.get(), phase);
+    }
+
+    public static class Timer implements AutoCloseable {
+        private final TimingsAction timingsAction;
+        private final String phase;
+        private final boolean isOuterMeasurement;
+        private final long startTime;
+
+        private Timer(TimingsAction timingsAction, String phase) {
+            this.timingsAction = timingsAction;
+            this.phase = phase;
+            this.isOuterMeasurement = timingsAction != null && startMeasuring(phase);
+            this.startTime = System.currentTimeMillis();
+            if (timingsAction != null) {
+                timingsAction.phaseStarted(startTime);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (timingsAction == null) {
+                return;
+            }
+            if (isOuterMeasurement) {
+                stopMeasuring(phase);
+            }
+            timingsAction.phaseEnded(isOuterMeasurement ? phase : null, startTime, System.currentTimeMillis());
+        }
+
+        private static boolean startMeasuring(String phase) {
+            Set<String> measuredPhases = MEASURED_PHASES.get();
+            if (measuredPhases == null) {
+                measuredPhases = new HashSet<>();
+                MEASURED_PHASES.set(measuredPhases);
+            }
+            return measuredPhases.add(phase);
+        }
+
+        private static void stopMeasuring(String phase) {
+            Set<String> measuredPhases = MEASURED_PHASES.get();
+            measuredPhases.remove(phase);
+            if (measuredPhases.isEmpty()) {
+                MEASURED_PHASES.remove();
+            }
+        }
+    }
+}
@@ -15,6 +15,12 @@ public class TokenValidator {
     public static final String SERVER_FIELD  = "Server";
 
     public List<ValidationError> validate(TokenData tokenData){
+        try (Timings.Timer timer = Timings.start(Timings.TOKEN_VALIDATION)) {
+            return validateTokenData(tokenData);
+        }
+    }
+
+    private List<ValidationError> validateTokenData(TokenData tokenData){
         List<ValidationError> validationErrors = new ArrayList<>();
         if (tokenData == null)
         {
@@ -0,0 +1,70 @@
+package io.sealights.plugins.sealightsjenkins;
+
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+import io.sealights.plugins.sealightsjenkins.integration.IntegratePomsOnNodeCallable;
+import io.sealights.plugins.sealightsjenkins.integration.JenkinsSeaLightsPluginInfo;
+import io.sealights.plugins.sealightsjenkins.integration.NodePomIntegrationResult;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class BeginAnalysisTest {
+
+    private List<String> folders = Collections.singletonList("/node/workspace");
+
+    @Test
+    public void tryIntegrateOnNode_integratedOnNode_shouldReturnTrue() throws Exception {
+        //Arrange
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        when(nodeChannelMock.call(any(Callable.class))).thenReturn(new NodePomIntegrationResult());
+        JenkinsSeaLightsPluginInfo slInfo = createSlInfo();
+
+        //Act
+        boolean integratedOnNode = new BeginAnalysis().tryIntegrateOnNode(new NullLogger(), slInfo, folders, "1.0.0", nodeChannelMock);
+
+        //Assert
+        Assert.assertTrue(integratedOnNode);
+        verify(nodeChannelMock).call(any(IntegratePomsOnNodeCallable.class));
+    }
+
+    @Test
+    public void tryIntegrateOnNode_callToNodeFailed_shouldFallBackToMaster() throws Exception {
+        //Arrange
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        when(nodeChannelMock.call(any(Callable.class))).thenThrow(new IOException("The node is an old agent"));
+        JenkinsSeaLightsPluginInfo slInfo = createSlInfo();
+
+        //Act
+        boolean integratedOnNode = new BeginAnalysis().tryIntegrateOnNode(new NullLogger(), slInfo, folders, "1.0.0", nodeChannelMock);
+
+        //Assert
+        Assert.assertFalse("A failed call to the node should fall back to the integration from the master", integratedOnNode);
+    }
+
+    @Test(expected = IOException.class)
+    public void tryIntegrateOnNode_integrationFailedOnNode_shouldThrow() throws Exception {
+        //Arrange
+        NodePomIntegrationResult failedResult = new NodePomIntegrationResult();
+        failedResult.setError("Failed to integrate the poms on the node.");
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        when(nodeChannelMock.call(any(Callable.class))).thenReturn(failedResult);
+        JenkinsSeaLightsPluginInfo slInfo = createSlInfo();
+
+        //Act
+        new BeginAnalysis().tryIntegrateOnNode(new NullLogger(), slInfo, folders, "1.0.0", nodeChannelMock);
+    }
+
+    private JenkinsSeaLightsPluginInfo createSlInfo() {
+        JenkinsSeaLightsPluginInfo slInfo = new JenkinsSeaLightsPluginInfo();
+        slInfo.setBuildFilesPatterns("pom.xml");
+        return slInfo;
+    }
+}
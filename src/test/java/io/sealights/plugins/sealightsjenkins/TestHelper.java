@@ -28,6 +28,8 @@ public class TestHelper {
 
     public class BuildMock extends FreeStyleBuild {
 
+        private Node builtOn;
+
         public BuildMock(FreeStyleProject project) throws IOException {
             super(project);
             VirtualChannel vc = new LocalChannel(null);
@@ -35,9 +37,17 @@ public class TestHelper {
             setWorkspace(fp);
         }
 
+        public void changeWorkspace(FilePath workspace) {
+            setWorkspace(workspace);
+        }
+
+        public void changeBuiltOn(Node builtOn) {
+            this.builtOn = builtOn;
+        }
+
         @Override
         public Node getBuiltOn() {
-            return new NodeMock();
+            return builtOn != null ? builtOn : new NodeMock();
         }
     }
 
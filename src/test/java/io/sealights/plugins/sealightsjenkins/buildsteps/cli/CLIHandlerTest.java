@@ -0,0 +1,116 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+import io.sealights.plugins.sealightsjenkins.TestHelper;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.AgentResolutionMode;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.EndCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node.ResolveAgentOnNodeCallable;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class CLIHandlerTest {
+
+    private TestHelper testHelper = new TestHelper();
+
+    @Test
+    public void tryGetAgentPathOnNode_agentResolvedOnNode_shouldReturnThePathOnTheNode() throws Exception {
+        //Arrange
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        when(nodeChannelMock.call(any(Callable.class))).thenReturn("/node/sl-cache/sl-build-scanner-1.0.0.jar");
+        BaseCommandArguments baseArgs = createBaseCommandArguments(CommandExecutionMode.NODE, nodeChannelMock);
+        CLIHandler cliHandler = new CLIHandler(baseArgs, new EndCommandArguments(), "/master/files", new NullLogger());
+
+        //Act
+        String agentOnNode = cliHandler.tryGetAgentPathOnNode(new NullLogger(), baseArgs);
+
+        //Assert
+        ArgumentCaptor<Callable> captor = ArgumentCaptor.forClass(Callable.class);
+        verify(nodeChannelMock).call(captor.capture());
+        Assert.assertTrue("The agent should be resolved by a callable on the node",
+                captor.getValue() instanceof ResolveAgentOnNodeCallable);
+        Assert.assertEquals("/node/sl-cache/sl-build-scanner-1.0.0.jar", agentOnNode);
+    }
+
+    @Test
+    public void tryGetAgentPathOnNode_resolutionFailedOnNode_shouldFallBackToMaster() throws Exception {
+        //Arrange
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        when(nodeChannelMock.call(any(Callable.class))).thenThrow(new IOException("The node can't reach the server"));
+        BaseCommandArguments baseArgs = createBaseCommandArguments(CommandExecutionMode.NODE, nodeChannelMock);
+        CLIHandler cliHandler = new CLIHandler(baseArgs, new EndCommandArguments(), "/master/files", new NullLogger());
+
+        //Act
+        String agentOnNode = cliHandler.tryGetAgentPathOnNode(new NullLogger(), baseArgs);
+
+        //Assert
+        Assert.assertNull("A failure on the node should fall back to the master", agentOnNode);
+    }
+
+    @Test
+    public void tryGetAgentPathOnNode_executionModeIsNotNode_shouldFallBackToMaster() throws Exception {
+        //Arrange
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        BaseCommandArguments baseArgs = createBaseCommandArguments(CommandExecutionMode.PROCESS, nodeChannelMock);
+        CLIHandler cliHandler = new CLIHandler(baseArgs, new EndCommandArguments(), "/master/files", new NullLogger());
+
+        //Act
+        String agentOnNode = cliHandler.tryGetAgentPathOnNode(new NullLogger(), baseArgs);
+
+        //Assert
+        Assert.assertNull(agentOnNode);
+        verify(nodeChannelMock, never()).call(any(Callable.class));
+    }
+
+    @Test
+    public void tryGetAgentPathOnNode_workspaceIsOnMaster_shouldFallBackToMaster() throws Exception {
+        //Arrange
+        BaseCommandArguments baseArgs = createBaseCommandArguments(CommandExecutionMode.NODE, null);
+        CLIHandler cliHandler = new CLIHandler(baseArgs, new EndCommandArguments(), "/master/files", new NullLogger());
+
+        //Act
+        String agentOnNode = cliHandler.tryGetAgentPathOnNode(new NullLogger(), baseArgs);
+
+        //Assert
+        Assert.assertNull("A build on the master has no node to resolve the agent on", agentOnNode);
+    }
+
+    private BaseCommandArguments createBaseCommandArguments(CommandExecutionMode executionMode,
+                                                            VirtualChannel nodeChannel) throws IOException {
+        BaseCommandArguments baseArgs = new BaseCommandArguments();
+        baseArgs.setToken("fake-token");
+        baseArgs.setAppName("demoApp");
+        baseArgs.setBranchName("branchy");
+        baseArgs.setEnvVars(new EnvVars());
+        baseArgs.setExecutionMode(executionMode);
+        baseArgs.setAgentResolution(AgentResolutionMode.NODE);
+
+        TestHelper.BuildMock build = testHelper.createBuildMock();
+        if (nodeChannel != null) {
+            build.changeWorkspace(new FilePath(nodeChannel, "/node/workspace"));
+            Node node = mock(Node.class);
+            when(node.getRootPath()).thenReturn(new FilePath(nodeChannel, "/node"));
+            build.changeBuiltOn(node);
+        }
+        baseArgs.setBuild(build);
+
+        Launcher launcher = mock(Launcher.class);
+        when(launcher.getListener()).thenReturn(mock(TaskListener.class));
+        baseArgs.setLauncher(launcher);
+        return baseArgs;
+    }
+}
@@ -0,0 +1,64 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.async;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+public class PendingStepsRegistryTest {
+
+    private static final String BUILD_ID = "job#1";
+
+    @Test
+    public void collect_stepsWereSubmitted_shouldRunThemInOrderAndReturnResults() throws InterruptedException {
+        //Arrange
+        PendingStepsRegistry registry = new PendingStepsRegistry();
+        List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+        registry.submit(BUILD_ID, "uploadReports", false, createStep("uploadReports", true, executionOrder));
+        registry.submit(BUILD_ID, "end", true, createStep("end", false, executionOrder));
+
+        //Act
+        List<PendingStepsRegistry.PendingStep> steps = registry.collect(BUILD_ID);
+
+        //Assert
+        Assert.assertEquals("uploadReports should run before end", "[uploadReports, end]", executionOrder.toString());
+        Assert.assertEquals(2, steps.size());
+        Assert.assertTrue("'uploadReports' should succeed", steps.get(0).isSuccess());
+        Assert.assertFalse("'end' should fail", steps.get(1).isSuccess());
+        Assert.assertTrue(steps.get(1).isFailBuildIfStepFail());
+        Assert.assertFalse("The build should not be tracked after collecting", registry.hasPendingSteps(BUILD_ID));
+    }
+
+    @Test
+    public void collect_stepThrowsException_shouldReturnFailedStepWithError() throws InterruptedException {
+        //Arrange
+        PendingStepsRegistry registry = new PendingStepsRegistry();
+        registry.submit(BUILD_ID, "externalReport", true, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                throw new IllegalStateException("fake error");
+            }
+        });
+
+        //Act
+        List<PendingStepsRegistry.PendingStep> steps = registry.collect(BUILD_ID);
+
+        //Assert
+        Assert.assertFalse("The step should fail", steps.get(0).isSuccess());
+        Assert.assertEquals("fake error", steps.get(0).getError().getMessage());
+    }
+
+    private Callable<Boolean> createStep(final String name, final boolean result, final List<String> executionOrder) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws InterruptedException {
+                Thread.sleep(50);
+                executionOrder.add(name);
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,152 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CommandExecutionSchedulerTest {
+
+    private Logger nullLogger = new NullLogger();
+
+    @Test
+    public void acquire_commandLimitReached_shouldWaitUntilPermitIsReleased() throws InterruptedException {
+        //Arrange
+        final CommandExecutionScheduler scheduler = new CommandExecutionScheduler();
+        scheduler.configure(0, "uploadReports=1");
+        CommandExecutionScheduler.Permit firstPermit = scheduler.acquire("uploadReports", nullLogger);
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waitingCommand = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.acquire("uploadReports", nullLogger).release();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // The assertion below fails
+                }
+            }
+        });
+
+        //Act
+        waitingCommand.start();
+        boolean acquiredBeforeRelease = acquired.await(200, TimeUnit.MILLISECONDS);
+        firstPermit.release();
+        boolean acquiredAfterRelease = acquired.await(5, TimeUnit.SECONDS);
+
+        //Assert
+        Assert.assertFalse("The second command should wait while the limit is reached!", acquiredBeforeRelease);
+        Assert.assertTrue("The second command should run once the first one released its permit!", acquiredAfterRelease);
+    }
+
+    @Test
+    public void acquire_otherCommandLimitReached_shouldNotWait() throws InterruptedException {
+        //Arrange
+        CommandExecutionScheduler scheduler = new CommandExecutionScheduler();
+        scheduler.configure(0, "uploadReports=1");
+        CommandExecutionScheduler.Permit uploadPermit = scheduler.acquire("uploadReports", nullLogger);
+
+        //Act
+        CommandExecutionScheduler.Permit startPermit = scheduler.acquire("start", nullLogger);
+
+        //Assert
+        Assert.assertNotNull("'start' should not be limited by 'uploadReports'!", startPermit);
+        startPermit.release();
+        uploadPermit.release();
+    }
+
+    @Test
+    public void configure_sameLimitWhileCommandsRun_shouldNotAllowMoreCommands() throws InterruptedException {
+        //Arrange
+        CommandExecutionScheduler scheduler = new CommandExecutionScheduler();
+        scheduler.configure(0, "uploadReports=2");
+        CommandExecutionScheduler.Permit firstPermit = scheduler.acquire("uploadReports", nullLogger);
+        CommandExecutionScheduler.Permit secondPermit = scheduler.acquire("uploadReports", nullLogger);
+
+        //Act
+        scheduler.configure(0, "uploadReports=2");
+        CountDownLatch acquired = startWaitingCommand(scheduler, "uploadReports");
+        boolean acquiredWhileLimitReached = acquired.await(200, TimeUnit.MILLISECONDS);
+        firstPermit.release();
+        boolean acquiredAfterRelease = acquired.await(5, TimeUnit.SECONDS);
+
+        //Assert
+        Assert.assertFalse("Saving the configuration should not add permits to running commands!", acquiredWhileLimitReached);
+        Assert.assertTrue("A command should run once a running one released its permit!", acquiredAfterRelease);
+        secondPermit.release();
+    }
+
+    @Test
+    public void configure_lowerLimitWhileCommandsRun_shouldWaitUntilBelowTheNewLimit() throws InterruptedException {
+        //Arrange
+        CommandExecutionScheduler scheduler = new CommandExecutionScheduler();
+        scheduler.configure(0, null);
+        CommandExecutionScheduler.Permit firstPermit = scheduler.acquire("start", nullLogger);
+        CommandExecutionScheduler.Permit secondPermit = scheduler.acquire("end", nullLogger);
+
+        //Act
+        scheduler.configure(1, null);
+        CountDownLatch acquired = startWaitingCommand(scheduler, "start");
+        firstPermit.release();
+        boolean acquiredAboveNewLimit = acquired.await(200, TimeUnit.MILLISECONDS);
+        secondPermit.release();
+        boolean acquiredBelowNewLimit = acquired.await(5, TimeUnit.SECONDS);
+
+        //Assert
+        Assert.assertFalse("A command should wait while the running ones exceed the new limit!", acquiredAboveNewLimit);
+        Assert.assertTrue("A command should run once the running ones are below the new limit!", acquiredBelowNewLimit);
+    }
+
+    @Test
+    public void configure_higherLimitWhileCommandsRun_shouldAllowMoreCommands() throws InterruptedException {
+        //Arrange
+        CommandExecutionScheduler scheduler = new CommandExecutionScheduler();
+        scheduler.configure(1, null);
+        CommandExecutionScheduler.Permit firstPermit = scheduler.acquire("start", nullLogger);
+
+        //Act
+        scheduler.configure(2, null);
+        CountDownLatch acquired = startWaitingCommand(scheduler, "start");
+        boolean acquiredWithNewLimit = acquired.await(5, TimeUnit.SECONDS);
+
+        //Assert
+        Assert.assertTrue("A command should run right away once the limit was raised!", acquiredWithNewLimit);
+        firstPermit.release();
+    }
+
+    private CountDownLatch startWaitingCommand(final CommandExecutionScheduler scheduler, final String commandName) {
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waitingCommand = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.acquire(commandName, nullLogger).release();
+                    acquired.countDown();
+                } catch (InterruptedException e) {
+                    // The assertions fail
+                }
+            }
+        });
+        waitingCommand.setDaemon(true);
+        waitingCommand.start();
+        return acquired;
+    }
+
+    @Test
+    public void parseLimits_validAndInvalidEntries_shouldReturnOnlyValidLimits() {
+        //Arrange
+        String limits = "uploadReports=4, start = 10,end,config=abc";
+
+        //Act
+        Map<String, Integer> result = CommandExecutionScheduler.parseLimits(limits);
+
+        //Assert
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(Integer.valueOf(4), result.get("uploadreports"));
+        Assert.assertEquals(Integer.valueOf(10), result.get("start"));
+    }
+}
@@ -0,0 +1,53 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CommandWatchdogTest {
+
+    @Test
+    public void start_commandExceedsTimeout_shouldKillCommand() throws InterruptedException {
+        //Arrange
+        final CountDownLatch killed = new CountDownLatch(1);
+        CommandWatchdog.KillAction killAction = new CommandWatchdog.KillAction() {
+            @Override
+            public void kill() {
+                killed.countDown();
+            }
+        };
+
+        //Act
+        CommandWatchdog watchdog = CommandWatchdog.start(1, killAction);
+        boolean isKilled = killed.await(5, TimeUnit.SECONDS);
+        watchdog.cancel();
+
+        //Assert
+        Assert.assertTrue("The command should be killed once its timeout passed!", isKilled);
+        Assert.assertTrue("watchdog.isTimedOut() should be true!", watchdog.isTimedOut());
+        Assert.assertFalse("watchdog.isAborted() should be false!", watchdog.isAborted());
+    }
+
+    @Test
+    public void cancel_commandEndedBeforeTimeout_shouldNotKillCommand() throws InterruptedException {
+        //Arrange
+        final CountDownLatch killed = new CountDownLatch(1);
+        CommandWatchdog.KillAction killAction = new CommandWatchdog.KillAction() {
+            @Override
+            public void kill() {
+                killed.countDown();
+            }
+        };
+
+        //Act
+        CommandWatchdog watchdog = CommandWatchdog.start(1, killAction);
+        watchdog.cancel();
+        boolean isKilled = killed.await(2, TimeUnit.SECONDS);
+
+        //Assert
+        Assert.assertFalse("The command should not be killed after the watchdog was canceled!", isKilled);
+        Assert.assertFalse("watchdog.isTimedOut() should be false!", watchdog.isTimedOut());
+    }
+}
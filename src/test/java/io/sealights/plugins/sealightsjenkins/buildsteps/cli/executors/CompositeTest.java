@@ -0,0 +1,117 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.*;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+public class CompositeTest {
+
+    private Logger nullLogger = new NullLogger();
+
+    @Test
+    public void execute_allSubCommandsSucceed_shouldRunThemInOrderAndSucceed() throws InterruptedException {
+        //Arrange
+        BaseCommandArguments baseArgs = new BaseCommandArguments();
+        StartCommandArguments start = new StartCommandArguments("Unit Tests");
+        UploadReportsCommandArguments upload = new UploadReportsCommandArguments("report.xml", null, true, null);
+        EndCommandArguments end = new EndCommandArguments();
+        CompositeCommandArguments compositeArgs = new CompositeCommandArguments(createCommands(start, upload, end));
+
+        ICommandExecutor startExecutor = createExecutorMock(true);
+        ICommandExecutor uploadExecutor = createExecutorMock(true);
+        ICommandExecutor endExecutor = createExecutorMock(true);
+        CommandExecutorsFactory factoryMock = mock(CommandExecutorsFactory.class);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, start)).thenReturn(startExecutor);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, upload)).thenReturn(uploadExecutor);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, end)).thenReturn(endExecutor);
+
+        CompositeCommandExecutor compositeExecutor =
+                new CompositeCommandExecutor(nullLogger, baseArgs, compositeArgs, factoryMock);
+
+        //Act
+        boolean result = compositeExecutor.execute();
+
+        //Assert
+        Assert.assertTrue("compositeExecutor.execute() should be true!", result);
+        InOrder inOrder = inOrder(startExecutor, uploadExecutor, endExecutor);
+        inOrder.verify(startExecutor).execute();
+        inOrder.verify(uploadExecutor).execute();
+        inOrder.verify(endExecutor).execute();
+    }
+
+    @Test
+    public void execute_startFails_shouldStopAndFail() throws InterruptedException {
+        //Arrange
+        BaseCommandArguments baseArgs = new BaseCommandArguments();
+        StartCommandArguments start = new StartCommandArguments("Unit Tests");
+        UploadReportsCommandArguments upload = new UploadReportsCommandArguments("report.xml", null, true, null);
+        EndCommandArguments end = new EndCommandArguments();
+        CompositeCommandArguments compositeArgs = new CompositeCommandArguments(createCommands(start, upload, end));
+
+        ICommandExecutor startExecutor = createExecutorMock(false);
+        ICommandExecutor uploadExecutor = createExecutorMock(true);
+        ICommandExecutor endExecutor = createExecutorMock(true);
+        CommandExecutorsFactory factoryMock = mock(CommandExecutorsFactory.class);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, start)).thenReturn(startExecutor);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, upload)).thenReturn(uploadExecutor);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, end)).thenReturn(endExecutor);
+
+        CompositeCommandExecutor compositeExecutor =
+                new CompositeCommandExecutor(nullLogger, baseArgs, compositeArgs, factoryMock);
+
+        //Act
+        boolean result = compositeExecutor.execute();
+
+        //Assert
+        Assert.assertFalse("compositeExecutor.execute() should be false!", result);
+        verify(uploadExecutor, never()).execute();
+        verify(endExecutor, never()).execute();
+    }
+
+    @Test
+    public void execute_uploadFails_shouldNotEndTheSessionAndFail() throws InterruptedException {
+        //Arrange
+        BaseCommandArguments baseArgs = new BaseCommandArguments();
+        UploadReportsCommandArguments upload = new UploadReportsCommandArguments("report.xml", null, true, null);
+        EndCommandArguments end = new EndCommandArguments();
+        CompositeCommandArguments compositeArgs = new CompositeCommandArguments(createCommands(upload, end));
+
+        ICommandExecutor uploadExecutor = createExecutorMock(false);
+        ICommandExecutor endExecutor = createExecutorMock(true);
+        CommandExecutorsFactory factoryMock = mock(CommandExecutorsFactory.class);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, upload)).thenReturn(uploadExecutor);
+        when(factoryMock.createExecutor(nullLogger, baseArgs, end)).thenReturn(endExecutor);
+
+        CompositeCommandExecutor compositeExecutor =
+                new CompositeCommandExecutor(nullLogger, baseArgs, compositeArgs, factoryMock);
+
+        //Act
+        boolean result = compositeExecutor.execute();
+
+        //Assert
+        Assert.assertFalse("compositeExecutor.execute() should be false!", result);
+        verify(endExecutor, never()).execute();
+    }
+
+    private List<AbstractCommandArgument> createCommands(AbstractCommandArgument... commands) {
+        List<AbstractCommandArgument> list = new ArrayList<>();
+        for (AbstractCommandArgument command : commands) {
+            list.add(command);
+        }
+        return list;
+    }
+
+    private ICommandExecutor createExecutorMock(boolean result) throws InterruptedException {
+        ICommandExecutor executor = mock(ICommandExecutor.class);
+        when(executor.execute()).thenReturn(result);
+        return executor;
+    }
+}
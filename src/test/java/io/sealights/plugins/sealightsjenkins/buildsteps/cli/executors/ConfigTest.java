@@ -30,7 +30,7 @@ public class ConfigTest {
     protected Logger nullLogger = new NullLogger();
 
     @Test
-    public void execute_giveValidConfigArguments_shouldExecuteCorrectCommand() throws IOException {
+    public void execute_giveValidConfigArguments_shouldExecuteCorrectCommand() throws IOException, InterruptedException {
         //Arrange
         BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
         ConfigCommandArguments configArguments = createConfigArguments();
@@ -23,7 +23,7 @@ public class EndTest {
     private Logger nullLogger = new NullLogger();
 
     @Test
-    public void execute_giveValidEndArguments_shouldExecuteCorrectCommand() throws IOException {
+    public void execute_giveValidEndArguments_shouldExecuteCorrectCommand() throws IOException, InterruptedException {
         //Arrange
         BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
         EndCommandArguments endArguments = new EndCommandArguments();
@@ -0,0 +1,73 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class FastStartProfileTest {
+
+    private static final String JAVA_PATH = "path/to/java";
+
+    @Test
+    public void getJvmOptions_archiveWasNotCreated_shouldGenerateArchiveAtExit() throws IOException {
+        //Arrange
+        File agentJar = File.createTempFile("sl-test-listener-", ".jar");
+        FastStartProfile fastStartProfile = new FastStartProfile(JAVA_PATH, agentJar.getAbsolutePath());
+
+        //Act
+        List<String> options = fastStartProfile.getJvmOptions();
+
+        //Assert
+        Assert.assertTrue("Options should ignore unknown flags on older JVMs", options.contains("-XX:+IgnoreUnrecognizedVMOptions"));
+        Assert.assertTrue("Options should dump an archive at exit", containsPrefix(options, "-XX:ArchiveClassesAtExit="));
+        Assert.assertFalse("Options should not use an archive", containsPrefix(options, "-XX:SharedArchiveFile="));
+        fastStartProfile.onProcessEnded(false);
+        agentJar.delete();
+    }
+
+    @Test
+    public void getJvmOptions_archiveExists_shouldUseArchive() throws IOException {
+        //Arrange
+        File agentJar = File.createTempFile("sl-test-listener-", ".jar");
+        File generated = createGeneratedArchive(agentJar);
+        FastStartProfile fastStartProfile = new FastStartProfile(JAVA_PATH, agentJar.getAbsolutePath());
+
+        //Act
+        List<String> options = fastStartProfile.getJvmOptions();
+
+        //Assert
+        Assert.assertTrue("Options should use the archive", containsPrefix(options, "-XX:SharedArchiveFile="));
+        Assert.assertFalse("Options should not dump an archive", containsPrefix(options, "-XX:ArchiveClassesAtExit="));
+        Assert.assertFalse("The generated file should be renamed", generated.exists());
+        for (File archive : FastStartProfile.findArchives(agentJar)) {
+            archive.delete();
+        }
+        agentJar.delete();
+    }
+
+    private File createGeneratedArchive(File agentJar) throws IOException {
+        // Simulates a JVM that dumped the archive it was asked for
+        FastStartProfile generatingProfile = new FastStartProfile(JAVA_PATH, agentJar.getAbsolutePath());
+        for (String option : generatingProfile.getJvmOptions()) {
+            if (option.startsWith("-XX:ArchiveClassesAtExit=")) {
+                File generated = new File(option.substring("-XX:ArchiveClassesAtExit=".length()));
+                generated.createNewFile();
+                generatingProfile.onProcessEnded(true);
+                return generated;
+            }
+        }
+        throw new IllegalStateException("An archive should be generated");
+    }
+
+    private boolean containsPrefix(List<String> options, String prefix) {
+        for (String option : options) {
+            if (option.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
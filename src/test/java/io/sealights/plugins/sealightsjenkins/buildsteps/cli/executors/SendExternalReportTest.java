@@ -19,7 +19,7 @@ public class SendExternalReportTest {
     private Logger nullLogger = new NullLogger();
 
     @Test
-    public void execute_giveValidExternalReportArguments_shouldExecuteCorrectCommand() throws IOException {
+    public void execute_giveValidExternalReportArguments_shouldExecuteCorrectCommand() throws IOException, InterruptedException {
         //Arrange
         BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
         ExternalReportCommandArguments externalReportArguments = createExternalReportArguments();
@@ -2,7 +2,9 @@ package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
 
 import hudson.EnvVars;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.StartCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.inprocess.InProcessAgentRunner;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
 import org.junit.Assert;
@@ -22,7 +24,7 @@ public class StartTest {
     private Logger nullLogger = new NullLogger();
 
     @Test
-    public void execute_giveValidStartArguments_shouldExecuteCorrectCommand() throws IOException {
+    public void execute_giveValidStartArguments_shouldExecuteCorrectCommand() throws IOException, InterruptedException {
         //Arrange
         BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
         StartCommandArguments startArguments = new StartCommandArguments("newEnv");
@@ -65,6 +67,56 @@ public class StartTest {
         }
     }
 
+    @Test
+    public void execute_inProcessMode_shouldRunAgentArgumentsWithoutStartingProcess() throws Exception {
+        //Arrange
+        BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
+        baseCommandArguments.setExecutionMode(CommandExecutionMode.IN_PROCESS);
+        StartCommandArguments startArguments = new StartCommandArguments("newEnv");
+        StartCommandExecutor startExecutor = new StartCommandExecutor(nullLogger, baseCommandArguments, startArguments);
+
+        Runtime runtimeMock = mock(Runtime.class);
+        InProcessAgentRunner runnerMock = mock(InProcessAgentRunner.class);
+        when(runnerMock.run(anyString(), any(String[].class), any(Logger.class))).thenReturn(0);
+        final ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+
+        //Act
+        startExecutor.setRuntime(runtimeMock);
+        startExecutor.setInProcessAgentRunner(runnerMock);
+        boolean result = startExecutor.execute();
+
+        //Assert
+        Assert.assertTrue("startExecutor.execute() should be true!", result);
+        verify(runnerMock).run(eq("agent.jar"), captor.capture(), any(Logger.class));
+        verify(runtimeMock, never()).exec(any(String[].class));
+        String[] expectedAgentArguments = {"start", "-token", "fake-token", "-buildsessionidfile", "/path/to/buildsessionid.txt", "-appname", "demoApp", "-buildname", "1", "-branchname", "branchy", "-labid", "someEnv", "-testStage", "newEnv"};
+        Assert.assertArrayEquals(
+                "The agent arguments that were executed in-process for the 'start' executor are not as expected",
+                expectedAgentArguments, captor.getValue());
+    }
+
+    @Test
+    public void execute_inProcessModeNotAvailable_shouldFallBackToProcess() throws Exception {
+        //Arrange
+        BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
+        baseCommandArguments.setExecutionMode(CommandExecutionMode.IN_PROCESS);
+        StartCommandArguments startArguments = new StartCommandArguments("newEnv");
+        StartCommandExecutor startExecutor = new StartCommandExecutor(nullLogger, baseCommandArguments, startArguments);
+
+        Runtime runtimeMock = mock(Runtime.class);
+        InProcessAgentRunner runnerMock = mock(InProcessAgentRunner.class);
+        when(runnerMock.run(anyString(), any(String[].class), any(Logger.class)))
+                .thenThrow(new IllegalStateException("not supported"));
+
+        //Act
+        startExecutor.setRuntime(runtimeMock);
+        startExecutor.setInProcessAgentRunner(runnerMock);
+        startExecutor.execute();
+
+        //Assert
+        verify(runtimeMock).exec(any(String[].class));
+    }
+
     private BaseCommandArguments createBaseCommandArguments() {
         BaseCommandArguments baseCommandArguments = new BaseCommandArguments();
         baseCommandArguments.setJavaPath("path/to/java");
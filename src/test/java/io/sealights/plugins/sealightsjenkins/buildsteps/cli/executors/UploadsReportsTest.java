@@ -1,19 +1,38 @@
 package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors;
 
 import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
 import io.sealights.plugins.sealightsjenkins.TestHelper;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.BaseCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.CommandExecutionMode;
 import io.sealights.plugins.sealightsjenkins.buildsteps.cli.entities.UploadReportsCommandArguments;
+import io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node.NodeCommandRunner;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.NodeAgentCache;
 import io.sealights.plugins.sealightsjenkins.utils.Logger;
 import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,7 +46,7 @@ public class UploadsReportsTest {
     private boolean NO_MORE_REQUESTS = false;
 
     @Test
-    public void execute_giveValidUploadReportsArguments_shouldExecuteCorrectCommand() throws IOException {
+    public void execute_giveValidUploadReportsArguments_shouldExecuteCorrectCommand() throws IOException, InterruptedException {
         //Arrange
         BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
         UploadReportsCommandArguments uploadReportsArguments =
@@ -72,6 +91,104 @@ public class UploadsReportsTest {
         }
     }
 
+    @Test
+    public void execute_nodeExecutionMode_shouldLaunchOnNodeWithReportsAsIs() throws Exception {
+        //Arrange
+        File agentOnMaster = File.createTempFile("sl-test-listener", ".jar");
+        BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
+        baseCommandArguments.setAgentPath(agentOnMaster.getAbsolutePath());
+        baseCommandArguments.setExecutionMode(CommandExecutionMode.NODE);
+        baseCommandArguments.setLauncher(mock(Launcher.class));
+        ((TestHelper.BuildMock) baseCommandArguments.getBuild()).changeWorkspace(
+                new FilePath(mock(VirtualChannel.class), "/node/workspace"));
+        UploadReportsCommandArguments uploadReportsArguments =
+                new UploadReportsCommandArguments("report1.txt", null, NO_MORE_REQUESTS, null);
+        UploadReportsCommandExecutor uploadReportsExecutor = new UploadReportsCommandExecutor(nullLogger, baseCommandArguments, uploadReportsArguments);
+
+        Runtime runtimeMock = mock(Runtime.class);
+        NodeAgentCache nodeAgentCacheMock = mock(NodeAgentCache.class);
+        when(nodeAgentCacheMock.copyToNode(any(Logger.class), eq(agentOnMaster), any(FilePath.class), anyString(), anyString()))
+                .thenReturn("/node/agent.jar");
+        NodeCommandRunner nodeCommandRunnerMock = mock(NodeCommandRunner.class);
+        final ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+
+        //Act
+        uploadReportsExecutor.setRuntime(runtimeMock);
+        uploadReportsExecutor.setNodeAgentCache(nodeAgentCacheMock);
+        uploadReportsExecutor.setNodeCommandRunner(nodeCommandRunnerMock);
+        boolean result = uploadReportsExecutor.execute();
+        agentOnMaster.delete();
+
+        //Assert
+        Assert.assertTrue("uploadReportsExecutor.execute() should be true!", result);
+        verify(runtimeMock, never()).exec(any(String[].class));
+        verify(nodeCommandRunnerMock).run(any(Launcher.class), any(FilePath.class), any(EnvVars.class),
+                eq("path/to/java"), eq("/node/agent.jar"), captor.capture(), eq(0), any(Logger.class));
+        String[] expectedAgentArguments = {"uploadReports", "-token", "fake-token", "-buildsessionidfile", "/path/to/buildsessionid.txt", "-appname", "demoApp", "-buildname", "1", "-branchname", "branchy", "-labid", "someEnv", "-reportFile", "report1.txt", "-hasMoreRequests", "false"};
+        Assert.assertArrayEquals(
+                "The agent arguments that were launched on the node for the 'upload reports' executor are not as expected",
+                expectedAgentArguments, captor.getValue());
+    }
+
+    @Test
+    public void execute_reportsOnRemoteWorkspaceFromNonExecutorThread_shouldCopyReportsThroughWorkspaceChannel() throws Exception {
+        //Arrange
+        File reportOnNode = File.createTempFile("report", ".txt");
+        Files.write(reportOnNode.toPath(), "report content".getBytes(StandardCharsets.UTF_8));
+
+        // A remote workspace whose channel runs the copy callables locally
+        VirtualChannel nodeChannelMock = mock(VirtualChannel.class);
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((Callable) invocation.getArguments()[0]).call();
+            }
+        }).when(nodeChannelMock).call(any(Callable.class));
+
+        BaseCommandArguments baseCommandArguments = createBaseCommandArguments();
+        ((TestHelper.BuildMock) baseCommandArguments.getBuild()).changeWorkspace(new FilePath(nodeChannelMock, "/path/to/workspace"));
+        UploadReportsCommandArguments uploadReportsArguments =
+                new UploadReportsCommandArguments(reportOnNode.getAbsolutePath(), null, NO_MORE_REQUESTS, null);
+        final UploadReportsCommandExecutor uploadReportsExecutor = new UploadReportsCommandExecutor(nullLogger, baseCommandArguments, uploadReportsArguments);
+
+        Runtime runtimeMock = mock(Runtime.class);
+        final ArgumentCaptor<String[]> captor = ArgumentCaptor.forClass(String[].class);
+        uploadReportsExecutor.setRuntime(runtimeMock);
+
+        //Act
+        // Steps that run in the background aren't on an executor thread, there's no current computer
+        final AtomicBoolean failedWithException = new AtomicBoolean();
+        Thread backgroundThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    uploadReportsExecutor.execute();
+                } catch (Exception e) {
+                    failedWithException.set(true);
+                }
+            }
+        });
+        backgroundThread.start();
+        backgroundThread.join();
+
+        //Assert
+        try {
+            Assert.assertFalse("uploadReportsExecutor.execute() should not throw exception!", failedWithException.get());
+            verify(nodeChannelMock, atLeastOnce()).call(any(Callable.class));
+            verify(runtimeMock).exec(captor.capture());
+            String[] actualCommandLine = captor.getValue();
+            int reportFileIndex = Arrays.asList(actualCommandLine).indexOf("-reportFile") + 1;
+            File reportOnMaster = new File(actualCommandLine[reportFileIndex]);
+            Assert.assertNotEquals("The report should be uploaded from a copy on the master",
+                    reportOnNode.getAbsolutePath(), reportOnMaster.getAbsolutePath());
+            Assert.assertEquals("The report copied to the master is not as expected",
+                    "report content", new String(Files.readAllBytes(reportOnMaster.toPath()), StandardCharsets.UTF_8));
+            reportOnMaster.delete();
+        } finally {
+            reportOnNode.delete();
+        }
+    }
+
     private BaseCommandArguments createBaseCommandArguments() throws IOException {
         BaseCommandArguments baseCommandArguments = new BaseCommandArguments();
         baseCommandArguments.setJavaPath("path/to/java");
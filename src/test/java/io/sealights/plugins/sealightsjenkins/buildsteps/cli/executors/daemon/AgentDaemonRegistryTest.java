@@ -0,0 +1,91 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon;
+
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+public class AgentDaemonRegistryTest {
+
+    private Logger nullLogger = new NullLogger();
+
+    @Test
+    public void execute_twoCommands_shouldReuseTheIdleDaemon() throws Exception {
+        //Arrange
+        FakeDaemonProcess process = new FakeDaemonProcess().ready().exit(1, 0).exit(2, 0);
+        FakeDaemonsRegistry registry = new FakeDaemonsRegistry(process);
+
+        //Act
+        registry.execute("java", "agent.jar", new String[]{"start"}, 600, 0, nullLogger);
+        registry.execute("java", "agent.jar", new String[]{"end"}, 600, 0, nullLogger);
+
+        //Assert
+        Assert.assertEquals("Only one daemon should be started", 1, registry.startedProcesses.size());
+        registry.stopAll();
+    }
+
+    @Test
+    public void stopIdleDaemons_idleTimeoutPassed_shouldStopTheDaemon() throws Exception {
+        //Arrange
+        FakeDaemonProcess process = new FakeDaemonProcess().ready().exit(1, 0);
+        FakeDaemonsRegistry registry = new FakeDaemonsRegistry(process);
+        registry.execute("java", "agent.jar", new String[]{"start"}, 1, 0, nullLogger);
+
+        //Act
+        registry.stopIdleDaemons(System.currentTimeMillis());
+        boolean stoppedBeforeTimeout = process.isDestroyed();
+        registry.stopIdleDaemons(System.currentTimeMillis() + 2000);
+
+        //Assert
+        Assert.assertFalse("A daemon should not be stopped before its idle timeout", stoppedBeforeTimeout);
+        Assert.assertTrue("A daemon should be stopped once its idle timeout passed", process.isDestroyed());
+    }
+
+    @Test
+    public void execute_daemonCrashed_shouldStartANewDaemonForTheNextCommand() throws Exception {
+        //Arrange
+        FakeDaemonProcess crashing = new FakeDaemonProcess().ready().stdout(1, "about to crash\n");
+        FakeDaemonProcess replacement = new FakeDaemonProcess().ready().exit(1, 0);
+        FakeDaemonsRegistry registry = new FakeDaemonsRegistry(crashing, replacement);
+
+        //Act
+        try {
+            registry.execute("java", "agent.jar", new String[]{"start"}, 600, 0, nullLogger);
+            Assert.fail("A command whose daemon crashed should fail");
+        } catch (IOException e) {
+            // Expected
+        }
+        int exitCode = registry.execute("java", "agent.jar", new String[]{"start"}, 600, 0, nullLogger);
+
+        //Assert
+        Assert.assertEquals(0, exitCode);
+        Assert.assertTrue("The crashed daemon should be stopped", crashing.isDestroyed());
+        Assert.assertEquals(Arrays.asList(crashing, replacement), registry.startedProcesses);
+        registry.stopAll();
+    }
+
+    private static class FakeDaemonsRegistry extends AgentDaemonRegistry {
+
+        private final Deque<FakeDaemonProcess> processesToStart;
+        private final List<FakeDaemonProcess> startedProcesses = new ArrayList<>();
+
+        FakeDaemonsRegistry(FakeDaemonProcess... processes) {
+            this.processesToStart = new ArrayDeque<>(Arrays.asList(processes));
+        }
+
+        @Override
+        AgentDaemon startDaemon(String javaPath, File agentJar) throws IOException {
+            FakeDaemonProcess process = processesToStart.pollFirst();
+            startedProcesses.add(process);
+            return AgentDaemon.connect(process);
+        }
+    }
+}
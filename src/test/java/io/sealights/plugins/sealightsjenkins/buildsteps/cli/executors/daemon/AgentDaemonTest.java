@@ -0,0 +1,94 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon;
+
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+public class AgentDaemonTest {
+
+    @Test
+    public void frames_writtenThenRead_shouldKeepTypeRequestAndPayload() throws IOException {
+        //Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        //Act
+        AgentDaemonMain.writeFrame(out, AgentDaemonMain.FRAME_STDERR, 12, "oops".getBytes("UTF-8"));
+        AgentDaemonMain.writeFrame(out, AgentDaemonMain.FRAME_EXIT, 12, AgentDaemonMain.intToBytes(-3));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        AgentDaemonMain.Frame errorFrame = AgentDaemonMain.readFrame(in);
+        AgentDaemonMain.Frame exitFrame = AgentDaemonMain.readFrame(in);
+
+        //Assert
+        Assert.assertEquals(AgentDaemonMain.FRAME_STDERR, errorFrame.type);
+        Assert.assertEquals(12, errorFrame.requestId);
+        Assert.assertEquals("oops", new String(errorFrame.payload, "UTF-8"));
+        Assert.assertEquals(AgentDaemonMain.FRAME_EXIT, exitFrame.type);
+        Assert.assertEquals(-3, new DataInputStream(new ByteArrayInputStream(exitFrame.payload)).readInt());
+    }
+
+    @Test
+    public void execute_outputOfPreviousRequestArrives_shouldDropIt() throws Exception {
+        //Arrange
+        FakeDaemonProcess process = new FakeDaemonProcess().ready()
+                .stdout(1, "first command\n").exit(1, 0)
+                .stdout(1, "left behind by the first command\n")
+                .stdout(2, "second command\n").exit(2, 4);
+        AgentDaemon daemon = AgentDaemon.connect(process);
+        ByteArrayOutputStream firstLog = new ByteArrayOutputStream();
+        ByteArrayOutputStream secondLog = new ByteArrayOutputStream();
+
+        //Act
+        int firstExitCode = daemon.execute(new String[]{"start"}, 0, new Logger(new PrintStream(firstLog, true)));
+        int secondExitCode = daemon.execute(new String[]{"end"}, 0, new Logger(new PrintStream(secondLog, true)));
+
+        //Assert
+        Assert.assertEquals(0, firstExitCode);
+        Assert.assertEquals(4, secondExitCode);
+        Assert.assertTrue("The first command output should be logged", firstLog.toString().contains("first command"));
+        Assert.assertTrue("The second command output should be logged", secondLog.toString().contains("second command"));
+        Assert.assertFalse("Output of the first command should not reach the second one's log",
+                secondLog.toString().contains("left behind"));
+    }
+
+    @Test
+    public void execute_sendsRequestIdWithTheArguments() throws Exception {
+        //Arrange
+        FakeDaemonProcess process = new FakeDaemonProcess().ready().exit(1, 0);
+        AgentDaemon daemon = AgentDaemon.connect(process);
+
+        //Act
+        daemon.execute(new String[]{"start", "-token", "t"}, 0, new Logger(new PrintStream(new ByteArrayOutputStream())));
+
+        //Assert
+        DataInputStream request = new DataInputStream(
+                new ByteArrayInputStream(((ByteArrayOutputStream) process.getOutputStream()).toByteArray()));
+        Assert.assertEquals(1, request.readInt());
+        Assert.assertEquals(3, request.readInt());
+        Assert.assertEquals("start", request.readUTF());
+        Assert.assertEquals("-token", request.readUTF());
+        Assert.assertEquals("t", request.readUTF());
+    }
+
+    @Test(expected = IOException.class)
+    public void execute_daemonDiesDuringCommand_shouldThrowAndNotBeAlive() throws Exception {
+        //Arrange
+        FakeDaemonProcess process = new FakeDaemonProcess().ready().stdout(1, "partial");
+        AgentDaemon daemon = AgentDaemon.connect(process);
+
+        //Act
+        try {
+            daemon.execute(new String[]{"start"}, 0, new Logger(new PrintStream(new ByteArrayOutputStream())));
+        } finally {
+            //Assert
+            Assert.assertFalse("A daemon whose stream broke should not be reused", daemon.isAlive());
+        }
+    }
+}
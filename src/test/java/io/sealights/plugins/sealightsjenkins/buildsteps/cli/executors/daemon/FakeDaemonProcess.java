@@ -0,0 +1,78 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.daemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A daemon process that replies with frames prepared in advance (see {@link AgentDaemonMain} for the protocol).
+ * Replies end with the end of the stream, as if the daemon crashed once they were all sent.
+ */
+class FakeDaemonProcess extends Process {
+
+    private final ByteArrayOutputStream replies = new ByteArrayOutputStream();
+    private final DataOutputStream repliesWriter = new DataOutputStream(replies);
+    private final ByteArrayOutputStream requests = new ByteArrayOutputStream();
+    private InputStream repliesStream;
+    private volatile boolean destroyed;
+
+    FakeDaemonProcess ready() throws IOException {
+        return frame(AgentDaemonMain.FRAME_READY, AgentDaemonMain.NO_REQUEST, new byte[0]);
+    }
+
+    FakeDaemonProcess stdout(int requestId, String text) throws IOException {
+        return frame(AgentDaemonMain.FRAME_STDOUT, requestId, text.getBytes("UTF-8"));
+    }
+
+    FakeDaemonProcess exit(int requestId, int exitCode) throws IOException {
+        return frame(AgentDaemonMain.FRAME_EXIT, requestId, AgentDaemonMain.intToBytes(exitCode));
+    }
+
+    FakeDaemonProcess frame(byte type, int requestId, byte[] payload) throws IOException {
+        AgentDaemonMain.writeFrame(repliesWriter, type, requestId, payload);
+        return this;
+    }
+
+    boolean isDestroyed() {
+        return destroyed;
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return requests;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() {
+        if (repliesStream == null) {
+            repliesStream = new ByteArrayInputStream(replies.toByteArray());
+        }
+        return repliesStream;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return new ByteArrayInputStream(new byte[0]);
+    }
+
+    @Override
+    public int waitFor() {
+        return 0;
+    }
+
+    @Override
+    public int exitValue() {
+        if (!destroyed) {
+            throw new IllegalThreadStateException("The process is still running");
+        }
+        return 0;
+    }
+
+    @Override
+    public void destroy() {
+        destroyed = true;
+    }
+}
@@ -0,0 +1,180 @@
+package io.sealights.plugins.sealightsjenkins.buildsteps.cli.executors.node;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.AgentCacheEvictor;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.BuildScannerUpgradeManager;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.UpgradeProxy;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.AgentInfo;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeResponse;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ResolveAgentOnNodeCallableTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void resolveAndLease_otherBuildResolvesNewerVersionOnTheNode_shouldNotEvictTheLeasedAgent() throws Exception {
+        //Arrange
+        UpgradeConfiguration configuration = new UpgradeConfiguration("token", "customer", "bsid", "app", "env", "branch",
+                "https://customer.sealights.co/api", null, tempFolder.getRoot().getAbsolutePath());
+        UpgradeProxy upgradeProxy = createUpgradeProxy("1.2.3", "1.2.4");
+        AgentCacheEvictor evictor = AgentCacheEvictor.getInstance();
+        int maxVersions = evictor.getMaxVersions();
+        long maxBytes = evictor.getMaxBytes();
+        evictor.configure(1, 0);
+        try {
+            String leasedAgent = new ResolveAgentOnNodeCallable(configuration, true, null, "", "build_1")
+                    .resolveAndLease(new BuildScannerUpgradeManager(upgradeProxy, configuration, new NullLogger()));
+
+            //Act
+            String newerAgent = new ResolveAgentOnNodeCallable(configuration, true, null, "", "build_2")
+                    .resolveAndLease(new BuildScannerUpgradeManager(upgradeProxy, configuration, new NullLogger()));
+
+            //Assert
+            Assert.assertTrue(newerAgent.endsWith("sl-build-scanner-1.2.4.jar"));
+            Assert.assertTrue("The agent that the first build runs should be kept", new File(leasedAgent).isFile());
+            Assert.assertTrue("The first build should hold a lease",
+                    new File(leasedAgent + ".build_1.lease").isFile());
+        } finally {
+            evictor.configure(maxVersions, maxBytes);
+        }
+    }
+
+    @Test
+    public void withNodeProxy_proxySetForTheStep_shouldKeepIt() {
+        //Arrange
+        UpgradeConfiguration configuration = createConfiguration("https://customer.sealights.co/api", "http://step-proxy:8080");
+        Map<String, String> env = new HashMap<>();
+        env.put("https_proxy", "http://node-proxy:3128");
+
+        //Act
+        UpgradeConfiguration nodeConfiguration = ResolveAgentOnNodeCallable.withNodeProxy(configuration, env);
+
+        //Assert
+        Assert.assertEquals("http://step-proxy:8080", nodeConfiguration.getProxy());
+    }
+
+    @Test
+    public void withNodeProxy_nodeHasProxy_shouldUseItAndKeepTheRestOfTheConfiguration() {
+        //Arrange
+        UpgradeConfiguration configuration = createConfiguration("https://customer.sealights.co/api", null);
+        configuration.setAgentsMirror("/mnt/agents");
+        configuration.setHttpTimeoutSecs(30);
+        Map<String, String> env = new HashMap<>();
+        env.put("HTTPS_PROXY", "http://node-proxy:3128");
+
+        //Act
+        UpgradeConfiguration nodeConfiguration = ResolveAgentOnNodeCallable.withNodeProxy(configuration, env);
+
+        //Assert
+        Assert.assertEquals("http://node-proxy:3128", nodeConfiguration.getProxy());
+        Assert.assertEquals("https://customer.sealights.co/api", nodeConfiguration.getServer());
+        Assert.assertEquals("/mnt/agents", nodeConfiguration.getAgentsMirror());
+        Assert.assertEquals(30, nodeConfiguration.getHttpTimeoutSecs());
+    }
+
+    @Test
+    public void withNodeProxy_nodeHasNoProxy_shouldKeepTheConfiguration() {
+        //Arrange
+        UpgradeConfiguration configuration = createConfiguration("https://customer.sealights.co/api", null);
+
+        //Act
+        UpgradeConfiguration nodeConfiguration = ResolveAgentOnNodeCallable.withNodeProxy(configuration, new HashMap<String, String>());
+
+        //Assert
+        Assert.assertSame(configuration, nodeConfiguration);
+    }
+
+    @Test
+    public void withNodeProxy_serverIsInNoProxy_shouldNotUseTheNodeProxy() {
+        //Arrange
+        UpgradeConfiguration configuration = createConfiguration("https://customer.sealights.co/api", null);
+        Map<String, String> env = new HashMap<>();
+        env.put("https_proxy", "http://node-proxy:3128");
+        env.put("no_proxy", "localhost, .sealights.co");
+
+        //Act
+        UpgradeConfiguration nodeConfiguration = ResolveAgentOnNodeCallable.withNodeProxy(configuration, env);
+
+        //Assert
+        Assert.assertNull("A server excluded by 'no_proxy' should be reached directly", nodeConfiguration.getProxy());
+    }
+
+    @Test
+    public void withNodeProxy_serverIsNotInNoProxy_shouldUseTheNodeProxy() {
+        //Arrange
+        UpgradeConfiguration configuration = createConfiguration("https://customer.sealights.co/api", null);
+        Map<String, String> env = new HashMap<>();
+        env.put("https_proxy", "http://node-proxy:3128");
+        env.put("NO_PROXY", "localhost,internal.corp,lights.co");
+
+        //Act
+        UpgradeConfiguration nodeConfiguration = ResolveAgentOnNodeCallable.withNodeProxy(configuration, env);
+
+        //Assert
+        Assert.assertEquals("http://node-proxy:3128", nodeConfiguration.getProxy());
+    }
+
+    @Test
+    public void isExcludedFromProxy_wildcardOrHostWithPort_shouldMatch() {
+        //Act & Assert
+        Assert.assertTrue(ResolveAgentOnNodeCallable.isExcludedFromProxy("https://customer.sealights.co/api", "*"));
+        Assert.assertTrue(ResolveAgentOnNodeCallable.isExcludedFromProxy("https://customer.sealights.co:443/api", "customer.sealights.co:443"));
+        Assert.assertFalse(ResolveAgentOnNodeCallable.isExcludedFromProxy("https://customer.sealights.co/api", ""));
+    }
+
+    private UpgradeProxy createUpgradeProxy(String... versions) throws Exception {
+        UpgradeProxy upgradeProxy = mock(UpgradeProxy.class);
+        UpgradeResponse[] upgradeResponses = new UpgradeResponse[versions.length];
+        for (int i = 0; i < versions.length; i++) {
+            upgradeResponses[i] = createUpgradeResponse(versions[i]);
+        }
+        when(upgradeProxy.getRecommendedVersion(anyString())).thenReturn(upgradeResponses[0],
+                Arrays.copyOfRange(upgradeResponses, 1, upgradeResponses.length));
+        when(upgradeProxy.downloadAndExtractEntries(anyString(), anyString(), anyMap(), any(File.class))).thenAnswer(new Answer<Set<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Set<String> answer(InvocationOnMock invocation) throws Throwable {
+                Map<String, File> destFiles = (Map<String, File>) invocation.getArguments()[2];
+                for (Map.Entry<String, File> destFile : destFiles.entrySet())
+                    Files.write(destFile.getValue().toPath(), destFile.getKey().getBytes());
+                return destFiles.keySet();
+            }
+        });
+        return upgradeProxy;
+    }
+
+    private UpgradeResponse createUpgradeResponse(String version) {
+        AgentInfo agentInfo = new AgentInfo();
+        agentInfo.setName("sealights-java");
+        agentInfo.setVersion(version);
+        agentInfo.setUrl("http://agents/" + version + ".zip");
+        agentInfo.setSha256("abc");
+        UpgradeResponse upgradeResponse = new UpgradeResponse();
+        upgradeResponse.setAgent(agentInfo);
+        return upgradeResponse;
+    }
+
+    private UpgradeConfiguration createConfiguration(String server, String proxy) {
+        return new UpgradeConfiguration("token", "customer", "bsid", "app", "env", "branch", server, proxy, "/node/files");
+    }
+}
@@ -0,0 +1,116 @@
+package io.sealights.plugins.sealightsjenkins.integration;
+
+import io.sealights.agents.infra.pomIntegration.enums.ExecutionType;
+import io.sealights.plugins.sealightsjenkins.utils.Logger;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class IntegratePomsOnNodeCallableTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void call_nestedModules_shouldIntegrateEveryPomOfTheTree() throws IOException {
+        //Arrange
+        File parentPom = createPom(tempFolder.getRoot(), "parent", "module-a");
+        File moduleA = new File(tempFolder.getRoot(), "module-a");
+        File moduleAPom = createPom(moduleA, "module-a", "module-b");
+        File moduleBPom = createPom(new File(moduleA, "module-b"), "module-b", null);
+        String originalModuleBPom = read(moduleBPom);
+
+        //Act
+        NodePomIntegrationResult result = createCallable(parentPom).call();
+
+        //Assert
+        Assert.assertNull("The integration should succeed. Error: " + result.getError(), result.getError());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(parentPom.getAbsolutePath(), moduleAPom.getAbsolutePath(),
+                moduleBPom.getAbsolutePath())), new HashSet<>(result.getPomFiles()));
+        Assert.assertNotEquals("The pom of the nested module should be integrated", originalModuleBPom, read(moduleBPom));
+    }
+
+    @Test
+    public void call_sentToTheNode_shouldIntegrateWithTheSerializedPluginInfo() throws Exception {
+        //Arrange
+        File parentPom = createPom(tempFolder.getRoot(), "parent", null);
+        String originalPom = read(parentPom);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(createCallable(parentPom));
+        }
+
+        //Act
+        IntegratePomsOnNodeCallable callableOnNode;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            callableOnNode = (IntegratePomsOnNodeCallable) in.readObject();
+        }
+        NodePomIntegrationResult result = callableOnNode.call();
+
+        //Assert
+        Assert.assertNull("The integration should succeed. Error: " + result.getError(), result.getError());
+        Assert.assertNotEquals("The pom should be integrated", originalPom, read(parentPom));
+    }
+
+    @Test
+    public void call_loggerWasSetBefore_shouldRestoreIt() throws IOException {
+        //Arrange
+        File parentPom = createPom(tempFolder.getRoot(), "parent", null);
+        Logger previousLogger = new NullLogger();
+
+        //Act
+        try (PomIntegrationLoggerScope loggerScope = PomIntegrationLoggerScope.enter(previousLogger)) {
+            createCallable(parentPom).call();
+
+            //Assert
+            Assert.assertSame("The logger of the build that integrated before should be restored",
+                    previousLogger, PomIntegrationLoggerScope.getCurrentLogger());
+        }
+        Assert.assertNull(PomIntegrationLoggerScope.getCurrentLogger());
+    }
+
+    private IntegratePomsOnNodeCallable createCallable(File parentPom) {
+        JenkinsSeaLightsPluginInfo slInfo = new JenkinsSeaLightsPluginInfo();
+        slInfo.setEnabled(true);
+        slInfo.setToken("fake-token");
+        slInfo.setBuildSessionId("fake-build-session");
+        slInfo.setAppName("demoApp");
+        slInfo.setBranchName("branchy");
+        slInfo.setBuildName("1");
+        slInfo.setWorkspacepath(tempFolder.getRoot().getAbsolutePath());
+        slInfo.setExecutionType(ExecutionType.FULL);
+        slInfo.setBuildFilesFolders(tempFolder.getRoot().getAbsolutePath());
+        slInfo.setBuildFilesPatterns("pom.xml");
+        return new IntegratePomsOnNodeCallable(Collections.singletonList(tempFolder.getRoot().getAbsolutePath()),
+                "pom.xml", parentPom.getAbsolutePath(), slInfo, "1.0.0", "SeaLights");
+    }
+
+    private File createPom(File folder, String artifactId, String module) throws IOException {
+        folder.mkdirs();
+        String modules = (module == null) ? "" : "<packaging>pom</packaging><modules><module>" + module + "</module></modules>";
+        File pom = new File(folder, "pom.xml");
+        Files.write(pom.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\"><modelVersion>4.0.0</modelVersion>"
+                + "<groupId>io.demo</groupId><artifactId>" + artifactId + "</artifactId><version>1.0</version>"
+                + modules + "</project>").getBytes(StandardCharsets.UTF_8));
+        return pom;
+    }
+
+    private String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.Version;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public class AgentCacheEvictorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void evict_tooManyVersions_shouldEvictLeastRecentlyUsed() throws IOException {
+        //Arrange
+        AgentCacheEvictor evictor = new AgentCacheEvictor();
+        evictor.configure(2, 0);
+        addAgent("1.0.3", 3000);
+        addAgent("1.0.1", 2000);
+        File leastRecentlyUsed = addAgent("1.0.2", 1000);
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+
+        //Act
+        List<File> evictedAgents = evictor.evict(manifest, new Version("1.0.3"), new NullLogger());
+
+        //Assert
+        Assert.assertEquals(Collections.singletonList(leastRecentlyUsed), evictedAgents);
+        Assert.assertFalse("The evicted agent should be deleted", leastRecentlyUsed.exists());
+    }
+
+    @Test
+    public void evict_agentWasFoundInManifest_shouldKeepItAsRecentlyUsed() throws IOException {
+        //Arrange
+        AgentCacheEvictor evictor = new AgentCacheEvictor();
+        evictor.configure(2, 0);
+        addAgent("1.0.3", 3000);
+        File olderButUsedAgent = addAgent("1.0.1", 1000);
+        File notUsedAgent = addAgent("1.0.2", 2000);
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+        manifest.find(olderButUsedAgent.getName(), new NullLogger());
+
+        //Act
+        List<File> evictedAgents = evictor.evict(manifest, new Version("1.0.3"), new NullLogger());
+
+        //Assert
+        Assert.assertEquals("The last use recorded by the manifest should decide the evicted agent",
+                Collections.singletonList(notUsedAgent), evictedAgents);
+    }
+
+    @Test
+    public void evict_agentWasPrefetched_shouldEvictItBeforeAgentsThatWereUsed() throws IOException {
+        //Arrange
+        AgentCacheEvictor evictor = new AgentCacheEvictor();
+        evictor.configure(2, 0);
+        addAgent("1.0.3", 3000);
+        File usedAgent = addAgent("1.0.1", 1000);
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+        manifest.getEntries(new NullLogger());
+        File prefetchedAgent = tempFolder.newFile("sl-build-scanner-1.0.4.jar");
+        manifest.addPrefetched(prefetchedAgent, "abc", new NullLogger());
+
+        //Act
+        List<File> evictedAgents = evictor.evict(manifest, new Version("1.0.3"), new NullLogger());
+
+        //Assert
+        Assert.assertEquals("A prefetched agent that no build used yet should be the first to be evicted",
+                Collections.singletonList(prefetchedAgent), evictedAgents);
+        Assert.assertTrue(usedAgent.exists());
+    }
+
+    @Test
+    public void evict_agentIsLeased_shouldNotEvictIt() throws IOException {
+        //Arrange
+        AgentCacheEvictor evictor = new AgentCacheEvictor();
+        evictor.configure(1, 0);
+        addAgent("1.0.2", 2000);
+        File leasedAgent = addAgent("1.0.1", 1000);
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+
+        //Act
+        List<File> evictedAgents;
+        try (AgentLease lease = AgentLease.acquire(leasedAgent.getAbsolutePath())) {
+            evictedAgents = evictor.evict(manifest, new Version("1.0.2"), new NullLogger());
+        }
+
+        //Assert
+        Assert.assertTrue("A leased agent should not be evicted", evictedAgents.isEmpty());
+        Assert.assertTrue(leasedAgent.exists());
+    }
+
+    @Test
+    public void evict_agentHasFilesBesideIt_shouldDeleteThemWithIt() throws IOException {
+        //Arrange
+        AgentCacheEvictor evictor = new AgentCacheEvictor();
+        evictor.configure(1, 0);
+        addAgent("1.0.2", 2000);
+        File evictedAgent = addAgent("1.0.1", 1000);
+        File archive = tempFolder.newFile(evictedAgent.getName() + ".1a2b.jsa");
+        File verifiedFile = AgentIntegrity.getVerifiedFile(evictedAgent);
+        verifiedFile.createNewFile();
+        File keptArchive = tempFolder.newFile("sl-build-scanner-1.0.2.jar.1a2b.jsa");
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+
+        //Act
+        evictor.evict(manifest, new Version("1.0.2"), new NullLogger());
+
+        //Assert
+        Assert.assertFalse("The archive of the evicted agent should be deleted", archive.exists());
+        Assert.assertFalse("The verification file of the evicted agent should be deleted", verifiedFile.exists());
+        Assert.assertTrue("The files of the kept agent should stay", keptArchive.exists());
+    }
+
+    private File addAgent(String version, long lastUse) throws IOException {
+        File agent = tempFolder.newFile("sl-build-scanner-" + version + ".jar");
+        agent.setLastModified(lastUse);
+        return agent;
+    }
+}
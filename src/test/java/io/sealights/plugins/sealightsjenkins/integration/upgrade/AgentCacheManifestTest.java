@@ -0,0 +1,51 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class AgentCacheManifestTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void find_agentWasAdded_shouldFindItAndIgnoreOtherFiles() throws IOException {
+        //Arrange
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+        File agent = tempFolder.newFile("sl-build-scanner-1.0.1.jar");
+        tempFolder.newFile("sl-build-scanner-1.0.1.jar.verified");
+        manifest.add(agent, "abc", new NullLogger());
+
+        //Act
+        File foundAgent = manifest.find("sl-build-scanner-1.0.1.jar", new NullLogger());
+
+        //Assert
+        Assert.assertEquals(agent, foundAgent);
+        Assert.assertEquals(1, manifest.getEntries(new NullLogger()).size());
+        Assert.assertEquals("1.0.1", manifest.getEntries(new NullLogger()).get(0).getVersion());
+    }
+
+    @Test
+    public void find_manifestIsCorrupted_shouldRebuildItFromFolder() throws IOException {
+        //Arrange
+        File agent = tempFolder.newFile("sl-test-listener-2.0.0.jar");
+        File manifestFile = tempFolder.newFile(AgentCacheManifest.MANIFEST_FILE_NAME);
+        Files.write(manifestFile.toPath(), "{\"agents\":{\"sl-test".getBytes());
+        AgentCacheManifest manifest = new AgentCacheManifest(tempFolder.getRoot());
+
+        //Act
+        File foundAgent = manifest.find("sl-test-listener-2.0.0.jar", new NullLogger());
+
+        //Assert
+        Assert.assertEquals(agent, foundAgent);
+        Assert.assertTrue("The rebuilt manifest should be saved",
+                new String(Files.readAllBytes(manifestFile.toPath())).contains("sl-test-listener-2.0.0.jar"));
+    }
+}
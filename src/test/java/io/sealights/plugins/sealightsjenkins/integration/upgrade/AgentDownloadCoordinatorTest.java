@@ -0,0 +1,57 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AgentDownloadCoordinatorTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void download_concurrentBuildsNeedSameVersion_shouldDownloadOnce() throws Exception {
+        //Arrange
+        final AgentDownloadCoordinator coordinator = new AgentDownloadCoordinator();
+        final File lockFile = new File(tempFolder.getRoot(), "sl-build-scanner-1.2.3.lock");
+        final AtomicInteger downloadsCount = new AtomicInteger();
+        final Callable<String> download = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                downloadsCount.incrementAndGet();
+                Thread.sleep(500);
+                return "sl-build-scanner-1.2.3.jar";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        //Act
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return coordinator.download(lockFile, download, new NullLogger());
+                }
+            }));
+        }
+
+        //Assert
+        for (Future<String> result : results) {
+            Assert.assertEquals("sl-build-scanner-1.2.3.jar", result.get());
+        }
+        Assert.assertEquals("The agent should be downloaded once", 1, downloadsCount.get());
+        executor.shutdownNow();
+    }
+}
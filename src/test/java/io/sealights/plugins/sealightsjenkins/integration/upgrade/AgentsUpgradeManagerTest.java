@@ -0,0 +1,121 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.AgentInfo;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeResponse;
+import io.sealights.plugins.sealightsjenkins.services.HttpStatusException;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class AgentsUpgradeManagerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private UpgradeConfiguration upgradeConfiguration = new UpgradeConfiguration(
+            "token", "customer", "bsid", "app", "env", "branch", "https://server/api", null, null);
+
+    @Test
+    public void tryGetRecommendedAgentFromServer_bothComponents_shouldExtractBothJarsFromOneDownload() throws IOException {
+        //Arrange
+        UpgradeProxy upgradeProxy = mock(UpgradeProxy.class);
+        when(upgradeProxy.downloadAndExtractEntries(anyString(), anyString(), anyMap(), any(File.class))).thenAnswer(new Answer<Set<String>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Set<String> answer(InvocationOnMock invocation) throws Throwable {
+                Map<String, File> destFiles = (Map<String, File>) invocation.getArguments()[2];
+                for (Map.Entry<String, File> destFile : destFiles.entrySet())
+                    Files.write(destFile.getValue().toPath(), destFile.getKey().getBytes());
+                return destFiles.keySet();
+            }
+        });
+        String jarsFolder = tempFolder.getRoot().getAbsolutePath();
+        UpgradeResponse upgradeResponse = createUpgradeResponse("1.2.3");
+        BuildScannerUpgradeManager buildScannerUpgradeManager =
+                new BuildScannerUpgradeManager(upgradeProxy, upgradeConfiguration, new NullLogger());
+        TestListenerUpgradeManager testListenerUpgradeManager =
+                new TestListenerUpgradeManager(upgradeProxy, upgradeConfiguration, new NullLogger());
+
+        //Act
+        String buildScanner = buildScannerUpgradeManager.tryGetRecommendedAgentFromServer(jarsFolder, upgradeResponse);
+        String testListener = testListenerUpgradeManager.tryGetRecommendedAgentFromServer(jarsFolder, upgradeResponse);
+
+        //Assert
+        verify(upgradeProxy, times(1)).downloadAndExtractEntries(anyString(), anyString(), anyMap(), any(File.class));
+        Assert.assertEquals(new File(jarsFolder, "sl-build-scanner-1.2.3.jar").getAbsolutePath(), buildScanner);
+        Assert.assertEquals(new File(jarsFolder, "sl-test-listener-1.2.3.jar").getAbsolutePath(), testListener);
+        Assert.assertEquals("sl-test-listener-1.2.3.jar", new String(Files.readAllBytes(new File(testListener).toPath())));
+        Assert.assertEquals("Both jars should be in the manifest", 2,
+                AgentCacheManifest.forFolder(jarsFolder).getEntries(new NullLogger()).size());
+    }
+
+    @Test
+    public void tryGetRecommendedAgentFromServer_serverRefusesDownload_shouldNotDownloadTheWholeZip() throws IOException {
+        //Arrange
+        UpgradeProxy upgradeProxy = mock(UpgradeProxy.class);
+        when(upgradeProxy.downloadAndExtractEntries(anyString(), anyString(), anyMap(), any(File.class)))
+                .thenThrow(new HttpStatusException(404, "Not found"));
+        String jarsFolder = tempFolder.getRoot().getAbsolutePath();
+        BuildScannerUpgradeManager buildScannerUpgradeManager =
+                new BuildScannerUpgradeManager(upgradeProxy, upgradeConfiguration, new NullLogger());
+
+        //Act
+        try {
+            buildScannerUpgradeManager.tryGetRecommendedAgentFromServer(jarsFolder, createUpgradeResponse("1.2.3"));
+            Assert.fail("The error of the server should be thrown");
+        } catch (HttpStatusException e) {
+            // expected
+        }
+
+        //Assert
+        verify(upgradeProxy, never()).downloadAgent(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void tryGetRecommendedAgentFromServer_transferFails_shouldResumeTheWholeZipFromThePartialFile() throws IOException {
+        //Arrange
+        UpgradeProxy upgradeProxy = mock(UpgradeProxy.class);
+        when(upgradeProxy.downloadAndExtractEntries(anyString(), anyString(), anyMap(), any(File.class)))
+                .thenReturn(Collections.<String>emptySet());
+        String jarsFolder = tempFolder.getRoot().getAbsolutePath();
+        BuildScannerUpgradeManager buildScannerUpgradeManager =
+                new BuildScannerUpgradeManager(upgradeProxy, upgradeConfiguration, new NullLogger());
+
+        //Act
+        buildScannerUpgradeManager.tryGetRecommendedAgentFromServer(jarsFolder, createUpgradeResponse("1.2.3"));
+
+        //Assert
+        ArgumentCaptor<File> partialZip = ArgumentCaptor.forClass(File.class);
+        verify(upgradeProxy).downloadAndExtractEntries(anyString(), anyString(), anyMap(), partialZip.capture());
+        verify(upgradeProxy).downloadAgent(anyString(), anyString(), eq(partialZip.getValue().getPath()));
+    }
+
+    private UpgradeResponse createUpgradeResponse(String version) {
+        AgentInfo agentInfo = new AgentInfo();
+        agentInfo.setName("sealights-java");
+        agentInfo.setVersion(version);
+        agentInfo.setUrl("http://agents/" + version + ".zip");
+        agentInfo.setSha256("abc");
+        UpgradeResponse upgradeResponse = new UpgradeResponse();
+        upgradeResponse.setAgent(agentInfo);
+        return upgradeResponse;
+    }
+}
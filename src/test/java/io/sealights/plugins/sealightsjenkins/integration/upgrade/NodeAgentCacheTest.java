@@ -0,0 +1,35 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class NodeAgentCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void getSha256_agentReplacedInPlace_shouldRehashItAndKeepOneEntryForThePath() throws IOException {
+        //Arrange
+        NodeAgentCache nodeAgentCache = new NodeAgentCache();
+        File agent = tempFolder.newFile("sl-build-scanner.jar");
+        Files.write(agent.toPath(), "old agent".getBytes());
+        String oldSha256 = nodeAgentCache.getSha256(agent);
+        Files.write(agent.toPath(), "new agent!".getBytes());
+        agent.setLastModified(agent.lastModified() + 2000);
+
+        //Act
+        String newSha256 = nodeAgentCache.getSha256(agent);
+
+        //Assert
+        Assert.assertNotEquals(oldSha256, newSha256);
+        Assert.assertEquals(AgentIntegrity.sha256(agent), newSha256);
+        Assert.assertEquals(1, nodeAgentCache.getHashedFilesCount());
+    }
+}
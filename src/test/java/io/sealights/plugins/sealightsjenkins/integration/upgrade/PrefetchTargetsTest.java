@@ -0,0 +1,54 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.PrefetchTargets.PrefetchTarget;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class PrefetchTargetsTest {
+
+    @Test
+    public void record_sameAppTwice_shouldKeepOneTargetWithBothComponents() {
+        //Arrange
+        PrefetchTargets prefetchTargets = new PrefetchTargets();
+
+        //Act
+        prefetchTargets.record("sealights-java", createUpgradeConfiguration("app", "bsid1"));
+        prefetchTargets.record("sl-maven-plugin", createUpgradeConfiguration("app", "bsid2"));
+
+        //Assert
+        List<PrefetchTarget> targets = prefetchTargets.getTargets();
+        Assert.assertEquals(1, targets.size());
+        Assert.assertEquals(Arrays.asList("sealights-java", "sl-maven-plugin"),
+                Arrays.asList(targets.get(0).getComponentNames().toArray()));
+    }
+
+    @Test
+    public void record_moreThanMaxTargets_shouldDropLeastRecentlyUsed() {
+        //Arrange
+        PrefetchTargets prefetchTargets = new PrefetchTargets();
+        for (int i = 0; i < PrefetchTargets.MAX_TARGETS; i++) {
+            prefetchTargets.record("sealights-java", createUpgradeConfiguration("app" + i, "bsid"));
+        }
+        // Using the first app again makes the second one the least recently used
+        prefetchTargets.record("sealights-java", createUpgradeConfiguration("app0", "bsid"));
+
+        //Act
+        prefetchTargets.record("sealights-java", createUpgradeConfiguration("newApp", "bsid"));
+
+        //Assert
+        List<PrefetchTarget> targets = prefetchTargets.getTargets();
+        Assert.assertEquals(PrefetchTargets.MAX_TARGETS, targets.size());
+        for (PrefetchTarget target : targets) {
+            Assert.assertNotEquals("app1", target.getUpgradeConfiguration().getAppName());
+        }
+    }
+
+    private UpgradeConfiguration createUpgradeConfiguration(String appName, String buildSessionId) {
+        return new UpgradeConfiguration("token", "customer", buildSessionId, appName, null, "master",
+                "https://server", null, "/storage");
+    }
+}
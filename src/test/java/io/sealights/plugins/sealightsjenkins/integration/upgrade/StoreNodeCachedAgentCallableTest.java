@@ -0,0 +1,109 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+public class StoreNodeCachedAgentCallableTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void invoke_tooManyEntries_shouldEvictLeastRecentlyUsed() throws Exception {
+        //Arrange
+        long now = System.currentTimeMillis();
+        File recentlyUsed = createEntry("aaa", now - 1000);
+        File leastRecentlyUsed = createEntry("bbb", now - 2000);
+        File tempAgent = createTempAgent("ccc", "agent");
+
+        //Act
+        new StoreNodeCachedAgentCallable("sl-build-scanner.jar", AgentIntegrity.sha256(tempAgent), 2, "job_1")
+                .invoke(tempAgent, null);
+
+        //Assert
+        Assert.assertTrue("The new agent should be stored", new File(tempAgent.getParentFile(), "sl-build-scanner.jar").isFile());
+        Assert.assertTrue("The recently used entry should be kept", recentlyUsed.isDirectory());
+        Assert.assertFalse("The least recently used entry should be evicted", leastRecentlyUsed.exists());
+    }
+
+    @Test
+    public void invoke_agentIsStored_shouldLeaseItForTheBuild() throws Exception {
+        //Arrange
+        File tempAgent = createTempAgent("ccc", "agent");
+
+        //Act
+        new StoreNodeCachedAgentCallable("sl-build-scanner.jar", AgentIntegrity.sha256(tempAgent), 2, "job_1")
+                .invoke(tempAgent, null);
+
+        //Assert
+        Assert.assertTrue(new File(tempAgent.getParentFile(), "sl-build-scanner.jar.job_1.lease").isFile());
+    }
+
+    @Test
+    public void invoke_leastRecentlyUsedEntryIsLeased_shouldNotEvictIt() throws Exception {
+        //Arrange
+        long now = System.currentTimeMillis();
+        createEntry("aaa", now - 1000);
+        File leasedEntry = createEntry("bbb", now - TimeUnit.HOURS.toMillis(5));
+        new File(leasedEntry, "sl-build-scanner.jar.job_2.lease").createNewFile();
+        leasedEntry.setLastModified(now - TimeUnit.HOURS.toMillis(5));
+        File tempAgent = createTempAgent("ccc", "agent");
+
+        //Act
+        new StoreNodeCachedAgentCallable("sl-build-scanner.jar", AgentIntegrity.sha256(tempAgent), 2, "job_1")
+                .invoke(tempAgent, null);
+
+        //Assert
+        Assert.assertTrue("An entry leased by a running build should be kept", leasedEntry.isDirectory());
+    }
+
+    @Test
+    public void invoke_leastRecentlyUsedEntryHasStaleLease_shouldEvictIt() throws Exception {
+        //Arrange
+        long now = System.currentTimeMillis();
+        createEntry("aaa", now - 1000);
+        File entryWithStaleLease = createEntry("bbb", now - 2000);
+        File staleLease = new File(entryWithStaleLease, "sl-build-scanner.jar.job_2.lease");
+        staleLease.createNewFile();
+        staleLease.setLastModified(now - TimeUnit.HOURS.toMillis(25));
+        entryWithStaleLease.setLastModified(now - 2000);
+        File tempAgent = createTempAgent("ccc", "agent");
+
+        //Act
+        new StoreNodeCachedAgentCallable("sl-build-scanner.jar", AgentIntegrity.sha256(tempAgent), 2, "job_1")
+                .invoke(tempAgent, null);
+
+        //Assert
+        Assert.assertFalse("A lease left by a crashed build should not keep the entry", entryWithStaleLease.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void invoke_agentIsCorrupted_shouldThrow() throws Exception {
+        //Arrange
+        File tempAgent = createTempAgent("ccc", "truncated");
+
+        //Act
+        new StoreNodeCachedAgentCallable("sl-build-scanner.jar", "0000", 2, "job_1").invoke(tempAgent, null);
+    }
+
+    private File createEntry(String sha256, long lastUse) throws IOException {
+        File entry = tempFolder.newFolder(sha256);
+        Files.write(new File(entry, "sl-build-scanner.jar").toPath(), sha256.getBytes());
+        entry.setLastModified(lastUse);
+        return entry;
+    }
+
+    private File createTempAgent(String sha256, String content) throws IOException {
+        File entry = tempFolder.newFolder(sha256);
+        File tempAgent = new File(entry, "sl-build-scanner.jar.tmp");
+        Files.write(tempAgent.toPath(), content.getBytes());
+        return tempAgent;
+    }
+}
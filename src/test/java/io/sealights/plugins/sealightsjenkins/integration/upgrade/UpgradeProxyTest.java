@@ -0,0 +1,445 @@
+package io.sealights.plugins.sealightsjenkins.integration.upgrade;
+
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.RecommendedVersionCache.CachedVersion;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeConfiguration;
+import io.sealights.plugins.sealightsjenkins.integration.upgrade.entities.UpgradeResponse;
+import io.sealights.plugins.sealightsjenkins.services.ApacheHttpClient;
+import io.sealights.plugins.sealightsjenkins.services.CircuitOpenException;
+import io.sealights.plugins.sealightsjenkins.services.HttpRequest;
+import io.sealights.plugins.sealightsjenkins.services.HttpResponse;
+import io.sealights.plugins.sealightsjenkins.services.HttpStatusException;
+import io.sealights.plugins.sealightsjenkins.utils.NullLogger;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class UpgradeProxyTest {
+
+    private static final String COMPONENT_NAME = "sealights-java";
+    private static final String RESPONSE_JSON = "{\"agent\":{\"name\":\"sealights-java\",\"version\":\"1.2.3\",\"url\":\"http://agents/1.2.3.zip\"}}";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private UpgradeConfiguration upgradeConfiguration = new UpgradeConfiguration(
+            "token", "customer", "bsid", "app", "env", "branch", "https://server/api", null, null);
+
+    @Test
+    public void getRecommendedVersion_cachedVersionIsFresh_shouldNotQueryServerAgain() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getJson(any(HttpRequest.class))).thenReturn(createResponse(200, RESPONSE_JSON));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+
+        //Act
+        upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+        UpgradeResponse upgradeResponse = upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+
+        //Assert
+        Assert.assertEquals("1.2.3", upgradeResponse.getAgent().getVersion());
+        verify(httpClient, times(1)).getJson(any(HttpRequest.class));
+    }
+
+    @Test
+    public void getRecommendedVersion_cachedVersionIsStaleAndServerFails_shouldReturnCachedVersion() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getJson(any(HttpRequest.class))).thenThrow(new IOException("connection refused"));
+        RecommendedVersionCache cache = new RecommendedVersionCache();
+        cache.put(createStaleVersion(null), null, new NullLogger());
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, cache);
+
+        //Act
+        UpgradeResponse upgradeResponse = upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+
+        //Assert
+        Assert.assertEquals("1.2.3", upgradeResponse.getAgent().getVersion());
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void getRecommendedVersion_serverReturnsNotFound_shouldThrowFileNotFound() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getJson(any(HttpRequest.class))).thenReturn(createResponse(404, "{\"error\":\"no such component\"}"));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+
+        //Act
+        upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+    }
+
+    @Test
+    public void getRecommendedVersion_cachedVersionIsStaleAndNotModified_shouldRevalidateWithEtag() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getJson(any(HttpRequest.class))).thenReturn(createResponse(304, null));
+        RecommendedVersionCache cache = new RecommendedVersionCache();
+        cache.put(createStaleVersion("\"v1\""), null, new NullLogger());
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, cache);
+
+        //Act
+        UpgradeResponse upgradeResponse = upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+
+        //Assert
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).getJson(request.capture());
+        Assert.assertEquals("\"v1\"", request.getValue().getHeaders().get("If-None-Match"));
+        Assert.assertEquals("1.2.3", upgradeResponse.getAgent().getVersion());
+        Assert.assertTrue("The cached version should be fresh after revalidation",
+                cache.get(createKey(), null, new NullLogger()).isFresh(cache.getTtlSecs()));
+    }
+
+    @Test
+    public void downloadAgent_connectionDropsMidway_shouldResumeFromLastByte() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        HttpResponse droppedResponse = createResponse(200, null);
+        droppedResponse.setResponseStream(new DroppingInputStream("agent-".getBytes()));
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(droppedResponse, createResponse(206, "content"));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+        String sha256 = sha256Of("agent-content");
+
+        //Act
+        boolean isSuccess = upgradeProxy.downloadAgent("http://agents/agent.zip", sha256, destFile.getAbsolutePath());
+
+        //Assert
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).getFile(requests.capture());
+        Assert.assertTrue("The download should succeed", isSuccess);
+        Assert.assertEquals("bytes=6-", requests.getAllValues().get(1).getHeaders().get("Range"));
+        Assert.assertEquals("agent-content", new String(Files.readAllBytes(destFile.toPath())));
+    }
+
+    @Test
+    public void downloadAgent_checksumDoesntMatch_shouldFailAndDeleteFile() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(createResponse(200, "truncated"));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+
+        //Act
+        boolean isSuccess = upgradeProxy.downloadAgent("http://agents/agent.zip", sha256Of("agent-content"), destFile.getAbsolutePath());
+
+        //Assert
+        Assert.assertFalse("The download should fail", isSuccess);
+        Assert.assertFalse("The corrupted file should be deleted", destFile.exists());
+    }
+
+    @Test
+    public void downloadAgent_serverFailsOnce_shouldRetry() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(createResponse(503, "unavailable"), createResponse(200, "agent-content"));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+
+        //Act
+        boolean isSuccess = upgradeProxy.downloadAgent("http://agents/agent.zip", sha256Of("agent-content"), destFile.getAbsolutePath());
+
+        //Assert
+        verify(httpClient, times(2)).getFile(any(HttpRequest.class));
+        Assert.assertTrue("The download should succeed", isSuccess);
+    }
+
+    @Test
+    public void downloadAgent_agentNotFound_shouldFailWithoutRetrying() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(createResponse(404, null));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+
+        //Act
+        boolean isSuccess = upgradeProxy.downloadAgent("http://agents/agent.zip", sha256Of("agent-content"), destFile.getAbsolutePath());
+
+        //Assert
+        verify(httpClient, times(1)).getFile(any(HttpRequest.class));
+        Assert.assertFalse("The download should fail", isSuccess);
+    }
+
+    @Test
+    public void downloadAgent_circuitIsOpen_shouldThrowWithoutRetrying() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenThrow(new CircuitOpenException("agents"));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+
+        //Act
+        try {
+            upgradeProxy.downloadAgent("http://agents/agent.zip", sha256Of("agent-content"), destFile.getAbsolutePath());
+            Assert.fail("The download should throw when the server is unavailable");
+        } catch (CircuitOpenException e) {
+            // expected
+        }
+
+        //Assert
+        verify(httpClient, times(1)).getFile(any(HttpRequest.class));
+    }
+
+    @Test
+    public void downloadAndExtractEntries_zipHasOtherEntries_shouldExtractOnlyTheRequestedOnesFromOneDownload() throws IOException {
+        //Arrange
+        byte[] zip = createZip("sl-test-listener-1.0.jar", "listener", "agents/sl-build-scanner-1.0.jar", "scanner", "readme.txt", "readme");
+        File zipFile = tempFolder.newFile("agent.zip");
+        Files.write(zipFile.toPath(), zip);
+        HttpResponse response = createResponse(200, null);
+        response.setResponseStream(new ByteArrayInputStream(zip));
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(response);
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        Map<String, File> destFiles = new LinkedHashMap<>();
+        destFiles.put("sl-build-scanner-1.0.jar", new File(tempFolder.getRoot(), "sl-build-scanner-1.0.jar.tmp"));
+        destFiles.put("sl-test-listener-1.0.jar", new File(tempFolder.getRoot(), "sl-test-listener-1.0.jar.tmp"));
+        destFiles.put("sl-other-1.0.jar", new File(tempFolder.getRoot(), "sl-other-1.0.jar.tmp"));
+
+        //Act
+        Set<String> extractedEntries = upgradeProxy.downloadAndExtractEntries("http://agents/agent.zip",
+                AgentIntegrity.sha256(zipFile), destFiles, new File(tempFolder.getRoot(), "agent.zip.partial"));
+
+        //Assert
+        verify(httpClient, times(1)).getFile(any(HttpRequest.class));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("sl-build-scanner-1.0.jar", "sl-test-listener-1.0.jar")), extractedEntries);
+        Assert.assertEquals("scanner", new String(Files.readAllBytes(destFiles.get("sl-build-scanner-1.0.jar").toPath())));
+        Assert.assertEquals("listener", new String(Files.readAllBytes(destFiles.get("sl-test-listener-1.0.jar").toPath())));
+        Assert.assertEquals("Only the requested entries should be extracted", 3, tempFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void downloadAndExtractEntries_connectionDropsMidway_shouldKeepTheBytesSoTheWholeZipDownloadResumes() throws IOException {
+        //Arrange
+        byte[] zip = createZip("sl-build-scanner-1.0.jar", "scanner");
+        byte[] firstBytes = Arrays.copyOf(zip, 20);
+        byte[] restOfBytes = Arrays.copyOfRange(zip, 20, zip.length);
+        HttpResponse droppedResponse = createResponse(200, null);
+        droppedResponse.setResponseStream(new DroppingInputStream(firstBytes));
+        HttpResponse resumedResponse = createResponse(206, null);
+        resumedResponse.setResponseStream(new ByteArrayInputStream(restOfBytes));
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(droppedResponse, resumedResponse);
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File partialZip = new File(tempFolder.getRoot(), "agent.zip.partial");
+        File destFile = new File(tempFolder.getRoot(), "sl-build-scanner-1.0.jar.tmp");
+        File zipFile = tempFolder.newFile("agent.zip");
+        Files.write(zipFile.toPath(), zip);
+        String sha256 = AgentIntegrity.sha256(zipFile);
+
+        //Act
+        Set<String> extractedEntries = upgradeProxy.downloadAndExtractEntries("http://agents/agent.zip", sha256,
+                Collections.singletonMap("sl-build-scanner-1.0.jar", destFile), partialZip);
+        boolean isSuccess = upgradeProxy.downloadAgent("http://agents/agent.zip", sha256, partialZip.getAbsolutePath());
+
+        //Assert
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).getFile(requests.capture());
+        Assert.assertTrue("No entry should be extracted from a dropped connection", extractedEntries.isEmpty());
+        Assert.assertFalse(destFile.exists());
+        Assert.assertEquals("bytes=20-", requests.getAllValues().get(1).getHeaders().get("Range"));
+        Assert.assertTrue("The resumed download should succeed", isSuccess);
+        Assert.assertArrayEquals(zip, Files.readAllBytes(partialZip.toPath()));
+    }
+
+    @Test
+    public void downloadAndExtractEntries_agentNotFound_shouldThrowWithoutKeepingAPartialZip() throws IOException {
+        //Arrange
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(createResponse(404, "Not found"));
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File partialZip = new File(tempFolder.getRoot(), "agent.zip.partial");
+
+        //Act
+        try {
+            upgradeProxy.downloadAndExtractEntries("http://agents/agent.zip", "abc",
+                    Collections.singletonMap("sl-build-scanner-1.0.jar", new File(tempFolder.getRoot(), "agent.jar.tmp")), partialZip);
+            Assert.fail("A missing agent should be thrown, not fall back to another download");
+        } catch (FileNotFoundException | HttpStatusException e) {
+            // expected
+        }
+
+        //Assert
+        verify(httpClient, times(1)).getFile(any(HttpRequest.class));
+        Assert.assertFalse(partialZip.exists());
+    }
+
+    @Test
+    public void downloadAndExtractEntries_checksumDoesntMatch_shouldThrowAndDeleteTheExtractedEntries() throws IOException {
+        //Arrange
+        byte[] zip = createZip("sl-build-scanner-1.0.jar", "scanner");
+        HttpResponse response = createResponse(200, null);
+        response.setResponseStream(new ByteArrayInputStream(zip));
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        when(httpClient.getFile(any(HttpRequest.class))).thenReturn(response);
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        File partialZip = new File(tempFolder.getRoot(), "agent.zip.partial");
+        File destFile = new File(tempFolder.getRoot(), "sl-build-scanner-1.0.jar.tmp");
+
+        //Act
+        try {
+            upgradeProxy.downloadAndExtractEntries("http://agents/agent.zip", sha256Of("other"),
+                    Collections.singletonMap("sl-build-scanner-1.0.jar", destFile), partialZip);
+            Assert.fail("A corrupted zip should be thrown");
+        } catch (IOException e) {
+            // expected
+        }
+
+        //Assert
+        Assert.assertFalse(destFile.exists());
+        Assert.assertFalse(partialZip.exists());
+    }
+
+    @Test
+    public void getRecommendedVersion_agentsMirrorIsSet_shouldResolveAndDownloadFromMirrorOnly() throws IOException {
+        //Arrange
+        File mirror = tempFolder.newFolder("mirror");
+        new File(mirror, COMPONENT_NAME).mkdirs();
+        Files.write(new File(mirror, COMPONENT_NAME + "/recommended.json").toPath(),
+                "{\"agent\":{\"name\":\"sealights-java\",\"version\":\"1.2.3\",\"url\":\"agents/1.2.3.zip\"}}".getBytes());
+        new File(mirror, "agents").mkdirs();
+        Files.write(new File(mirror, "agents/1.2.3.zip").toPath(), "agent".getBytes());
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        upgradeConfiguration.setAgentsMirror(mirror.toURI().toString());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+
+        //Act
+        UpgradeResponse upgradeResponse = upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+        boolean isSuccess = upgradeProxy.downloadAgent(upgradeResponse.getAgent().getUrl(), sha256Of("agent"), destFile.getAbsolutePath());
+
+        //Assert
+        Assert.assertEquals("1.2.3", upgradeResponse.getAgent().getVersion());
+        Assert.assertTrue("The download should succeed", isSuccess);
+        Assert.assertEquals("agent", new String(Files.readAllBytes(destFile.toPath())));
+        verifyZeroInteractions(httpClient);
+    }
+
+    @Test
+    public void getRecommendedVersion_agentsMirrorHasAbsoluteUrl_shouldResolveItByFileNameInMirror() throws IOException {
+        //Arrange
+        File mirror = tempFolder.newFolder("mirror");
+        new File(mirror, COMPONENT_NAME).mkdirs();
+        Files.write(new File(mirror, COMPONENT_NAME + "/recommended.json").toPath(),
+                "{\"agent\":{\"name\":\"sealights-java\",\"version\":\"1.2.3\",\"url\":\"https://agents.sealights.co/sealights-java/1.2.3.zip?sig=abc\"}}".getBytes());
+        Files.write(new File(mirror, "1.2.3.zip").toPath(), "agent".getBytes());
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        upgradeConfiguration.setAgentsMirror(mirror.getAbsolutePath());
+        File destFile = new File(tempFolder.getRoot(), "agent.zip");
+
+        //Act
+        UpgradeResponse upgradeResponse = upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+        boolean isSuccess = upgradeProxy.downloadAgent(upgradeResponse.getAgent().getUrl(), sha256Of("agent"), destFile.getAbsolutePath());
+
+        //Assert
+        Assert.assertEquals(new File(mirror, "1.2.3.zip").toURI().toString(), upgradeResponse.getAgent().getUrl());
+        Assert.assertTrue("The download should succeed", isSuccess);
+        verifyZeroInteractions(httpClient);
+    }
+
+    @Test
+    public void getRecommendedVersion_agentsMirrorMissesAgentOfAbsoluteUrl_shouldThrowWithoutReachingTheNetwork() throws IOException {
+        //Arrange
+        File mirror = tempFolder.newFolder("mirror");
+        new File(mirror, COMPONENT_NAME).mkdirs();
+        Files.write(new File(mirror, COMPONENT_NAME + "/recommended.json").toPath(),
+                "{\"agent\":{\"name\":\"sealights-java\",\"version\":\"1.2.3\",\"url\":\"https://agents.sealights.co/sealights-java/1.2.3.zip\"}}".getBytes());
+        ApacheHttpClient httpClient = mock(ApacheHttpClient.class);
+        UpgradeProxy upgradeProxy = createUpgradeProxy(httpClient, new RecommendedVersionCache());
+        upgradeConfiguration.setAgentsMirror(mirror.getAbsolutePath());
+
+        //Act
+        try {
+            upgradeProxy.getRecommendedVersion(COMPONENT_NAME);
+            Assert.fail("A mirror without the agent should fail");
+        } catch (FileNotFoundException e) {
+            //Assert
+            Assert.assertTrue(e.getMessage().contains("1.2.3.zip"));
+        }
+        verifyZeroInteractions(httpClient);
+    }
+
+    private byte[] createZip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zipStream = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zipStream.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zipStream.write(namesAndContents[i + 1].getBytes());
+                zipStream.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private String sha256Of(String content) throws IOException {
+        File file = tempFolder.newFile();
+        Files.write(file.toPath(), content.getBytes());
+        return AgentIntegrity.sha256(file);
+    }
+
+    private UpgradeProxy createUpgradeProxy(ApacheHttpClient httpClient, RecommendedVersionCache cache) {
+        UpgradeProxy upgradeProxy = new UpgradeProxy(upgradeConfiguration, new NullLogger());
+        upgradeProxy.setHttpClient(httpClient);
+        upgradeProxy.setRecommendedVersionCache(cache);
+        return upgradeProxy;
+    }
+
+    private CachedVersion createStaleVersion(String etag) {
+        CachedVersion cachedVersion = new CachedVersion(createKey(), RESPONSE_JSON, etag, null);
+        cachedVersion.setFetchedAt(0);
+        return cachedVersion;
+    }
+
+    private String createKey() {
+        return RecommendedVersionCache.createKey(COMPONENT_NAME, upgradeConfiguration);
+    }
+
+    private HttpResponse createResponse(int statusCode, String body) {
+        HttpResponse httpResponse = new HttpResponse();
+        httpResponse.setStatusCode(statusCode);
+        if (body != null) {
+            httpResponse.setResponseStream(new ByteArrayInputStream(body.getBytes()));
+        }
+        return httpResponse;
+    }
+
+    /**
+     * Returns its content and then fails, like a dropped connection.
+     */
+    private static class DroppingInputStream extends InputStream {
+        private final ByteArrayInputStream content;
+
+        DroppingInputStream(byte[] content) {
+            this.content = new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = content.read();
+            if (b == -1) {
+                throw new IOException("Connection reset");
+            }
+            return b;
+        }
+    }
+}
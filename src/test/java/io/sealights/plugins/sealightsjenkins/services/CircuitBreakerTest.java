@@ -0,0 +1,53 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void recordFailure_repeatedFailures_shouldOpen() {
+        //Arrange
+        CircuitBreaker breaker = new CircuitBreaker("https://sl.local");
+        for (int i = 1; i < CircuitBreaker.FAILURES_TO_OPEN; i++) {
+            breaker.recordFailure();
+        }
+
+        //Act
+        boolean isOpened = breaker.recordFailure();
+
+        //Assert
+        Assert.assertTrue("The breaker should open on the last failure", isOpened);
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void recordSuccess_betweenFailures_shouldStayClosed() {
+        //Arrange
+        CircuitBreaker breaker = new CircuitBreaker("https://sl.local");
+        for (int i = 1; i < CircuitBreaker.FAILURES_TO_OPEN; i++) {
+            breaker.recordFailure();
+        }
+
+        //Act
+        breaker.recordSuccess(100);
+        breaker.recordFailure();
+
+        //Assert
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void recordSuccess_repeatedSlowResponses_shouldOpen() {
+        //Arrange
+        CircuitBreaker breaker = new CircuitBreaker("https://sl.local");
+
+        //Act
+        for (int i = 0; i < CircuitBreaker.FAILURES_TO_OPEN; i++) {
+            breaker.recordSuccess(CircuitBreaker.SLOW_RESPONSE_MILLIS);
+        }
+
+        //Assert
+        Assert.assertTrue("Slow responses should count as failures", breaker.isOpen());
+    }
+}
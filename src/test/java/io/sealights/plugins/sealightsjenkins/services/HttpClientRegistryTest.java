@@ -0,0 +1,35 @@
+package io.sealights.plugins.sealightsjenkins.services;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpClientRegistryTest {
+
+    @Test
+    public void getClient_sameProxy_shouldReuseTheClient() throws Exception {
+        //Arrange
+        HttpClientRegistry registry = new HttpClientRegistry();
+
+        //Act
+        CloseableHttpClient first = registry.getClient("http://proxy.local:8080");
+        CloseableHttpClient second = registry.getClient("http://proxy.local:8080");
+
+        //Assert
+        Assert.assertSame("Requests through the same proxy should share a client", first, second);
+    }
+
+    @Test
+    public void getClient_differentProxies_shouldCreateAClientPerProxy() throws Exception {
+        //Arrange
+        HttpClientRegistry registry = new HttpClientRegistry();
+
+        //Act
+        CloseableHttpClient withoutProxy = registry.getClient(null);
+        CloseableHttpClient withProxy = registry.getClient("http://proxy.local:8080");
+
+        //Assert
+        Assert.assertSame("A missing proxy and an empty proxy should share a client", withoutProxy, registry.getClient(""));
+        Assert.assertNotSame("Each proxy should have its own client", withoutProxy, withProxy);
+    }
+}
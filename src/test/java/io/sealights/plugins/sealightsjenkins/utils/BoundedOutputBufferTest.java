@@ -0,0 +1,43 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class BoundedOutputBufferTest {
+
+    @Test
+    public void appendLine_fewerLinesThanKept_shouldKeepAllLines() {
+        //Arrange
+        BoundedOutputBuffer buffer = new BoundedOutputBuffer();
+
+        //Act
+        buffer.appendLine("hello");
+        buffer.appendLine("world");
+
+        //Assert
+        Assert.assertEquals(2, buffer.getLinesCount());
+        Assert.assertEquals("hello", buffer.getLastLines().get(0));
+        Assert.assertEquals("world", buffer.getLastLines().get(1));
+    }
+
+    @Test
+    public void getLastLines_moreLinesThanKept_shouldReturnOnlyTheLastLines() {
+        //Arrange
+        BoundedOutputBuffer buffer = new BoundedOutputBuffer();
+        int linesCount = BoundedOutputBuffer.LAST_LINES_COUNT + 5;
+        for (int i = 1; i <= linesCount; i++) {
+            buffer.appendLine("line " + i);
+        }
+
+        //Act
+        List<String> lastLines = buffer.getLastLines();
+
+        //Assert
+        Assert.assertEquals(BoundedOutputBuffer.LAST_LINES_COUNT, lastLines.size());
+        Assert.assertEquals("line 6", lastLines.get(0));
+        Assert.assertEquals("line " + linesCount, lastLines.get(lastLines.size() - 1));
+        Assert.assertEquals(linesCount, buffer.getLinesCount());
+    }
+}
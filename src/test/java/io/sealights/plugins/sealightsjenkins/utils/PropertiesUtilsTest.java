@@ -85,5 +85,19 @@ public class PropertiesUtilsTest {
         Assert.assertEquals("Value of key 'hello' should be 'world'", "world", p.get("hello"));
     }
 
+    @Test
+    public void getPositiveInt_giveValidValue_shouldReturnTheValue() {
+        Properties p = PropertiesUtils.toProperties("timeout=30");
+
+        Assert.assertEquals("Value of key 'timeout' should be 30", 30, PropertiesUtils.getPositiveInt(p, "timeout", 10));
+    }
 
+    @Test
+    public void getPositiveInt_giveMissingOrInvalidValue_shouldReturnTheDefault() {
+        Properties p = PropertiesUtils.toProperties("invalid=abc" + newLine + "negative=-5");
+
+        Assert.assertEquals("Missing key should return the default", 10, PropertiesUtils.getPositiveInt(p, "missing", 10));
+        Assert.assertEquals("Non numeric value should return the default", 10, PropertiesUtils.getPositiveInt(p, "invalid", 10));
+        Assert.assertEquals("Negative value should return the default", 10, PropertiesUtils.getPositiveInt(p, "negative", 10));
+    }
 }
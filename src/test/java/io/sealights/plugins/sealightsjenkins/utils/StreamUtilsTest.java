@@ -0,0 +1,22 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+public class StreamUtilsTest {
+
+    @Test
+    public void toString_utf8ContentWithLineBreaks_shouldKeepContentAsIs() {
+        //Arrange
+        String content = "{\"name\":\"caf\u00e9\"}\nline2\r\n";
+
+        //Act
+        String result = StreamUtils.toString(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+        //Assert
+        Assert.assertEquals(content, result);
+    }
+}
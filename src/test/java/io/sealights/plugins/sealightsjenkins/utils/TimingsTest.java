@@ -0,0 +1,121 @@
+package io.sealights.plugins.sealightsjenkins.utils;
+
+import io.sealights.plugins.sealightsjenkins.model.PhaseTiming;
+import io.sealights.plugins.sealightsjenkins.model.TimingsAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TimingsTest {
+
+    @Test
+    public void start_actionIsBound_shouldAccumulateEachPhase() {
+        //Arrange
+        TimingsAction timingsAction = new TimingsAction();
+        TimingsAction previous = Timings.bind(timingsAction);
+
+        //Act
+        try {
+            try (Timings.Timer timer = Timings.start(Timings.FILE_COPY)) {
+            }
+            try (Timings.Timer timer = Timings.start(Timings.COMMAND_EXECUTION)) {
+            }
+            try (Timings.Timer timer = Timings.start(Timings.FILE_COPY)) {
+            }
+        } finally {
+            Timings.restore(previous);
+        }
+
+        //Assert
+        List<PhaseTiming> phases = timingsAction.getPhases();
+        Assert.assertEquals(2, phases.size());
+        Assert.assertEquals(Timings.FILE_COPY, phases.get(0).getName());
+        Assert.assertEquals(2, phases.get(0).getCount());
+        Assert.assertEquals(Timings.COMMAND_EXECUTION, phases.get(1).getName());
+        Assert.assertEquals(1, phases.get(1).getCount());
+        Assert.assertNull("The action should be unbound after restoring", Timings.current());
+    }
+
+    @Test
+    public void start_nestedPhases_totalShouldNotSumTheNestedPhases() throws InterruptedException {
+        //Arrange
+        TimingsAction timingsAction = new TimingsAction();
+        TimingsAction previous = Timings.bind(timingsAction);
+
+        //Act
+        try {
+            try (Timings.Timer execution = Timings.start(Timings.COMMAND_EXECUTION)) {
+                try (Timings.Timer copy = Timings.start(Timings.FILE_COPY)) {
+                    Thread.sleep(50);
+                }
+            }
+        } finally {
+            Timings.restore(previous);
+        }
+
+        //Assert
+        List<PhaseTiming> phases = timingsAction.getPhases();
+        long executionMillis = phases.get(0).getTotalMillis();
+        long copyMillis = phases.get(1).getTotalMillis();
+        Assert.assertTrue("The nested phase should be measured", copyMillis >= 50);
+        Assert.assertTrue("The total should be the time of the outer phase only",
+                timingsAction.getTotalMillis() < executionMillis + copyMillis);
+        Assert.assertTrue(timingsAction.getTotalMillis() >= executionMillis);
+    }
+
+    @Test
+    public void start_phaseNestedInTheSamePhase_shouldBeCountedOnce() {
+        //Arrange
+        TimingsAction timingsAction = new TimingsAction();
+        TimingsAction previous = Timings.bind(timingsAction);
+
+        //Act
+        try {
+            try (Timings.Timer validation = Timings.start(Timings.TOKEN_VALIDATION)) {
+                try (Timings.Timer parsing = Timings.start(Timings.TOKEN_VALIDATION)) {
+                }
+            }
+            try (Timings.Timer validation = Timings.start(Timings.TOKEN_VALIDATION)) {
+            }
+        } finally {
+            Timings.restore(previous);
+        }
+
+        //Assert
+        List<PhaseTiming> phases = timingsAction.getPhases();
+        Assert.assertEquals(1, phases.size());
+        Assert.assertEquals(2, phases.get(0).getCount());
+    }
+
+    @Test
+    public void record_duringAMeasuredPhase_shouldNotBeAddedToTheTotal() {
+        //Arrange
+        TimingsAction timingsAction = new TimingsAction();
+        TimingsAction previous = Timings.bind(timingsAction);
+
+        //Act
+        try {
+            try (Timings.Timer timer = Timings.start(Timings.COMMAND_EXECUTION)) {
+                timingsAction.record(Timings.POM_DISCOVERY, 100000);
+            }
+            timingsAction.record(Timings.POM_REWRITE, 200);
+        } finally {
+            Timings.restore(previous);
+        }
+
+        //Assert
+        Assert.assertTrue("Only the phase recorded outside of a measured phase should be added to the total",
+                timingsAction.getTotalMillis() >= 200 && timingsAction.getTotalMillis() < 100000);
+    }
+
+    @Test
+    public void start_noActionIsBound_shouldNotFail() {
+        //Act
+        try (Timings.Timer timer = Timings.start(Timings.CLEANUP)) {
+        }
+
+        //Assert
+        Assert.assertNull(Timings.current());
+    }
+}